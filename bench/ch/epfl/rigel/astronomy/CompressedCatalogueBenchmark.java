@@ -0,0 +1,77 @@
+package ch.epfl.rigel.astronomy;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Compare the time to a usable catalogue (stars and asterisms read from files and built) for the raw
+ * and the gzip-compressed catalogues, with the sequential and the parallel HYG loaders
+ * (usage: CompressedCatalogueBenchmark [number of copies of the HYG catalogue], 20 by default)
+ *
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+public final class CompressedCatalogueBenchmark {
+
+    private CompressedCatalogueBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int copies = (args.length > 0) ? Integer.parseInt(args[0]) : 20;
+        byte[] catalogue, asterisms;
+        try (InputStream hygStream = CompressedCatalogueBenchmark.class.getResourceAsStream("/hygdata_v3.csv");
+             InputStream asterismStream = CompressedCatalogueBenchmark.class.getResourceAsStream("/asterisms.txt")) {
+            catalogue = hygStream.readAllBytes();
+            asterisms = asterismStream.readAllBytes();
+        }
+        //the catalogue is repeated to have a size closer to the one of the full HYG catalogue
+        String text = new String(catalogue, US_ASCII);
+        String lines = text.substring(text.indexOf('\n') + 1);
+        catalogue = (text + lines.repeat(copies - 1)).getBytes(US_ASCII);
+
+        Path directory = Files.createTempDirectory("rigel-benchmark");
+        Path rawCatalogue = Files.write(directory.resolve("hygdata_v3.csv"), catalogue);
+        Path rawAsterisms = Files.write(directory.resolve("asterisms.txt"), asterisms);
+        Path compressedCatalogue = compress(rawCatalogue, directory.resolve("hygdata_v3.csv.gz"));
+        Path compressedAsterisms = compress(rawAsterisms, directory.resolve("asterisms.txt.gz"));
+        System.out.printf("catalogue: %,d bytes raw, %,d bytes compressed%n",
+                Files.size(rawCatalogue), Files.size(compressedCatalogue));
+
+        for (int run = 0; run < 5; ++run) {
+            for (HygDatabaseLoader loader : HygDatabaseLoader.values()) {
+                measure("raw       ", loader, rawCatalogue, rawAsterisms);
+                measure("compressed", loader, compressedCatalogue, compressedAsterisms);
+            }
+        }
+    }
+
+    private static Path compress(Path source, Path target) throws IOException {
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(target))) {
+            Files.copy(source, output);
+        }
+        return target;
+    }
+
+    private static void measure(String label, HygDatabaseLoader loader, Path stars, Path asterisms)
+            throws IOException {
+        long start = System.nanoTime();
+        StarCatalogue catalogue;
+        try (InputStream starsStream = new FileInputStream(stars.toFile());
+             InputStream asterismStream = new FileInputStream(asterisms.toFile())) {
+            catalogue = new StarCatalogue.Builder()
+                    .loadFrom(starsStream, loader)
+                    .loadFrom(asterismStream, AsterismLoader.INSTANCE)
+                    .build();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%s %-8s: %,d stars usable in %,d ms%n", label, loader,
+                catalogue.stars().size(), elapsed / 1_000_000);
+    }
+}
@@ -0,0 +1,81 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+
+import java.lang.ref.Reference;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.SplittableRandom;
+
+/**
+ * Compare the heap usage and the build time of the on-heap and off-heap star catalogues, right after their build
+ * and once a sky has been computed and projected from them (usage: OffHeapCatalogueBenchmark [number of stars],
+ * 2 000 000 by default)
+ *
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+public final class OffHeapCatalogueBenchmark {
+
+    private OffHeapCatalogueBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int starCount = (args.length > 0) ? Integer.parseInt(args[0]) : 2_000_000;
+        for (int run = 0; run < 3; ++run) {
+            measure("on-heap ", starCount, false);
+            measure("off-heap", starCount, true);
+        }
+    }
+
+    private static void measure(String label, int starCount, boolean offHeap) {
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        if (offHeap) {
+            builder.offHeap();
+        }
+        SplittableRandom random = new SplittableRandom(2020);
+        NameHeap names = NameHeap.empty();
+        for (int i = 0; i < starCount; ++i) {
+            byte[] name = ("HIP " + i).getBytes(StandardCharsets.US_ASCII);
+            int nameStart = names.size();
+            names.append(name, 0, name.length);
+            builder.addStar(new Star(i, names, nameStart, names.size(),
+                    EquatorialCoordinates.of(random.nextDouble(0, 2 * Math.PI), random.nextDouble(-1.5, 1.5)),
+                    (float) random.nextDouble(-1.5, 12), (float) random.nextDouble(-0.4, 5.5),
+                    (float) random.nextDouble(-1e-7, 1e-7), (float) random.nextDouble(-1e-7, 1e-7)));
+        }
+        names = null;
+        StarCatalogue catalogue = builder.build();
+        builder = null;
+
+        long elapsed = System.nanoTime() - start;
+        long catalogueHeap = usedHeap() - heapBefore;
+
+        //the structures built at the first use of the catalogue, and a sky drawn from it
+        ZonedDateTime when = ZonedDateTime.parse("2020-02-17T20:15:00+01:00");
+        catalogue.tiling();
+        ObservedSky sky = new ObservedSky(new HorizontalSky(when, GeographicCoordinates.ofDeg(6.57, 46.52), catalogue),
+                new StereographicProjection(HorizontalCoordinates.ofDeg(180, 15)));
+        long skyHeap = usedHeap() - heapBefore;
+
+        System.out.printf("%s: %,d stars, built in %,d ms, %,d bytes of heap per star after the build, "
+                        + "%,d once a sky is drawn%n", label, catalogue.starTable().size(), elapsed / 1_000_000,
+                catalogueHeap / starCount, skyHeap / starCount);
+        Reference.reachabilityFence(catalogue);
+        Reference.reachabilityFence(sky);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; ++i) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,81 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compare the time to compute a sky (horizontal sky and its projection) sequentially and in parallel on the common
+ * fork/join pool, for catalogues of 5 000 to 2 000 000 stars
+ * (usage: ParallelSkyBenchmark [threshold of the parallel partitioner], 16 384 by default)
+ *
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+public final class ParallelSkyBenchmark {
+
+    private static final int[] STAR_COUNTS = {5_000, 20_000, 100_000, 500_000, 2_000_000};
+    private static final int RUNS = 15;
+
+    private ParallelSkyBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int threshold = (args.length > 0) ? Integer.parseInt(args[0]) : StarPartitioner.DEFAULT_THRESHOLD;
+        StarPartitioner parallel = StarPartitioner.parallel(ForkJoinPool.commonPool(), threshold);
+        System.out.printf("%d processors, threshold %,d%n", Runtime.getRuntime().availableProcessors(), threshold);
+
+        ZonedDateTime when = ZonedDateTime.parse("2020-02-17T20:15:00+01:00");
+        GeographicCoordinates where = GeographicCoordinates.ofDeg(6.57, 46.52);
+        StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 15));
+
+        //warm-up of both paths, for the first measures not to include the compilation
+        StarCatalogue warmUp = catalogue(STAR_COUNTS[STAR_COUNTS.length - 1]);
+        medianMillis(when, where, projection, warmUp, StarPartitioner.SEQUENTIAL);
+        medianMillis(when, where, projection, warmUp, parallel);
+
+        for (int starCount : STAR_COUNTS) {
+            StarCatalogue catalogue = catalogue(starCount);
+            //the proper motions of the stars are propagated once, before the measures
+            catalogue.starUnitVectorsAt(when);
+
+            double sequentialTime = medianMillis(when, where, projection, catalogue, StarPartitioner.SEQUENTIAL);
+            double parallelTime = medianMillis(when, where, projection, catalogue, parallel);
+            System.out.printf("%,9d stars: sequential %8.2f ms, parallel %8.2f ms, speedup %.2f%n",
+                    starCount, sequentialTime, parallelTime, sequentialTime / parallelTime);
+        }
+    }
+
+    private static StarCatalogue catalogue(int starCount) {
+        StarCatalogue.Builder builder = new StarCatalogue.Builder().offHeap();
+        SplittableRandom random = new SplittableRandom(2020);
+        for (int i = 0; i < starCount; ++i) {
+            builder.addStar(new Star(i, "HIP " + i,
+                    EquatorialCoordinates.of(random.nextDouble(0, 2 * Math.PI), random.nextDouble(-1.5, 1.5)),
+                    (float) random.nextDouble(-1.5, 12), (float) random.nextDouble(-0.4, 5.5)));
+        }
+        return builder.build();
+    }
+
+    private static double medianMillis(ZonedDateTime when, GeographicCoordinates where,
+                                       StereographicProjection projection, StarCatalogue catalogue,
+                                       StarPartitioner partitioner) {
+        double[] times = new double[RUNS];
+        for (int run = 0; run < RUNS; ++run) {
+            long start = System.nanoTime();
+            ObservedSky sky = new ObservedSky(new HorizontalSky(when, where, catalogue, partitioner), projection);
+            times[run] = (System.nanoTime() - start) / 1e6;
+            if (sky.starCount() != catalogue.starTable().size()) {
+                throw new AssertionError();
+            }
+        }
+        Arrays.sort(times);
+        return times[RUNS / 2];
+    }
+}
@@ -1,15 +1,12 @@
 package ch.epfl.rigel.astronomy;
 
-import java.io.*;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-
-import static java.nio.charset.StandardCharsets.US_ASCII;
 
 /**
- * An asterism loader
+ * An asterism loader, of a catalogue possibly gzip-compressed
  *
  * @author Juliette Parchet (295888)
  * @author Paola Matta (296390)
@@ -21,26 +18,23 @@ public enum AsterismLoader implements StarCatalogue.Loader {
     @Override
     public void load(InputStream inputStream, StarCatalogue.Builder builder) throws IOException {
 
-        //Mapping hipparcos number and star (from catalogue)
-        Map<Integer, Star> starAndHipparcosMap = new HashMap<>();
-        List<Star> starsOfCatalogue = builder.stars();
-        for (Star star : starsOfCatalogue) {
-            starAndHipparcosMap.put(star.hipparcosId(), star);
-        }
-
-        try (BufferedReader input = new BufferedReader(new InputStreamReader(inputStream, US_ASCII))) {
-            String stringLine = input.readLine();
-            while (stringLine != null) {
-
-                String[] stringTable = stringLine.split(",");
+        //a gzip-compressed catalogue is decompressed as it is read
+        try (inputStream; InputStream input = CatalogueStreams.decompressed(inputStream)) {
+            CsvScanner scanner = new CsvScanner(input);
+            while (scanner.nextLine()) {
                 List<Star> starListOfAsterism = new ArrayList<>();
 
-                for (String hipparcosNumber : stringTable) {
-                    starListOfAsterism.add(starAndHipparcosMap.get(Integer.parseInt(hipparcosNumber)));
-                }
+                do {
+                    if (scanner.isBlank()) {
+                        throw new IOException("missing Hipparcos number");
+                    }
+                    //star of the catalogue under construction, through its Hipparcos index
+                    int hipparcosId = scanner.intValue(0);
+                    starListOfAsterism.add(builder.starByHipparcos(hipparcosId).orElseThrow(
+                            () -> new IOException("unknown Hipparcos number: " + hipparcosId)));
+                } while (scanner.nextField());
 
                 builder.addAsterism(new Asterism(starListOfAsterism));
-                stringLine = input.readLine();
             }
         }
     }
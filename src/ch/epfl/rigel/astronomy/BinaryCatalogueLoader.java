@@ -0,0 +1,128 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A loader of the binary star catalogue produced by {@link BinaryCatalogueWriter}
+ * <p>
+ * The file is made of a header (magic number, version, number of stars n, size of the name heap),
+ * followed by the fixed-width columns ra (double[n]), dec (double[n]), magnitude (float[n]),
+ * color index (float[n]), proper motion in right ascension (float[n]), proper motion in declination (float[n]),
+ * Hipparcos number (int[n]) and name offsets (int[n + 1]), and finally by the name heap (UTF-8 bytes of all
+ * the names, one after the other)
+ * <p>
+ * Loaded from a file, the catalogue is memory-mapped and the columns are read in place, without being parsed
+ *
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+public enum BinaryCatalogueLoader implements StarCatalogue.Loader {
+
+    INSTANCE;
+
+    static final int MAGIC = 0x52474C43; // "RGLC"
+    static final int VERSION = 2;
+    static final int STAR_BYTES = 2 * Double.BYTES + 4 * Float.BYTES + 2 * Integer.BYTES;
+    static final int HEADER_BYTES = 4 * Integer.BYTES;
+
+    /**
+     * Load the stars of the binary catalogue file, memory-mapped
+     *
+     * @param file    : the path of the binary catalogue
+     * @param builder : the catalogue under construction
+     * @throws : IOException in case of an input or output error or if the file is not a binary catalogue
+     */
+    public void load(Path file, StarCatalogue.Builder builder) throws IOException {
+        load(map(file), builder);
+    }
+
+    /**
+     * Return the content of the given file, memory-mapped (the mapping outlives the channel, closed at once)
+     *
+     * @param file : the path of the file
+     * @return : the content of the file
+     * @throws : IOException in case of an input or output error
+     */
+    static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Load the stars of the binary catalogue, read entirely from the stream
+     * (see {@link #load(Path, StarCatalogue.Builder)} for a file to be memory-mapped)
+     *
+     * @param inputStream : the input stream
+     * @param builder     : the catalogue under construction
+     * @throws : IOException in case of an input or output error or if the stream is not a binary catalogue
+     */
+    @Override
+    public void load(InputStream inputStream, StarCatalogue.Builder builder) throws IOException {
+        try (inputStream) {
+            load(ByteBuffer.wrap(inputStream.readAllBytes()), builder);
+        }
+    }
+
+    /**
+     * Load the stars contained in the given buffer (from its position to its limit)
+     *
+     * @param buffer  : the buffer containing the binary catalogue
+     * @param builder : the catalogue under construction
+     * @throws : IOException if the buffer does not contain a binary catalogue
+     */
+    private static void load(ByteBuffer buffer, StarCatalogue.Builder builder) throws IOException {
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException("not a binary star catalogue");
+        }
+        if (buffer.getInt() != VERSION) {
+            throw new IOException("unsupported binary star catalogue version");
+        }
+        int starCount = buffer.getInt();
+        int nameHeapSize = buffer.getInt();
+        long expectedSize = (long) starCount * STAR_BYTES + Integer.BYTES + nameHeapSize;
+        if (starCount < 0 || nameHeapSize < 0 || buffer.remaining() < expectedSize) {
+            throw new IOException("truncated binary star catalogue");
+        }
+
+        DoubleBuffer ra = buffer.asDoubleBuffer();
+        DoubleBuffer dec = skip(buffer, starCount * Double.BYTES).asDoubleBuffer();
+        FloatBuffer magnitude = skip(buffer, starCount * Double.BYTES).asFloatBuffer();
+        FloatBuffer colorIndex = skip(buffer, starCount * Float.BYTES).asFloatBuffer();
+        FloatBuffer properMotionRa = skip(buffer, starCount * Float.BYTES).asFloatBuffer();
+        FloatBuffer properMotionDec = skip(buffer, starCount * Float.BYTES).asFloatBuffer();
+        IntBuffer hipparcos = skip(buffer, starCount * Float.BYTES).asIntBuffer();
+        IntBuffer nameOffsets = skip(buffer, starCount * Integer.BYTES).asIntBuffer();
+        skip(buffer, (starCount + 1) * Integer.BYTES);
+        //the names are shared with the buffer (not copied) and turned into strings only when they are read
+        NameHeap nameHeap = NameHeap.of(buffer.slice().limit(nameHeapSize));
+
+        for (int i = 0; i < starCount; ++i) {
+            builder.addStar(new Star(hipparcos.get(i), nameHeap, nameOffsets.get(i), nameOffsets.get(i + 1),
+                    EquatorialCoordinates.of(ra.get(i), dec.get(i)), magnitude.get(i), colorIndex.get(i),
+                    properMotionRa.get(i), properMotionDec.get(i)));
+        }
+    }
+
+    /**
+     * Move the position of the buffer forward and return the buffer
+     *
+     * @param buffer : the buffer
+     * @param bytes  : the number of bytes to skip
+     * @return : the buffer
+     */
+    private static ByteBuffer skip(ByteBuffer buffer, int bytes) {
+        buffer.position(buffer.position() + bytes);
+        return buffer;
+    }
+}
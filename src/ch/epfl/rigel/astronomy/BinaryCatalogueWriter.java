@@ -0,0 +1,101 @@
+package ch.epfl.rigel.astronomy;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A writer of the binary star catalogue read by {@link BinaryCatalogueLoader}
+ * <p>
+ * The binary catalogue of the resources is generated from the HYG one, to be generated again when the HYG catalogue
+ * changes: BinaryCatalogueWriter resources/hygdata_v3.csv resources/hygdata_v3.bin
+ *
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+public final class BinaryCatalogueWriter {
+
+    /**
+     * Private constructor of the writer (for it to be non-instantiable)
+     */
+    private BinaryCatalogueWriter() {
+    }
+
+    /**
+     * Convert a HYG catalogue (csv) into a binary catalogue
+     *
+     * @param args : the path of the HYG catalogue and the path of the binary catalogue to produce
+     * @throws IOException : in case of an input or output error
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: BinaryCatalogueWriter <hygdata_v3.csv> <hygdata_v3.bin>");
+            return;
+        }
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        try (InputStream csvStream = new FileInputStream(args[0])) {
+            builder.loadFrom(csvStream, HygDatabaseLoader.INSTANCE);
+        }
+        try (OutputStream binaryStream = new FileOutputStream(args[1])) {
+            write(builder.stars(), binaryStream);
+        }
+    }
+
+    /**
+     * Write the given stars in the binary catalogue format to the output stream
+     *
+     * @param stars        : the stars
+     * @param outputStream : the output stream (not closed by this method)
+     * @throws : IOException in case of an input or output error
+     */
+    public static void write(List<Star> stars, OutputStream outputStream) throws IOException {
+        int starCount = stars.size();
+        byte[][] names = new byte[starCount][];
+        int nameHeapSize = 0;
+        for (int i = 0; i < starCount; ++i) {
+            names[i] = stars.get(i).name().getBytes(UTF_8);
+            nameHeapSize += names[i].length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(BinaryCatalogueLoader.HEADER_BYTES
+                + starCount * BinaryCatalogueLoader.STAR_BYTES + Integer.BYTES + nameHeapSize);
+        buffer.putInt(BinaryCatalogueLoader.MAGIC)
+                .putInt(BinaryCatalogueLoader.VERSION)
+                .putInt(starCount)
+                .putInt(nameHeapSize);
+        for (Star star : stars) {
+            buffer.putDouble(star.equatorialPos().ra());
+        }
+        for (Star star : stars) {
+            buffer.putDouble(star.equatorialPos().dec());
+        }
+        for (Star star : stars) {
+            buffer.putFloat((float) star.magnitude());
+        }
+        for (Star star : stars) {
+            buffer.putFloat(star.colorIndex());
+        }
+        for (Star star : stars) {
+            buffer.putFloat(star.properMotionRa());
+        }
+        for (Star star : stars) {
+            buffer.putFloat(star.properMotionDec());
+        }
+        for (Star star : stars) {
+            buffer.putInt(star.hipparcosId());
+        }
+        int nameOffset = 0;
+        for (byte[] name : names) {
+            buffer.putInt(nameOffset);
+            nameOffset += name.length;
+        }
+        buffer.putInt(nameOffset);
+        for (byte[] name : names) {
+            buffer.put(name);
+        }
+
+        outputStream.write(buffer.array(), 0, buffer.position());
+    }
+}
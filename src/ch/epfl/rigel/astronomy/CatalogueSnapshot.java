@@ -0,0 +1,433 @@
+package ch.epfl.rigel.astronomy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * A snapshot of a built star catalogue, stored in a file for the catalogue not to be parsed again at every start
+ * <p>
+ * The file is made of a header (magic number, version, checksum of the sources of the catalogue, number of stars,
+ * size of the name heap, number of asterisms, number of stars of all the asterisms, 1 if the stars are sorted by
+ * magnitude and 0 otherwise), followed by the columns of the star table (see {@link StarTable#writeTo(ByteBuffer)}),
+ * the original indices of the stars if they are sorted by magnitude, the asterism offsets and the indices of the stars
+ * of the asterisms (see {@link StarCatalogue#asterismOffsets()})
+ *
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+public final class CatalogueSnapshot {
+
+    static final int MAGIC = 0x52474C53; // "RGLS"
+    static final int VERSION = 3;
+    static final int HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES + 5 * Integer.BYTES;
+
+    /**
+     * Private constructor of the snapshot (for it to be non-instantiable)
+     */
+    private CatalogueSnapshot() {
+    }
+
+    /**
+     * Return the catalogue of the snapshot file if it was built from the given sources, otherwise build the
+     * catalogue from the sources (the stars with the given loader, the asterisms with {@link AsterismLoader})
+     * and (re)write the snapshot file (a snapshot of a catalogue sorted differently is also rebuilt)
+     * <p>
+     * The snapshot being only a cache, a snapshot file which cannot be written is ignored
+     *
+     * @param snapshotFile      : the path of the snapshot file
+     * @param starsSource       : the content of the star catalogue
+     * @param starsLoader       : the loader of the star catalogue
+     * @param asterismsSource   : the content of the asterism catalogue
+     * @param sortedByMagnitude : true if the stars of the catalogue must be sorted by magnitude
+     * @return : the catalogue built from the given sources
+     * @throws : IOException in case of an input or output error while loading the sources
+     */
+    public static StarCatalogue loadOrBuild(Path snapshotFile, byte[] starsSource, StarCatalogue.Loader starsLoader,
+                                            byte[] asterismsSource, boolean sortedByMagnitude) throws IOException {
+        return loadOrBuild(snapshotFile, starsSource, starsLoader, asterismsSource, sortedByMagnitude, 0, null);
+    }
+
+    /**
+     * Return the catalogue of the snapshot file if it was built from the given sources, otherwise build the
+     * catalogue from the sources (see {@link #loadOrBuild(Path, byte[], StarCatalogue.Loader, byte[], boolean)})
+     * <p>
+     * The catalogue of the bright stars is given to the consumer before the whole catalogue is returned, if the
+     * catalogue is sorted by magnitude: before the other stars are read from the snapshot (see
+     * {@link #read(ByteBuffer, long, boolean, double, Consumer)}), or before the snapshot is written when the
+     * catalogue is built from its sources
+     *
+     * @param snapshotFile       : the path of the snapshot file
+     * @param starsSource        : the content of the star catalogue
+     * @param starsLoader        : the loader of the star catalogue
+     * @param asterismsSource    : the content of the asterism catalogue
+     * @param sortedByMagnitude  : true if the stars of the catalogue must be sorted by magnitude
+     * @param brightMaxMagnitude : the maximal magnitude of the bright stars
+     * @param brightConsumer     : the consumer of the catalogue of the bright stars (can be null)
+     * @return : the catalogue built from the given sources
+     * @throws : IOException in case of an input or output error while loading the sources
+     */
+    public static StarCatalogue loadOrBuild(Path snapshotFile, byte[] starsSource, StarCatalogue.Loader starsLoader,
+                                            byte[] asterismsSource, boolean sortedByMagnitude,
+                                            double brightMaxMagnitude, Consumer<StarCatalogue> brightConsumer)
+            throws IOException {
+        return loadOrBuild(snapshotFile, checksum(ByteBuffer.wrap(starsSource), ByteBuffer.wrap(asterismsSource)),
+                builder -> builder.loadFrom(new ByteArrayInputStream(starsSource), starsLoader),
+                asterismsSource, sortedByMagnitude, brightMaxMagnitude, brightConsumer);
+    }
+
+    /**
+     * Return the catalogue of the snapshot file if it was built from the given sources, otherwise build the
+     * catalogue from the sources (the stars of the binary catalogue file with {@link BinaryCatalogueLoader},
+     * the asterisms with {@link AsterismLoader}) and (re)write the snapshot file
+     * <p>
+     * The binary catalogue is memory-mapped, both for its checksum and for the build of the catalogue
+     *
+     * @param snapshotFile      : the path of the snapshot file
+     * @param binaryStarsFile   : the path of the binary star catalogue (see {@link BinaryCatalogueWriter})
+     * @param asterismsSource   : the content of the asterism catalogue
+     * @param sortedByMagnitude : true if the stars of the catalogue must be sorted by magnitude
+     * @return : the catalogue built from the given sources
+     * @throws : IOException in case of an input or output error while loading the sources
+     */
+    public static StarCatalogue loadOrBuild(Path snapshotFile, Path binaryStarsFile, byte[] asterismsSource,
+                                            boolean sortedByMagnitude) throws IOException {
+        return loadOrBuild(snapshotFile, binaryStarsFile, asterismsSource, sortedByMagnitude, 0, null);
+    }
+
+    /**
+     * Return the catalogue of the snapshot file if it was built from the given sources, otherwise build the
+     * catalogue from the sources (see {@link #loadOrBuild(Path, Path, byte[], boolean)})
+     * <p>
+     * The catalogue of the bright stars is given to the consumer before the whole catalogue is returned, if the
+     * catalogue is sorted by magnitude: before the other stars are read from the snapshot (see
+     * {@link #read(ByteBuffer, long, boolean, double, Consumer)}), or before the snapshot is written when the
+     * catalogue is built from its sources
+     *
+     * @param snapshotFile       : the path of the snapshot file
+     * @param binaryStarsFile    : the path of the binary star catalogue (see {@link BinaryCatalogueWriter})
+     * @param asterismsSource    : the content of the asterism catalogue
+     * @param sortedByMagnitude  : true if the stars of the catalogue must be sorted by magnitude
+     * @param brightMaxMagnitude : the maximal magnitude of the bright stars
+     * @param brightConsumer     : the consumer of the catalogue of the bright stars (can be null)
+     * @return : the catalogue built from the given sources
+     * @throws : IOException in case of an input or output error while loading the sources
+     */
+    public static StarCatalogue loadOrBuild(Path snapshotFile, Path binaryStarsFile, byte[] asterismsSource,
+                                            boolean sortedByMagnitude, double brightMaxMagnitude,
+                                            Consumer<StarCatalogue> brightConsumer) throws IOException {
+        ByteBuffer starsSource = BinaryCatalogueLoader.map(binaryStarsFile);
+        return loadOrBuild(snapshotFile, checksum(starsSource, ByteBuffer.wrap(asterismsSource)),
+                builder -> BinaryCatalogueLoader.INSTANCE.load(binaryStarsFile, builder),
+                asterismsSource, sortedByMagnitude, brightMaxMagnitude, brightConsumer);
+    }
+
+    /**
+     * Return the catalogue of the snapshot file if its checksum is the given one, otherwise build the catalogue
+     * and (re)write the snapshot file
+     * <p>
+     * The snapshot file is memory-mapped, for the bright stars to be read without reading the whole file (it is
+     * replaced, never rewritten in place, for the catalogues read from it to stay valid)
+     *
+     * @param snapshotFile       : the path of the snapshot file
+     * @param checksum           : the checksum of the sources of the catalogue
+     * @param starsLoading       : the loading of the stars into the catalogue under construction
+     * @param asterismsSource    : the content of the asterism catalogue
+     * @param sortedByMagnitude  : true if the stars of the catalogue must be sorted by magnitude
+     * @param brightMaxMagnitude : the maximal magnitude of the bright stars
+     * @param brightConsumer     : the consumer of the catalogue of the bright stars (can be null)
+     * @return : the catalogue built from the given sources
+     * @throws : IOException in case of an input or output error while loading the sources
+     */
+    private static StarCatalogue loadOrBuild(Path snapshotFile, long checksum, StarsLoading starsLoading,
+                                             byte[] asterismsSource, boolean sortedByMagnitude,
+                                             double brightMaxMagnitude, Consumer<StarCatalogue> brightConsumer)
+            throws IOException {
+        if (Files.isRegularFile(snapshotFile) && Files.isReadable(snapshotFile)) {
+            Optional<StarCatalogue> catalogue = read(BinaryCatalogueLoader.map(snapshotFile), checksum,
+                    sortedByMagnitude, brightMaxMagnitude, brightConsumer);
+            if (catalogue.isPresent()) {
+                return catalogue.get();
+            }
+        }
+
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        starsLoading.loadInto(builder);
+        builder.loadFrom(new ByteArrayInputStream(asterismsSource), AsterismLoader.INSTANCE);
+        if (sortedByMagnitude) {
+            builder.sortedByMagnitude();
+        }
+        StarCatalogue catalogue = builder.build();
+        //the bright stars are published before the snapshot is written
+        if (sortedByMagnitude && brightConsumer != null) {
+            brightConsumer.accept(catalogue.brighterThan(brightMaxMagnitude));
+        }
+        Path temporaryFile = null;
+        try {
+            //written next to the snapshot, then moved, for a partially written snapshot to never be read
+            Path directory = snapshotFile.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            temporaryFile = Files.createTempFile(directory, snapshotFile.getFileName().toString(), ".tmp");
+            Files.write(temporaryFile, write(catalogue, checksum).array());
+            Files.move(temporaryFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            //the catalogue is built again at the next start, the temporary file is not left behind
+            if (temporaryFile != null) {
+                try {
+                    Files.deleteIfExists(temporaryFile);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        return catalogue;
+    }
+
+    /**
+     * Return the checksum (CRC-32) of the given sources, one after the other
+     *
+     * @param sources : the contents of the sources
+     * @return : the checksum of the given sources
+     */
+    static long checksum(byte[]... sources) {
+        ByteBuffer[] buffers = new ByteBuffer[sources.length];
+        for (int i = 0; i < sources.length; ++i) {
+            buffers[i] = ByteBuffer.wrap(sources[i]);
+        }
+        return checksum(buffers);
+    }
+
+    /**
+     * Return the checksum (CRC-32) of the given sources, one after the other (the positions of the buffers
+     * are left unchanged)
+     *
+     * @param sources : the contents of the sources (from their position to their limit)
+     * @return : the checksum of the given sources
+     */
+    static long checksum(ByteBuffer... sources) {
+        CRC32 crc = new CRC32();
+        for (ByteBuffer source : sources) {
+            crc.update(ByteBuffer.allocate(Integer.BYTES).putInt(0, source.remaining()));
+            crc.update(source.duplicate());
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Return a buffer containing the snapshot of the given catalogue (from 0 to its position)
+     *
+     * @param catalogue : the catalogue
+     * @param checksum  : the checksum of the sources of the catalogue
+     * @return : a buffer containing the snapshot of the catalogue
+     */
+    static ByteBuffer write(StarCatalogue catalogue, long checksum) {
+        StarTable starTable = catalogue.starTable();
+        IntBuffer asterismOffsets = catalogue.asterismOffsets();
+        IntBuffer asterismStarIndices = catalogue.asterismStarIndices();
+        int originalIndexCount = catalogue.isSortedByMagnitude() ? starTable.size() : 0;
+        long bytes = HEADER_BYTES + StarTable.columnBytes(starTable.size(), starTable.nameHeapSize())
+                + (long) (originalIndexCount + asterismOffsets.remaining() + asterismStarIndices.remaining())
+                * Integer.BYTES;
+
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(bytes));
+        buffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putLong(checksum)
+                .putInt(starTable.size())
+                .putInt(starTable.nameHeapSize())
+                .putInt(catalogue.asterismCount())
+                .putInt(asterismStarIndices.remaining())
+                .putInt(catalogue.isSortedByMagnitude() ? 1 : 0);
+        starTable.writeTo(buffer);
+        for (int i = 0; i < originalIndexCount; ++i) {
+            buffer.putInt(catalogue.originalIndexOf(i));
+        }
+        while (asterismOffsets.hasRemaining()) {
+            buffer.putInt(asterismOffsets.get());
+        }
+        while (asterismStarIndices.hasRemaining()) {
+            buffer.putInt(asterismStarIndices.get());
+        }
+        return buffer;
+    }
+
+    /**
+     * Return the catalogue contained in the given buffer, if it is a valid snapshot of sources having
+     * the given checksum and sorted as requested
+     *
+     * @param buffer            : the buffer containing the snapshot (from its position to its limit)
+     * @param checksum          : the checksum of the sources of the expected catalogue
+     * @param sortedByMagnitude : true if the stars of the expected catalogue are sorted by magnitude
+     * @return : the catalogue of the snapshot, or nothing if the snapshot is invalid or stale
+     */
+    static Optional<StarCatalogue> read(ByteBuffer buffer, long checksum, boolean sortedByMagnitude) {
+        return read(buffer, checksum, sortedByMagnitude, 0, null);
+    }
+
+    /**
+     * Return the catalogue contained in the given buffer, if it is a valid snapshot of sources having
+     * the given checksum and sorted as requested
+     * <p>
+     * If the stars are sorted by magnitude, the catalogue of the bright stars (the first stars of the snapshot,
+     * and the asterisms made only of them, sorted by magnitude) is given to the consumer before the other stars
+     * are checked and the whole catalogue is built: the consumer can receive the bright stars of a snapshot
+     * rejected afterwards, they are then valid stars of a stale catalogue
+     *
+     * @param buffer             : the buffer containing the snapshot (from its position to its limit)
+     * @param checksum           : the checksum of the sources of the expected catalogue
+     * @param sortedByMagnitude  : true if the stars of the expected catalogue are sorted by magnitude
+     * @param brightMaxMagnitude : the maximal magnitude of the bright stars
+     * @param brightConsumer     : the consumer of the catalogue of the bright stars (can be null)
+     * @return : the catalogue of the snapshot, or nothing if the snapshot is invalid or stale
+     */
+    static Optional<StarCatalogue> read(ByteBuffer buffer, long checksum, boolean sortedByMagnitude,
+                                        double brightMaxMagnitude, Consumer<StarCatalogue> brightConsumer) {
+        if (buffer.remaining() < HEADER_BYTES
+                || buffer.getInt() != MAGIC
+                || buffer.getInt() != VERSION
+                || buffer.getLong() != checksum) {
+            return Optional.empty();
+        }
+        int starCount = buffer.getInt();
+        int nameHeapSize = buffer.getInt();
+        int asterismCount = buffer.getInt();
+        int asterismStarCount = buffer.getInt();
+        boolean sorted = buffer.getInt() == 1;
+        int originalIndexCount = sorted ? starCount : 0;
+        if (starCount < 0 || nameHeapSize < 0 || asterismCount < 0 || asterismStarCount < 0
+                || sorted != sortedByMagnitude
+                || buffer.remaining() != StarTable.columnBytes(starCount, nameHeapSize)
+                + (originalIndexCount + asterismCount + 1L + asterismStarCount) * Integer.BYTES) {
+            return Optional.empty();
+        }
+
+        //views of the columns and of the indices, nothing is read yet
+        StarTable starTable = StarTable.readFrom(buffer, starCount, nameHeapSize);
+        IntBuffer originalIndexBuffer = buffer.asIntBuffer();
+        IntBuffer asterismOffsets = buffer.position(buffer.position() + originalIndexCount * Integer.BYTES)
+                .asIntBuffer();
+        IntBuffer asterismStarIndices = buffer.position(buffer.position() + (asterismCount + 1) * Integer.BYTES)
+                .asIntBuffer();
+        if (asterismOffsets.get(0) != 0 || asterismOffsets.get(asterismCount) != asterismStarCount) {
+            return Optional.empty();
+        }
+        for (int a = 0; a < asterismCount; ++a) {
+            if (asterismOffsets.get(a) >= asterismOffsets.get(a + 1)) {
+                return Optional.empty();
+            }
+        }
+        for (int i = 0; i < asterismStarCount; ++i) {
+            if (asterismStarIndices.get(i) < 0 || asterismStarIndices.get(i) >= starCount) {
+                return Optional.empty();
+            }
+        }
+
+        //the bright stars are the first ones, they are checked and published before the others are read
+        if (sortedByMagnitude && brightConsumer != null) {
+            StarTable brightTable = starTable.prefix(starTable.starCountBrighterThan(brightMaxMagnitude));
+            int[] brightOriginalIndices = ranks(originalIndexBuffer, brightTable.size());
+            if (brightTable.hasValidStars() && brightOriginalIndices != null) {
+                brightConsumer.accept(new StarCatalogue(brightTable, brightOriginalIndices,
+                        asterisms(brightTable, asterismCount, asterismOffsets, asterismStarIndices)));
+            }
+        }
+
+        //the stars are checked in the columns, without being created (only the stars of the asterisms are)
+        if (!starTable.hasValidStars()) {
+            return Optional.empty();
+        }
+        int[] originalIndices = null;
+        if (sortedByMagnitude) {
+            originalIndices = new int[starCount];
+            originalIndexBuffer.get(originalIndices);
+            //the original indices must be a permutation of the indices of the stars
+            boolean[] seen = new boolean[starCount];
+            for (int originalIndex : originalIndices) {
+                if (originalIndex < 0 || originalIndex >= starCount || seen[originalIndex]) {
+                    return Optional.empty();
+                }
+                seen[originalIndex] = true;
+            }
+        }
+        return Optional.of(new StarCatalogue(starTable, originalIndices,
+                asterisms(starTable, asterismCount, asterismOffsets, asterismStarIndices)));
+    }
+
+    /**
+     * Return the asterisms made only of stars of the given table, the indices of their stars being checked
+     *
+     * @param starTable           : the table containing the stars (the first ones of the snapshot)
+     * @param asterismCount       : the number of asterisms of the snapshot
+     * @param asterismOffsets     : the asterism offsets of the snapshot
+     * @param asterismStarIndices : the indices of the stars of the asterisms of the snapshot
+     * @return : the asterisms made only of stars of the table
+     */
+    private static List<Asterism> asterisms(StarTable starTable, int asterismCount, IntBuffer asterismOffsets,
+                                            IntBuffer asterismStarIndices) {
+        List<Asterism> asterisms = new ArrayList<>(asterismCount);
+        for (int a = 0; a < asterismCount; ++a) {
+            List<Star> starsOfAsterism = new ArrayList<>();
+            for (int i = asterismOffsets.get(a); i < asterismOffsets.get(a + 1) && starsOfAsterism != null; ++i) {
+                int index = asterismStarIndices.get(i);
+                if (index < starTable.size()) {
+                    starsOfAsterism.add(starTable.star(index));
+                } else {
+                    starsOfAsterism = null;
+                }
+            }
+            if (starsOfAsterism != null) {
+                asterisms.add(new Asterism(starsOfAsterism));
+            }
+        }
+        return asterisms;
+    }
+
+    /**
+     * Return the rank of each of the first given values among them (the original indices of the first stars,
+     * in the order they had among themselves), or null if two of them are equal
+     *
+     * @param values : the values
+     * @param count  : the number of values
+     * @return : the rank of each value among the given values, or null if two of them are equal
+     */
+    private static int[] ranks(IntBuffer values, int count) {
+        int[] sortedValues = new int[count];
+        for (int i = 0; i < count; ++i) {
+            sortedValues[i] = values.get(i);
+        }
+        Arrays.sort(sortedValues);
+        for (int i = 1; i < count; ++i) {
+            if (sortedValues[i] == sortedValues[i - 1]) {
+                return null;
+            }
+        }
+        int[] ranks = new int[count];
+        for (int i = 0; i < count; ++i) {
+            ranks[i] = Arrays.binarySearch(sortedValues, values.get(i));
+        }
+        return ranks;
+    }
+
+    /**
+     * The loading of the stars of a catalogue from their source
+     */
+    @FunctionalInterface
+    private interface StarsLoading {
+        /**
+         * Load the stars of the source into the catalogue under construction
+         *
+         * @param builder : the catalogue under construction
+         * @throws : IOException in case of an input or output error
+         */
+        void loadInto(StarCatalogue.Builder builder) throws IOException;
+    }
+}
@@ -0,0 +1,48 @@
+package ch.epfl.rigel.astronomy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Utilities for the input streams of the catalogues
+ *
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+final class CatalogueStreams {
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int GZIP_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Private constructor (for the class to be non-instantiable)
+     */
+    private CatalogueStreams() {
+    }
+
+    /**
+     * Return a stream of the decompressed content of the given stream if it is gzip-compressed (recognised by
+     * its first two bytes), decompressed as it is read, otherwise a stream of the content of the given stream
+     * <p>
+     * Closing the returned stream closes the given one
+     *
+     * @param inputStream : the input stream, possibly gzip-compressed
+     * @return : a stream of the (decompressed) content of the given stream
+     * @throws IOException : in case of an input or output error
+     */
+    static InputStream decompressed(InputStream inputStream) throws IOException {
+        PushbackInputStream input = new PushbackInputStream(inputStream, 2);
+        int first = input.read();
+        if (first < 0) {
+            return input;
+        }
+        int second = input.read();
+        if (second >= 0) {
+            input.unread(second);
+        }
+        input.unread(first);
+        return ((second << 8 | first) == GZIP_MAGIC) ? new GZIPInputStream(input, GZIP_BUFFER_SIZE) : input;
+    }
+}
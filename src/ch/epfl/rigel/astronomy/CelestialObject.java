@@ -36,6 +36,23 @@ public abstract class CelestialObject {
         this.magnitude = magnitude;
     }
 
+    /**
+     * Constructor of a celestial object whose name is given by the subclass, which must override {@link #name()}
+     *
+     * @param equatorialPos : the equatorial position of the object
+     * @param angularSize   : the angular size of the object
+     * @param magnitude     : the magnitude of the object
+     * @throws : IllegalArgumentException if the angular size is negative
+     * @throws : NullPointerException if the equatorial position is null
+     */
+    CelestialObject(EquatorialCoordinates equatorialPos, float angularSize, float magnitude) {
+        Preconditions.checkArgument(angularSize >= 0);
+        this.name = null;
+        this.equatorialPos = Objects.requireNonNull(equatorialPos);
+        this.angularSize = angularSize;
+        this.magnitude = magnitude;
+    }
+
     /**
      * Return the name of the celestial object
      *
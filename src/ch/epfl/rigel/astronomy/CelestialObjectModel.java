@@ -17,4 +17,16 @@ public interface CelestialObjectModel<O> {
      * @return : the modeled object for the number of days after J2010
      */
     O at(double daysSinceJ2010, EclipticToEquatorialConversion eclipticToEquatorialConversion);
+
+    /**
+     * Return the modeled object at the time of the given context, the quantities shared by the models being
+     * taken from the context instead of being computed again (by default, only the number of days after J2010
+     * and the conversion are taken from it)
+     *
+     * @param context : the quantities shared by the models at a given time
+     * @return : the modeled object at the time of the context
+     */
+    default O at(EphemerisContext context) {
+        return at(context.daysSinceJ2010(), context.eclipticToEquatorialConversion());
+    }
 }
@@ -0,0 +1,437 @@
+package ch.epfl.rigel.astronomy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * A scanner of comma separated values working directly on the bytes of the input, line by line and field by field
+ * <p>
+ * The numbers are parsed in place and strings are only created on demand, so that walking a line allocates nothing.
+ * Empty lines are skipped.
+ *
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+final class CsvScanner {
+
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    private static final byte SEPARATOR = ',';
+    private static final byte NEW_LINE = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private static final int MAX_FAST_PATH_DIGITS = 15;
+    private static final int MAX_DIGITS = 19;
+    private static final double[] EXACT_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    private static final int MIN_POWER_OF_TEN = -342;
+    private static final int MAX_POWER_OF_TEN = 308;
+    private static final long[] POWERS_OF_FIVE_HIGH = new long[MAX_POWER_OF_TEN - MIN_POWER_OF_TEN + 1];
+    private static final long[] POWERS_OF_FIVE_LOW = new long[MAX_POWER_OF_TEN - MIN_POWER_OF_TEN + 1];
+
+    static {
+        BigInteger twoTo128 = BigInteger.ONE.shiftLeft(128);
+        for (int q = MIN_POWER_OF_TEN; q <= MAX_POWER_OF_TEN; ++q) {
+            BigInteger power;
+            if (q >= 0) {
+                power = BigInteger.valueOf(5).pow(q);
+                int bits = power.bitLength();
+                power = (bits < 128) ? power.shiftLeft(128 - bits) : power.shiftRight(bits - 128);
+            } else {
+                BigInteger inversePower = BigInteger.valueOf(5).pow(-q);
+                int z = inversePower.bitLength();
+                int b = (q >= -27) ? z + 127 : 2 * z + 128;
+                power = BigInteger.ONE.shiftLeft(b).divide(inversePower).add(BigInteger.ONE);
+                while (power.compareTo(twoTo128) >= 0) {
+                    power = power.shiftRight(1);
+                }
+            }
+            POWERS_OF_FIVE_HIGH[q - MIN_POWER_OF_TEN] = power.shiftRight(64).longValue();
+            POWERS_OF_FIVE_LOW[q - MIN_POWER_OF_TEN] = power.longValue();
+        }
+    }
+
+    private final InputStream inputStream;
+    private byte[] buffer;
+    private int limit;
+    private boolean endOfInput;
+
+    private int lineEnd, nextLineStart;
+    private int fieldStart, fieldEnd, column;
+
+    /**
+     * Constructor of a scanner reading the given stream (not closed by the scanner)
+     *
+     * @param inputStream : the input stream
+     */
+    CsvScanner(InputStream inputStream) {
+        this.inputStream = inputStream;
+        buffer = new byte[DEFAULT_BUFFER_SIZE];
+        limit = 0;
+        nextLineStart = 0;
+        endOfInput = false;
+    }
+
+    /**
+     * Constructor of a scanner reading the bytes of the given array between from (inclusive) and to (exclusive)
+     *
+     * @param bytes : the bytes
+     * @param from  : the index of the first byte
+     * @param to    : the index after the last byte
+     */
+    CsvScanner(byte[] bytes, int from, int to) {
+        inputStream = null;
+        buffer = bytes;
+        limit = to;
+        nextLineStart = from;
+        endOfInput = true;
+    }
+
+    /**
+     * Move to the first field of the next non empty line
+     *
+     * @return : false if there is no line left, true otherwise
+     * @throws IOException : in case of an input or output error
+     */
+    boolean nextLine() throws IOException {
+        do {
+            int lineStart = nextLineStart;
+            int newLine = indexOf(NEW_LINE, lineStart, limit);
+            while (newLine < 0 && !endOfInput) {
+                lineStart = fill(lineStart);
+                newLine = indexOf(NEW_LINE, lineStart, limit);
+            }
+            if (newLine < 0) {
+                if (lineStart == limit) {
+                    return false;
+                }
+                newLine = limit;
+            }
+            nextLineStart = Math.min(newLine + 1, limit);
+            lineEnd = (newLine > lineStart && buffer[newLine - 1] == CARRIAGE_RETURN) ? newLine - 1 : newLine;
+            fieldStart = lineStart;
+        } while (fieldStart == lineEnd);
+
+        fieldEnd = fieldEnd(fieldStart);
+        column = 0;
+        return true;
+    }
+
+    /**
+     * Move to the next field of the current line
+     *
+     * @return : false if the current field is the last one of the line, true otherwise
+     */
+    boolean nextField() {
+        if (fieldEnd >= lineEnd) {
+            return false;
+        }
+        fieldStart = fieldEnd + 1;
+        fieldEnd = fieldEnd(fieldStart);
+        ++column;
+        return true;
+    }
+
+    /**
+     * Move forward to the field of the given index of the current line (the field is empty if the line is shorter)
+     *
+     * @param index : the index of the field (not smaller than the index of the current field)
+     * @throws IllegalArgumentException : if the field of the given index is before the current field
+     */
+    void column(int index) {
+        if (index < column) {
+            throw new IllegalArgumentException();
+        }
+        while (column < index) {
+            if (!nextField()) {
+                fieldStart = lineEnd;
+                column = index;
+            }
+        }
+    }
+
+    /**
+     * Return true if the current field is empty or only contains white spaces
+     *
+     * @return : true if the current field is empty or only contains white spaces
+     */
+    boolean isBlank() {
+        for (int i = fieldStart; i < fieldEnd; ++i) {
+            if (buffer[i] > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the current field as a string
+     *
+     * @return : the current field as a string
+     */
+    String stringValue() {
+        return new String(buffer, fieldStart, fieldEnd - fieldStart, US_ASCII);
+    }
+
+    /**
+     * Append the characters of the current field to the given builder
+     *
+     * @param stringBuilder : the builder
+     * @return : the builder
+     */
+    StringBuilder appendTo(StringBuilder stringBuilder) {
+        for (int i = fieldStart; i < fieldEnd; ++i) {
+            stringBuilder.append((char) buffer[i]);
+        }
+        return stringBuilder;
+    }
+
+    /**
+     * Append the bytes of the current field to the given name heap
+     *
+     * @param nameHeap : the name heap
+     * @return : the name heap
+     */
+    NameHeap appendTo(NameHeap nameHeap) {
+        return nameHeap.append(buffer, fieldStart, fieldEnd - fieldStart);
+    }
+
+    /**
+     * Return the value of the current field parsed as an integer
+     *
+     * @param defaultValue : the value returned if the field is blank
+     * @return : the value of the current field parsed as an integer
+     * @throws NumberFormatException : if the field is not an integer
+     */
+    int intValue(int defaultValue) {
+        if (isBlank()) {
+            return defaultValue;
+        }
+        int i = fieldStart;
+        boolean negative = buffer[i] == '-';
+        if (negative || buffer[i] == '+') {
+            ++i;
+        }
+        long value = 0;
+        if (i == fieldEnd || fieldEnd - i > 10) {
+            return Integer.parseInt(stringValue());
+        }
+        for (; i < fieldEnd; ++i) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return Integer.parseInt(stringValue());
+            }
+            value = value * 10 + digit;
+        }
+        value = negative ? -value : value;
+        if (value != (int) value) {
+            return Integer.parseInt(stringValue());
+        }
+        return (int) value;
+    }
+
+    /**
+     * Return the value of the current field parsed as a double, rounded exactly like {@link Double#parseDouble}
+     *
+     * @param defaultValue : the value returned if the field is blank
+     * @return : the value of the current field parsed as a double
+     * @throws NumberFormatException : if the field is not a number
+     */
+    double doubleValue(double defaultValue) {
+        if (isBlank()) {
+            return defaultValue;
+        }
+        int i = fieldStart;
+        boolean negative = buffer[i] == '-';
+        if (negative || buffer[i] == '+') {
+            ++i;
+        }
+
+        long mantissa = 0;
+        int digits = 0, exponent = 0, digitsStart = i;
+        boolean pointSeen = false;
+        for (; i < fieldEnd; ++i) {
+            byte b = buffer[i];
+            if (b >= '0' && b <= '9') {
+                if (digits > 0 || b != '0') {
+                    if (++digits > MAX_DIGITS) {
+                        return Double.parseDouble(stringValue());
+                    }
+                    mantissa = mantissa * 10 + (b - '0');
+                }
+                if (pointSeen) {
+                    --exponent;
+                }
+            } else if (b == '.' && !pointSeen) {
+                pointSeen = true;
+            } else {
+                break;
+            }
+        }
+        if (i == digitsStart || (pointSeen && i == digitsStart + 1)) {
+            return Double.parseDouble(stringValue());
+        }
+        if (i < fieldEnd) {
+            if ((buffer[i] | 0x20) != 'e') {
+                return Double.parseDouble(stringValue());
+            }
+            ++i;
+            boolean negativeExponent = i < fieldEnd && buffer[i] == '-';
+            if (i < fieldEnd && (negativeExponent || buffer[i] == '+')) {
+                ++i;
+            }
+            if (i == fieldEnd || fieldEnd - i > 4) {
+                return Double.parseDouble(stringValue());
+            }
+            int explicitExponent = 0;
+            for (; i < fieldEnd; ++i) {
+                int digit = buffer[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    return Double.parseDouble(stringValue());
+                }
+                explicitExponent = explicitExponent * 10 + digit;
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        double value;
+        if (mantissa == 0) {
+            value = 0;
+        } else if (digits <= MAX_FAST_PATH_DIGITS && Math.abs(exponent) < EXACT_POWERS_OF_TEN.length) {
+            //both the mantissa and the power of ten are exact doubles, so a single rounding occurs
+            value = (exponent < 0) ?
+                    mantissa / EXACT_POWERS_OF_TEN[-exponent] : mantissa * EXACT_POWERS_OF_TEN[exponent];
+        } else {
+            value = eiselLemire(mantissa, exponent);
+            if (Double.isNaN(value)) {
+                return Double.parseDouble(stringValue());
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Return the double closest to mantissa * 10^exponent using the algorithm of Eisel and Lemire
+     * (see D. Lemire, "Number Parsing at a Gigabyte per Second", 2021)
+     *
+     * @param mantissa : the decimal mantissa (non zero, read as an unsigned number of at most 19 digits)
+     * @param exponent : the decimal exponent
+     * @return : the double closest to mantissa * 10^exponent, or NaN if the result is subnormal or infinite, or if
+     * the 128 bits approximation of the product cannot decide the rounding
+     */
+    private static double eiselLemire(long mantissa, int exponent) {
+        if (exponent < MIN_POWER_OF_TEN || exponent > MAX_POWER_OF_TEN) {
+            return Double.NaN;
+        }
+        int index = exponent - MIN_POWER_OF_TEN;
+        int leadingZeros = Long.numberOfLeadingZeros(mantissa);
+        long w = mantissa << leadingZeros;
+
+        long high = unsignedMultiplyHigh(w, POWERS_OF_FIVE_HIGH[index]);
+        long low = w * POWERS_OF_FIVE_HIGH[index];
+        if ((high & 0x1FF) == 0x1FF) {
+            long lowHigh = unsignedMultiplyHigh(w, POWERS_OF_FIVE_LOW[index]);
+            long sum = low + lowHigh;
+            if (Long.compareUnsigned(sum, low) < 0) {
+                ++high;
+            }
+            //the product is still inexact in the bits deciding the rounding: the slow path decides
+            if ((high & 0x1FF) == 0x1FF && sum + 1 == 0) {
+                return Double.NaN;
+            }
+            low = sum;
+        }
+
+        int upperBit = (int) (high >>> 63);
+        int shift = upperBit + 9;
+        long significand = high >>> shift;
+        int binaryExponent = ((217706 * exponent) >> 16) + 63 + upperBit - leadingZeros + 1023;
+        if (binaryExponent <= 0) {
+            return Double.NaN;
+        }
+        if (Long.compareUnsigned(low, 1) <= 0 && exponent >= -4 && exponent <= 23 && (significand & 3) == 1
+                && (significand << shift) == high) {
+            //exactly halfway between two doubles: round to even
+            significand &= ~1L;
+        }
+        significand += significand & 1;
+        significand >>>= 1;
+        if (significand >= (2L << 52)) {
+            significand = 1L << 52;
+            ++binaryExponent;
+        }
+        significand &= ~(1L << 52);
+        if (binaryExponent >= 0x7FF) {
+            return Double.NaN;
+        }
+        return Double.longBitsToDouble(((long) binaryExponent << 52) | significand);
+    }
+
+    /**
+     * Return the high 64 bits of the unsigned 128 bits product of a and b
+     *
+     * @param a : the first factor (unsigned)
+     * @param b : the second factor (unsigned)
+     * @return : the high 64 bits of the unsigned product
+     */
+    private static long unsignedMultiplyHigh(long a, long b) {
+        return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+    }
+
+    /**
+     * Return the index of the end of the field starting at the given index
+     *
+     * @param start : the index of the start of the field
+     * @return : the index of the end of the field (separator or end of line)
+     */
+    private int fieldEnd(int start) {
+        int separator = indexOf(SEPARATOR, start, lineEnd);
+        return (separator < 0) ? lineEnd : separator;
+    }
+
+    /**
+     * Return the index of the first occurrence of the byte between from (inclusive) and to (exclusive)
+     *
+     * @param b    : the byte
+     * @param from : the first index
+     * @param to   : the index after the last one
+     * @return : the index of the first occurrence of the byte, or -1 if there is none
+     */
+    private int indexOf(byte b, int from, int to) {
+        for (int i = from; i < to; ++i) {
+            if (buffer[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Move the bytes from keptStart to the start of the buffer (growing it if it is full)
+     * and read more bytes from the stream after them
+     *
+     * @param keptStart : the index of the first byte to keep
+     * @return : the new index of the first kept byte
+     * @throws IOException : in case of an input or output error
+     */
+    private int fill(int keptStart) throws IOException {
+        int kept = limit - keptStart;
+        if (kept == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        } else {
+            System.arraycopy(buffer, keptStart, buffer, 0, kept);
+        }
+        limit = kept;
+        int read = inputStream.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            endOfInput = true;
+        } else {
+            limit += read;
+        }
+        return 0;
+    }
+}
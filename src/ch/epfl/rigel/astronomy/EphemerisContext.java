@@ -0,0 +1,108 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EclipticToEquatorialConversion;
+
+import java.time.ZonedDateTime;
+
+/**
+ * The quantities shared by the models of the celestial objects at a given time, computed once for all the models
+ * (see {@link CelestialObjectModel#at(EphemerisContext)}): the number of days since J2010, the conversion from
+ * ecliptic to equatorial coordinates, the Sun, and the heliocentric position of the Earth
+ *
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+public final class EphemerisContext {
+
+    private final double daysSinceJ2010;
+    private final EclipticToEquatorialConversion eclipticToEquatorialConversion;
+    private final Sun sun;
+    private final double earthTrueAnomaly, earthLon, earthRadius;
+
+    /**
+     * Constructor of the context of the given time
+     *
+     * @param when : the time
+     */
+    public EphemerisContext(ZonedDateTime when) {
+        this(Epoch.J2010.daysUntil(when), new EclipticToEquatorialConversion(when));
+    }
+
+    /**
+     * Constructor of the context of the given number of days after J2010, with the given conversion
+     *
+     * @param daysSinceJ2010                 : the number of days after J2010 (can be negative)
+     * @param eclipticToEquatorialConversion : the conversion from ecliptic to equatorial coordinates at that time
+     */
+    public EphemerisContext(double daysSinceJ2010, EclipticToEquatorialConversion eclipticToEquatorialConversion) {
+        this.daysSinceJ2010 = daysSinceJ2010;
+        this.eclipticToEquatorialConversion = eclipticToEquatorialConversion;
+        sun = SunModel.SUN.at(daysSinceJ2010, eclipticToEquatorialConversion);
+        earthTrueAnomaly = PlanetModel.EARTH.trueAnomaly(daysSinceJ2010);
+        earthLon = PlanetModel.EARTH.heliocentricLon(earthTrueAnomaly);
+        earthRadius = PlanetModel.EARTH.radius(earthTrueAnomaly);
+    }
+
+    /**
+     * Return the number of days after J2010
+     *
+     * @return : the number of days after J2010
+     */
+    public double daysSinceJ2010() {
+        return daysSinceJ2010;
+    }
+
+    /**
+     * Return the conversion from ecliptic to equatorial coordinates
+     *
+     * @return : the conversion from ecliptic to equatorial coordinates
+     */
+    public EclipticToEquatorialConversion eclipticToEquatorialConversion() {
+        return eclipticToEquatorialConversion;
+    }
+
+    /**
+     * Return the obliquity of the ecliptic
+     *
+     * @return : the obliquity of the ecliptic (in radians)
+     */
+    public double obliquity() {
+        return eclipticToEquatorialConversion.obliquity();
+    }
+
+    /**
+     * Return the Sun
+     *
+     * @return : the Sun
+     */
+    public Sun sun() {
+        return sun;
+    }
+
+    /**
+     * Return the true anomaly of the Earth
+     *
+     * @return : the true anomaly of the Earth (in radians)
+     */
+    public double earthTrueAnomaly() {
+        return earthTrueAnomaly;
+    }
+
+    /**
+     * Return the heliocentric ecliptic longitude of the Earth
+     *
+     * @return : the heliocentric ecliptic longitude of the Earth (in radians, not normalized)
+     */
+    public double earthLon() {
+        return earthLon;
+    }
+
+    /**
+     * Return the distance between the Earth and the Sun
+     *
+     * @return : the distance between the Earth and the Sun (in UA)
+     */
+    public double earthRadius() {
+        return earthRadius;
+    }
+}
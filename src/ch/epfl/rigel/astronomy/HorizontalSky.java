@@ -0,0 +1,217 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EquatorialToHorizontalConversion;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.math.Angle;
+
+import java.nio.DoubleBuffer;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The sky seen at a given time from a given place, before its projection: the positions of the Sun, the Moon
+ * and the planets (computed by their models) and of the stars of a catalogue, in the horizontal frame
+ * <p>
+ * Everything which only depends on the time and the place is computed here once, for a change of the view
+ * (see {@link ObservedSky#ObservedSky(HorizontalSky, ch.epfl.rigel.coordinates.StereographicProjection)})
+ * to only project the positions again
+ * <p>
+ * The stars are rotated (and then projected by {@link ObservedSky}) in chunks by a {@link StarPartitioner},
+ * in parallel for the large catalogues if it is a parallel one
+ *
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+public final class HorizontalSky {
+
+    private static final List<PlanetModel> PLANET_MODELS = PlanetModel.ALL;
+
+    private final Sun sun;
+    private final Moon moon;
+    private final List<Planet> planets;
+    private final HorizontalCoordinates sunPosition, moonPosition;
+    private final List<HorizontalCoordinates> planetPositions;
+    private final StarCatalogue catalogue;
+    private final double[] starUnitVectors;
+    private final StarPartitioner partitioner;
+
+    /**
+     * Constructor of the sky seen at the given time from the given place, whose stars are computed sequentially
+     *
+     * @param when      : the observation time
+     * @param where     : the observation position
+     * @param catalogue : the catalogue containing the stars and asterisms (can be null)
+     */
+    public HorizontalSky(ZonedDateTime when, GeographicCoordinates where, StarCatalogue catalogue) {
+        this(when, where, catalogue, StarPartitioner.SEQUENTIAL);
+    }
+
+    /**
+     * Constructor of the sky seen at the given time from the given place, whose stars are computed in chunks
+     * by the given partitioner
+     *
+     * @param when        : the observation time
+     * @param where       : the observation position
+     * @param catalogue   : the catalogue containing the stars and asterisms (can be null)
+     * @param partitioner : the partitioner computing the stars (also used for their projection)
+     * @throws NullPointerException : if the partitioner is null
+     */
+    public HorizontalSky(ZonedDateTime when, GeographicCoordinates where, StarCatalogue catalogue,
+                         StarPartitioner partitioner) {
+        this.catalogue = catalogue;
+        this.partitioner = Objects.requireNonNull(partitioner);
+
+        EquatorialToHorizontalConversion equatorialToHorizontalConversion = new EquatorialToHorizontalConversion(when, where);
+
+        //quantities shared by the models (days since J2010, conversion, Sun, Earth), computed once for all of them
+        EphemerisContext context = new EphemerisContext(when);
+
+        //Sun
+        sun = SunModel.SUN.at(context);
+        sunPosition = equatorialToHorizontalConversion.apply(sun.equatorialPos());
+
+        //Moon
+        moon = MoonModel.MOON.at(context);
+        moonPosition = equatorialToHorizontalConversion.apply(moon.equatorialPos());
+
+        //Planets
+        List<Planet> planets = new ArrayList<>();
+        List<HorizontalCoordinates> planetPositions = new ArrayList<>();
+        for (PlanetModel p : PLANET_MODELS) {
+            if (!(p == PlanetModel.EARTH)) {
+                Planet planet = p.at(context);
+                planets.add(planet);
+                planetPositions.add(equatorialToHorizontalConversion.apply(planet.equatorialPos()));
+            }
+        }
+        this.planets = List.copyOf(planets);
+        this.planetPositions = List.copyOf(planetPositions);
+
+        //Stars: unit vectors (moved according to their proper motions since J2000 if the catalogue propagates them),
+        //rotated to the horizontal frame
+        if (catalogue == null) {
+            starUnitVectors = new double[0];
+        } else {
+            double[] r = equatorialToHorizontalConversion.rotationMatrix();
+            DoubleBuffer equatorial = catalogue.observedStarUnitVectors(when);
+            starUnitVectors = new double[equatorial.remaining()];
+            //each chunk only reads the buffer at absolute indices and writes its own part of the array
+            partitioner.forEachChunk(starUnitVectors.length / 3, (from, to) -> {
+                for (int v = 3 * from; v < 3 * to; v += 3) {
+                    double x = equatorial.get(v), y = equatorial.get(v + 1), z = equatorial.get(v + 2);
+                    starUnitVectors[v] = r[0] * x + r[1] * y + r[2] * z;
+                    starUnitVectors[v + 1] = r[3] * x + r[4] * y + r[5] * z;
+                    starUnitVectors[v + 2] = r[6] * x + r[7] * y + r[8] * z;
+                }
+            });
+        }
+    }
+
+    /**
+     * Return the sun
+     *
+     * @return : the sun
+     */
+    public Sun sun() {
+        return sun;
+    }
+
+    /**
+     * Return the moon
+     *
+     * @return : the moon
+     */
+    public Moon moon() {
+        return moon;
+    }
+
+    /**
+     * Return the (unmodifiable) list of the seven planets
+     *
+     * @return : the list of the seven planets
+     */
+    public List<Planet> planets() {
+        return planets;
+    }
+
+    /**
+     * Return the horizontal position of the sun
+     *
+     * @return : the horizontal position of the sun
+     */
+    public HorizontalCoordinates sunPosition() {
+        return sunPosition;
+    }
+
+    /**
+     * Return the horizontal position of the moon
+     *
+     * @return : the horizontal position of the moon
+     */
+    public HorizontalCoordinates moonPosition() {
+        return moonPosition;
+    }
+
+    /**
+     * Return the (unmodifiable) list of the horizontal positions of the seven planets, in the order of {@link #planets()}
+     *
+     * @return : the list of the horizontal positions of the seven planets
+     */
+    public List<HorizontalCoordinates> planetPositions() {
+        return planetPositions;
+    }
+
+    /**
+     * Return the catalogue containing the stars and asterisms of the sky
+     *
+     * @return : the catalogue containing the stars and asterisms of the sky (can be null)
+     */
+    public StarCatalogue catalogue() {
+        return catalogue;
+    }
+
+    /**
+     * Return the partitioner computing the stars of the sky
+     *
+     * @return : the partitioner computing the stars of the sky
+     */
+    public StarPartitioner partitioner() {
+        return partitioner;
+    }
+
+    /**
+     * Return the number of stars of the sky, which are all the stars of the catalogue
+     *
+     * @return : the number of stars of the sky
+     */
+    public int starCount() {
+        return starUnitVectors.length / 3;
+    }
+
+    /**
+     * Return a read-only view of the unit vectors of the stars in the horizontal frame (x towards the east,
+     * y towards the north, z towards the zenith), the coordinates of the star of index i being at indices 3i,
+     * 3i + 1 and 3i + 2
+     *
+     * @return : a read-only view of the unit vectors of the stars in the horizontal frame
+     */
+    public DoubleBuffer starUnitVectors() {
+        return DoubleBuffer.wrap(starUnitVectors).asReadOnlyBuffer();
+    }
+
+    /**
+     * Return the horizontal position of the star of the given index
+     *
+     * @param index : the index of the star in the catalogue
+     * @return : the horizontal position of the star
+     * @throws IndexOutOfBoundsException : if the index is not the one of a star of the sky
+     */
+    public HorizontalCoordinates starPosition(int index) {
+        Objects.checkIndex(index, starCount());
+        double x = starUnitVectors[3 * index], y = starUnitVectors[3 * index + 1], z = starUnitVectors[3 * index + 2];
+        return HorizontalCoordinates.of(Angle.normalizePositive(Math.atan2(x, y)), Math.asin(Math.max(-1, Math.min(1, z))));
+    }
+}
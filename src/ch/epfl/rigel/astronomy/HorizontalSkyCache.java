@@ -0,0 +1,176 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A cache of the skies seen at given times from given places (see {@link HorizontalSky}), for a time and a place
+ * seen again not to compute their sky again
+ * <p>
+ * Without tolerance, a sky is only shared by the calls at exactly the same time. With a tolerance, the times are
+ * rounded to a multiple of it and all the times rounded to the same one share the sky computed at the exact time
+ * of the first of them (which can thus differ from the time of a later call by up to the tolerance). The least
+ * recently used skies are evicted when the total number of their stars exceeds the capacity of the cache, the
+ * memory of a sky being mostly the vectors of its stars
+ *
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+public final class HorizontalSkyCache {
+
+    private final long maxStarCount;
+    private final long toleranceMillis;
+    private final StarPartitioner partitioner;
+    private final Map<Key, HorizontalSky> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedStarCount;
+    private long hitCount, missCount;
+
+    /**
+     * Constructor of an empty cache
+     *
+     * @param maxStarCount  : the maximal total number of stars of the cached skies (the last sky being kept
+     *                      even if it has more stars)
+     * @param timeTolerance : the duration to which the times are rounded (zero for the skies to be shared only at
+     *                      the same time, otherwise at least a millisecond)
+     * @param partitioner   : the partitioner computing the stars of the skies
+     * @throws IllegalArgumentException : if the capacity is negative, or if the tolerance is negative or
+     *                                  between zero and a millisecond
+     * @throws NullPointerException     : if the partitioner is null
+     */
+    public HorizontalSkyCache(long maxStarCount, Duration timeTolerance, StarPartitioner partitioner) {
+        Preconditions.checkArgument(maxStarCount >= 0 && (timeTolerance.isZero() || timeTolerance.toMillis() >= 1));
+        this.maxStarCount = maxStarCount;
+        this.toleranceMillis = timeTolerance.toMillis();
+        this.partitioner = Objects.requireNonNull(partitioner);
+    }
+
+    /**
+     * Return the sky seen from the given place at the given time, or at a time rounded to the same one if the cache
+     * has a tolerance, computed at the given time if it is not in the cache
+     *
+     * @param when      : the observation time
+     * @param where     : the observation position
+     * @param catalogue : the catalogue containing the stars and asterisms (can be null)
+     * @return : the sky seen from the given place at the given time (or at a time within the tolerance)
+     */
+    public synchronized HorizontalSky get(ZonedDateTime when, GeographicCoordinates where, StarCatalogue catalogue) {
+        Instant time = when.toInstant();
+        if (toleranceMillis > 0) {
+            time = Instant.ofEpochMilli(
+                    Math.floorDiv(time.toEpochMilli() + toleranceMillis / 2, toleranceMillis) * toleranceMillis);
+        }
+        Key key = new Key(time, where.lon(), where.lat(), catalogue);
+        HorizontalSky sky = cache.get(key);
+        if (sky != null) {
+            ++hitCount;
+            return sky;
+        }
+
+        ++missCount;
+        sky = new HorizontalSky(when, where, catalogue, partitioner);
+        cache.put(key, sky);
+        cachedStarCount += sky.starCount();
+
+        //eviction of the least recently used skies (first in the access order), the new sky excepted
+        Iterator<HorizontalSky> skies = cache.values().iterator();
+        while (cachedStarCount > maxStarCount && cache.size() > 1) {
+            cachedStarCount -= skies.next().starCount();
+            skies.remove();
+        }
+        return sky;
+    }
+
+    /**
+     * Remove from the cache the skies of the given catalogue, to be called when the catalogue is replaced
+     * (for the cache not to keep its skies, nor the catalogue itself)
+     *
+     * @param catalogue : the catalogue (can be null)
+     */
+    public synchronized void invalidate(StarCatalogue catalogue) {
+        Iterator<Map.Entry<Key, HorizontalSky>> entries = cache.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Key, HorizontalSky> entry = entries.next();
+            if (entry.getKey().catalogue == catalogue) {
+                cachedStarCount -= entry.getValue().starCount();
+                entries.remove();
+            }
+        }
+    }
+
+    /**
+     * Remove all the skies from the cache (the counters of hits and misses are kept)
+     */
+    public synchronized void clear() {
+        cache.clear();
+        cachedStarCount = 0;
+    }
+
+    /**
+     * Return the number of skies in the cache
+     *
+     * @return : the number of skies in the cache
+     */
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    /**
+     * Return the number of calls to {@link #get(ZonedDateTime, GeographicCoordinates, StarCatalogue)} whose sky
+     * was in the cache
+     *
+     * @return : the number of hits
+     */
+    public synchronized long hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Return the number of calls to {@link #get(ZonedDateTime, GeographicCoordinates, StarCatalogue)} whose sky
+     * had to be computed
+     *
+     * @return : the number of misses
+     */
+    public synchronized long missCount() {
+        return missCount;
+    }
+
+    /**
+     * The key of a sky: the (rounded) time, the place and the catalogue (compared by identity)
+     */
+    private static final class Key {
+
+        private final Instant time;
+        private final double lon, lat;
+        private final StarCatalogue catalogue;
+
+        private Key(Instant time, double lon, double lat, StarCatalogue catalogue) {
+            this.time = time;
+            this.lon = lon;
+            this.lat = lat;
+            this.catalogue = catalogue;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) obj;
+            return time.equals(that.time) && Double.compare(lon, that.lon) == 0 && Double.compare(lat, that.lat) == 0
+                    && catalogue == that.catalogue;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(time, lon, lat, System.identityHashCode(catalogue));
+        }
+    }
+}
@@ -2,54 +2,184 @@ package ch.epfl.rigel.astronomy;
 
 import ch.epfl.rigel.coordinates.EquatorialCoordinates;
 
-import java.io.*;
-
-import static java.nio.charset.StandardCharsets.US_ASCII;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
- * a HYG data base loader
+ * a HYG data base loader, of a catalogue possibly gzip-compressed
+ * <p>
+ * The PARALLEL loader parses the catalogue by chunks of lines on the common fork/join pool,
+ * the stars are still added to the builder in the order of the file
  *
  * @author Juliette Parchet (295888)
  * @author Paola Matta (296390)
  */
 public enum HygDatabaseLoader implements StarCatalogue.Loader {
 
-    INSTANCE;
+    INSTANCE(false),
+    PARALLEL(true);
+
+    private static final int MIN_CHUNK_BYTES = 1 << 18;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final boolean parallel;
+
+    /**
+     * Constructor of the loader
+     *
+     * @param parallel : true if the lines must be parsed in parallel, by chunks
+     */
+    HygDatabaseLoader(boolean parallel) {
+        this.parallel = parallel;
+    }
 
     @Override
     public void load(InputStream inputStream, StarCatalogue.Builder builder) throws IOException {
 
-        try (BufferedReader input = new BufferedReader(new InputStreamReader(inputStream, US_ASCII))) {
-            //line indicating the column labels
-            String lineString = input.readLine();
-            lineString = input.readLine();
+        //a gzip-compressed catalogue is decompressed as it is read
+        try (inputStream; InputStream input = CatalogueStreams.decompressed(inputStream)) {
+            if (parallel) {
+                for (List<Star> chunk : parseInChunks(input.readAllBytes())) {
+                    for (Star star : chunk) {
+                        builder.addStar(star);
+                    }
+                }
+            } else {
+                CsvScanner scanner = new CsvScanner(input);
+                NameHeap nameHeap = NameHeap.empty();
+
+                //line indicating the column labels
+                scanner.nextLine();
+
+                while (scanner.nextLine()) {
+                    builder.addStar(star(scanner, nameHeap));
+                }
+            }
+        }
+    }
+
+    /**
+     * Split the catalogue in chunks of whole lines, parse them on the common fork/join pool
+     * and return the stars of each chunk, in the order of the file
+     *
+     * @param bytes : the bytes of the catalogue
+     * @return : the stars of each chunk, in the order of the file
+     */
+    private static List<List<Star>> parseInChunks(byte[] bytes) {
+        //line indicating the column labels
+        int dataStart = nextLineStart(bytes, 0);
+
+        int chunkCount = Math.max(1, Math.min(
+                ForkJoinPool.getCommonPoolParallelism() * CHUNKS_PER_THREAD,
+                (bytes.length - dataStart) / MIN_CHUNK_BYTES));
+        int[] chunkStarts = new int[chunkCount + 1];
+        chunkStarts[0] = dataStart;
+        for (int i = 1; i < chunkCount; ++i) {
+            long approximateStart = dataStart + (long) (bytes.length - dataStart) * i / chunkCount;
+            chunkStarts[i] = Math.max(chunkStarts[i - 1], nextLineStart(bytes, (int) approximateStart - 1));
+        }
+        chunkStarts[chunkCount] = bytes.length;
+
+        return IntStream.range(0, chunkCount)
+                .parallel()
+                .mapToObj(i -> parseChunk(bytes, chunkStarts[i], chunkStarts[i + 1]))
+                .collect(Collectors.toList());
+    }
 
-            while (lineString != null) {
-                String[] stringTable = lineString.split(",");
+    /**
+     * Parse the lines between from (inclusive) and to (exclusive) and return their stars
+     *
+     * @param bytes : the bytes of the catalogue
+     * @param from  : the start of the first line of the chunk
+     * @param to    : the end of the chunk (start of the first line of the next chunk)
+     * @return : the stars of the chunk
+     */
+    private static List<Star> parseChunk(byte[] bytes, int from, int to) {
+        try {
+            CsvScanner scanner = new CsvScanner(bytes, from, to);
+            NameHeap nameHeap = NameHeap.empty();
+            List<Star> stars = new ArrayList<>();
+            while (scanner.nextLine()) {
+                stars.add(star(scanner, nameHeap));
+            }
+            return stars;
+        } catch (IOException e) {
+            //the scanner reads an array, it does not do any input or output
+            throw new UncheckedIOException(e);
+        }
+    }
 
-                String hipparcosFromTable = stringTable[HYGCatCol.HIP.ordinal()];
-                int hipparcosNumber = (hipparcosFromTable.isBlank()) ? 0 : (Integer.parseInt(hipparcosFromTable));
+    /**
+     * Return the index of the start of the line following the given index (or the length of the array)
+     *
+     * @param bytes : the bytes of the catalogue
+     * @param index : the index
+     * @return : the index of the start of the line following the given index
+     */
+    private static int nextLineStart(byte[] bytes, int index) {
+        int i = Math.max(index, 0);
+        while (i < bytes.length && bytes[i] != '\n') {
+            ++i;
+        }
+        return Math.min(i + 1, bytes.length);
+    }
+
+    /**
+     * Read the star of the current line of the scanner, whose name is appended to the given heap
+     * (and turned into a string only when it is read)
+     *
+     * @param scanner  : the scanner, on the first field of a line
+     * @param nameHeap : the heap containing the names of the stars of the scanner
+     * @return : the star of the current line
+     */
+    private static Star star(CsvScanner scanner, NameHeap nameHeap) {
+        scanner.column(HYGCatCol.HIP.ordinal());
+        int hipparcosNumber = scanner.intValue(0);
+
+        int nameStart = nameHeap.size();
+        scanner.column(HYGCatCol.PROPER.ordinal());
+        boolean hasProperName = !scanner.isBlank();
+        if (hasProperName) {
+            scanner.appendTo(nameHeap);
+        }
 
-                String nameProperFromTable = stringTable[HYGCatCol.PROPER.ordinal()];
-                String nameBayerFromTable = stringTable[HYGCatCol.BAYER.ordinal()];
-                String name = (nameProperFromTable.isBlank()) ? (((nameBayerFromTable.isBlank()) ? "?" :
-                        nameBayerFromTable) + " " + stringTable[HYGCatCol.CON.ordinal()]) : nameProperFromTable;
+        scanner.column(HYGCatCol.MAG.ordinal());
+        double magnitude = scanner.doubleValue(0);
 
-                EquatorialCoordinates equatorialCoordinates = EquatorialCoordinates.of(
-                        Double.parseDouble(stringTable[HYGCatCol.RARAD.ordinal()]),
-                        Double.parseDouble(stringTable[HYGCatCol.DECRAD.ordinal()]));
+        scanner.column(HYGCatCol.CI.ordinal());
+        double colorIndex = scanner.doubleValue(0);
 
-                String magnitudeFromTable = stringTable[HYGCatCol.MAG.ordinal()];
-                double magnitude = (magnitudeFromTable.isBlank()) ? 0 : Double.parseDouble(magnitudeFromTable);
+        scanner.column(HYGCatCol.RARAD.ordinal());
+        double ra = scanner.doubleValue(Double.NaN);
+        scanner.column(HYGCatCol.DECRAD.ordinal());
+        double dec = scanner.doubleValue(Double.NaN);
 
-                String colorIndexFromTable = stringTable[HYGCatCol.CI.ordinal()];
-                double colorIndex = (colorIndexFromTable.isBlank()) ? 0 : Double.parseDouble(colorIndexFromTable);
-                builder.addStar(
-                        new Star(hipparcosNumber, name, equatorialCoordinates, (float) magnitude, (float) colorIndex));
+        scanner.column(HYGCatCol.PMRARAD.ordinal());
+        double properMotionRa = scanner.doubleValue(0);
+        scanner.column(HYGCatCol.PMDECRAD.ordinal());
+        double properMotionDec = scanner.doubleValue(0);
 
-                lineString = input.readLine();
+        if (!hasProperName) {
+            //the name is made of the Bayer designation (or ?) and of the constellation
+            scanner.column(HYGCatCol.BAYER.ordinal());
+            if (scanner.isBlank()) {
+                nameHeap.append((byte) '?');
+            } else {
+                scanner.appendTo(nameHeap);
             }
+            nameHeap.append((byte) ' ');
+            scanner.column(HYGCatCol.CON.ordinal());
+            scanner.appendTo(nameHeap);
         }
+
+        return new Star(hipparcosNumber, nameHeap, nameStart, nameHeap.size(), EquatorialCoordinates.of(ra, dec),
+                (float) magnitude, (float) colorIndex, (float) properMotionRa, (float) properMotionDec);
     }
 
     /**
@@ -0,0 +1,143 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * A map from int keys to non-negative int values, stored in two primitive arrays
+ * (open addressing with linear probing, for lookups not to box the keys nor the values)
+ *
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+final class IntToIntMap {
+
+    static final int ABSENT = -1;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys, values;
+    private int size;
+
+    /**
+     * Constructor of an empty map
+     *
+     * @param expectedSize : the number of entries for which the map does not need to grow
+     */
+    IntToIntMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < 2L * expectedSize) {
+            capacity <<= 1;
+        }
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, ABSENT);
+        size = 0;
+    }
+
+    /**
+     * Constructor of a copy of the given map
+     *
+     * @param that : the map to copy
+     */
+    private IntToIntMap(IntToIntMap that) {
+        keys = that.keys.clone();
+        values = that.values.clone();
+        size = that.size;
+    }
+
+    /**
+     * Return the number of entries of the map
+     *
+     * @return : the number of entries of the map
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Return the value associated to the given key
+     *
+     * @param key : the key
+     * @return : the value associated to the key, or ABSENT if there is none
+     */
+    int get(int key) {
+        int mask = keys.length - 1;
+        for (int slot = slotOf(key, mask); values[slot] != ABSENT; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return ABSENT;
+    }
+
+    /**
+     * Associate the given value to the given key, unless a value is already associated to the key
+     *
+     * @param key   : the key
+     * @param value : the value (non-negative)
+     * @return : the value already associated to the key, or ABSENT if the given value was associated to it
+     * @throws IllegalArgumentException : if the value is negative
+     */
+    int putIfAbsent(int key, int value) {
+        Preconditions.checkArgument(value >= 0);
+        int mask = keys.length - 1;
+        int slot = slotOf(key, mask);
+        while (values[slot] != ABSENT) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+        return ABSENT;
+    }
+
+    /**
+     * Return a copy of the map (later modifications of one of the maps do not modify the other)
+     *
+     * @return : a copy of the map
+     */
+    IntToIntMap copy() {
+        return new IntToIntMap(this);
+    }
+
+    /**
+     * Double the capacity of the map, for it to stay at most half full
+     */
+    private void grow() {
+        int[] oldKeys = keys, oldValues = values;
+        keys = new int[2 * oldKeys.length];
+        values = new int[2 * oldKeys.length];
+        Arrays.fill(values, ABSENT);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldValues[i] != ABSENT) {
+                int slot = slotOf(oldKeys[i], mask);
+                while (values[slot] != ABSENT) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Return the first slot to probe for the given key (the key being scrambled, for consecutive keys
+     * not to fill consecutive slots)
+     *
+     * @param key  : the key
+     * @param mask : the capacity of the map minus one
+     * @return : the first slot to probe for the key
+     */
+    private static int slotOf(int key, int mask) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
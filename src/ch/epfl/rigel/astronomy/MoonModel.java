@@ -24,9 +24,32 @@ public enum MoonModel implements CelestialObjectModel<Moon> {
 
     @Override
     public Moon at(double daysSinceJ2010, EclipticToEquatorialConversion eclipticToEquatorialConversion) {
+        return at(daysSinceJ2010, eclipticToEquatorialConversion,
+                SunModel.SUN.at(daysSinceJ2010, eclipticToEquatorialConversion));
+    }
+
+    /**
+     * Return the moon at the time of the given context, whose sun is not computed again
+     *
+     * @param context : the quantities shared by the models at a given time
+     * @return : the moon at the time of the context
+     */
+    @Override
+    public Moon at(EphemerisContext context) {
+        return at(context.daysSinceJ2010(), context.eclipticToEquatorialConversion(), context.sun());
+    }
+
+    /**
+     * Return the moon for the number of days after J2010, given the sun at that time
+     *
+     * @param daysSinceJ2010                 : the number of days after J2010 (can be negative)
+     * @param eclipticToEquatorialConversion : a conversion from ecliptic to equatorial conversion
+     * @param sun                            : the sun at that time
+     * @return : the moon for the number of days after J2010
+     */
+    private Moon at(double daysSinceJ2010, EclipticToEquatorialConversion eclipticToEquatorialConversion, Sun sun) {
 
         //Sun constants
-        Sun sun = SunModel.SUN.at(daysSinceJ2010, eclipticToEquatorialConversion);
         double sunEclipticGeocentricLon = sun.eclipticPos().lon();
         double sunMeanAnomaly = sun.meanAnomaly();
 
@@ -0,0 +1,129 @@
+package ch.epfl.rigel.astronomy;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * The names of several stars stored one after the other as UTF-8 bytes, each star knowing the range
+ * of its name, for the names to be turned into strings only when they are read
+ * <p>
+ * A heap only grows while its stars are loaded (by a single thread), the bytes of a star never change afterwards
+ *
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+final class NameHeap {
+
+    private static final int MIN_CAPACITY = 1 << 10;
+
+    private ByteBuffer bytes;
+    private int size;
+
+    /**
+     * Constructor of a heap containing the given bytes (shared, not copied)
+     *
+     * @param bytes : the bytes of the names (from 0 to the limit of the buffer)
+     * @param size  : the number of bytes of the names
+     */
+    private NameHeap(ByteBuffer bytes, int size) {
+        this.bytes = bytes;
+        this.size = size;
+    }
+
+    /**
+     * Return a new empty heap, to which names can be appended
+     *
+     * @return : a new empty heap
+     */
+    static NameHeap empty() {
+        return new NameHeap(ByteBuffer.allocate(MIN_CAPACITY), 0);
+    }
+
+    /**
+     * Return a heap containing the bytes of the given buffer, from 0 to its limit (shared, not copied)
+     *
+     * @param bytes : the bytes of the names
+     * @return : a heap containing the bytes of the given buffer
+     */
+    static NameHeap of(ByteBuffer bytes) {
+        return new NameHeap(bytes.duplicate(), bytes.limit());
+    }
+
+    /**
+     * Return the number of bytes of the heap, which is the start of the next name appended
+     *
+     * @return : the number of bytes of the heap
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Append the given bytes at the end of the heap
+     *
+     * @param source : the array containing the bytes
+     * @param offset : the index of the first byte in the array
+     * @param length : the number of bytes
+     * @return : the heap
+     */
+    NameHeap append(byte[] source, int offset, int length) {
+        ensureCapacity(length);
+        bytes.position(size);
+        bytes.put(source, offset, length);
+        size += length;
+        return this;
+    }
+
+    /**
+     * Append the given byte at the end of the heap
+     *
+     * @param b : the byte
+     * @return : the heap
+     */
+    NameHeap append(byte b) {
+        ensureCapacity(1);
+        bytes.put(size++, b);
+        return this;
+    }
+
+    /**
+     * Return the bytes of the name between start (inclusive) and end (exclusive)
+     *
+     * @param start : the start of the name
+     * @param end   : the end of the name
+     * @return : a new array containing the bytes of the name
+     */
+    byte[] bytes(int start, int end) {
+        byte[] name = new byte[end - start];
+        for (int i = 0; i < name.length; ++i) {
+            name[i] = bytes.get(start + i);
+        }
+        return name;
+    }
+
+    /**
+     * Return the name between start (inclusive) and end (exclusive)
+     *
+     * @param start : the start of the name
+     * @param end   : the end of the name
+     * @return : the name
+     */
+    String string(int start, int end) {
+        return new String(bytes(start, end), UTF_8);
+    }
+
+    /**
+     * Grow the heap, if needed, for it to be able to contain the given number of additional bytes
+     *
+     * @param length : the number of additional bytes
+     */
+    private void ensureCapacity(int length) {
+        //the limit (not the capacity) bounds the heap, for the bytes after the limit of a shared buffer to never be written
+        if (size + length > bytes.limit()) {
+            byte[] grown = Arrays.copyOf(bytes(0, size), Math.max(2 * bytes.limit(), size + length));
+            bytes = ByteBuffer.wrap(grown);
+        }
+    }
+}
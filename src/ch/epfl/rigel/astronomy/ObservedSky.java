@@ -1,9 +1,12 @@
 package ch.epfl.rigel.astronomy;
 
+import ch.epfl.rigel.Preconditions;
 import ch.epfl.rigel.coordinates.*;
 
+import java.nio.DoubleBuffer;
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An observed sky at a given time
@@ -13,15 +16,16 @@ import java.util.*;
  */
 public final class ObservedSky {
 
-    private static final List<PlanetModel> PLANET_MODELS = PlanetModel.ALL;
-
     private final CartesianCoordinates sunCart, moonCart;
-    private final List<CartesianCoordinates> planetsCart, starsCart;
-    private final Map<CelestialObject, CartesianCoordinates> observedSky = new HashMap<>();
+    private final double[] planetPositions;
+    private final HorizontalSky horizontalSky;
     private final Sun sun;
     private final Moon moon;
     private final List<Planet> planets;
     private final StarCatalogue catalogue;
+    private final int starCount, culledStarCount;
+    private final double[] starPositions;
+    private PlaneIndex starIndex;
 
     /**
      * the constructor of the observed sky
@@ -32,48 +36,102 @@ public final class ObservedSky {
      * @param catalogue  : the catalogue containing the stars and asterisms
      */
     public ObservedSky(ZonedDateTime when, GeographicCoordinates where, StereographicProjection projection, StarCatalogue catalogue) {
-        this.catalogue = catalogue;
+        this(when, where, projection, catalogue, Double.POSITIVE_INFINITY);
+    }
 
-        EclipticToEquatorialConversion eclipticToEquatorialConversion = new EclipticToEquatorialConversion(when);
-        EquatorialToHorizontalConversion equatorialToHorizontalConversion = new EquatorialToHorizontalConversion(when, where);
+    /**
+     * the constructor of the observed sky containing only the stars brighter than a limiting magnitude,
+     * if the stars of the catalogue are sorted by magnitude (otherwise all the stars are in the sky)
+     *
+     * @param when              : the observation time
+     * @param where             : the observation position
+     * @param projection        : the stereographic projection to use
+     * @param catalogue         : the catalogue containing the stars and asterisms
+     * @param limitingMagnitude : the magnitude of the faintest stars of the sky
+     */
+    public ObservedSky(ZonedDateTime when, GeographicCoordinates where, StereographicProjection projection,
+                       StarCatalogue catalogue, double limitingMagnitude) {
+        this(new HorizontalSky(when, where, catalogue), projection, limitingMagnitude);
+    }
 
-        double daysSinceJ2010 = Epoch.J2010.daysUntil(when);
+    /**
+     * the constructor of the projection of the given horizontal sky, which only projects its positions
+     * (the horizontal sky being reused as long as the time and the place do not change)
+     *
+     * @param horizontalSky : the sky seen at a given time from a given place
+     * @param projection    : the stereographic projection to use
+     */
+    public ObservedSky(HorizontalSky horizontalSky, StereographicProjection projection) {
+        this(horizontalSky, projection, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * the constructor of the projection of the given horizontal sky containing only the stars brighter than
+     * a limiting magnitude, if the stars of the catalogue are sorted by magnitude (otherwise all the stars are
+     * in the sky)
+     *
+     * @param horizontalSky     : the sky seen at a given time from a given place
+     * @param projection        : the stereographic projection to use
+     * @param limitingMagnitude : the magnitude of the faintest stars of the sky
+     */
+    public ObservedSky(HorizontalSky horizontalSky, StereographicProjection projection, double limitingMagnitude) {
+        this(horizontalSky, projection, limitingMagnitude, Math.PI);
+    }
+
+    /**
+     * the constructor of the projection of the given horizontal sky containing only the stars brighter than
+     * a limiting magnitude and in the viewing cone around the center of the projection
+     * <p>
+     * The stars out of the cone keep their indices but are not projected, their positions being NaN
+     *
+     * @param horizontalSky     : the sky seen at a given time from a given place
+     * @param projection        : the stereographic projection to use
+     * @param limitingMagnitude : the magnitude of the faintest stars of the sky
+     * @param viewRadius        : the angle (in radians) between the center of the projection and the farthest
+     *                          stars projected (π or more for all the stars to be projected)
+     * @throws IllegalArgumentException : if the angle is not strictly positive
+     */
+    public ObservedSky(HorizontalSky horizontalSky, StereographicProjection projection, double limitingMagnitude,
+                       double viewRadius) {
+        Preconditions.checkArgument(viewRadius > 0);
+        this.horizontalSky = horizontalSky;
+        catalogue = horizontalSky.catalogue();
 
         //Sun
-        sun = SunModel.SUN.at(daysSinceJ2010, eclipticToEquatorialConversion);
-        EquatorialCoordinates sunEquatorial = sun.equatorialPos();
-        sunCart = projection.apply(equatorialToHorizontalConversion.apply(sunEquatorial));
-        observedSky.put(sun, sunCart);
+        sun = horizontalSky.sun();
+        sunCart = projection.apply(horizontalSky.sunPosition());
 
         //Moon
-        moon = MoonModel.MOON.at(daysSinceJ2010, eclipticToEquatorialConversion);
-        EquatorialCoordinates moonEquatorial = moon.equatorialPos();
-        moonCart = projection.apply(equatorialToHorizontalConversion.apply(moonEquatorial));
-        observedSky.put(moon, moonCart);
+        moon = horizontalSky.moon();
+        moonCart = projection.apply(horizontalSky.moonPosition());
 
         //Planets
-        planetsCart = new ArrayList<>();
-        planets = new ArrayList<>();
-        for (PlanetModel p : PLANET_MODELS) {
-            if (!(p == PlanetModel.EARTH)) {
-                Planet planet = p.at(daysSinceJ2010, eclipticToEquatorialConversion);
-                planets.add(planet);
-                EquatorialCoordinates planetEquatorial = planet.equatorialPos();
-                CartesianCoordinates planetCart = projection.apply(equatorialToHorizontalConversion.apply(planetEquatorial));
-                planetsCart.add(planetCart);
-                observedSky.put(planet, planetCart);
-            }
+        planets = horizontalSky.planets();
+        planetPositions = new double[2 * planets.size()];
+        for (int i = 0; i < planets.size(); ++i) {
+            CartesianCoordinates planetCart = projection.apply(horizontalSky.planetPositions().get(i));
+            planetPositions[2 * i] = planetCart.x();
+            planetPositions[2 * i + 1] = planetCart.y();
         }
 
-        //Stars
-        starsCart = new ArrayList<>();
-        if (catalogue != null) {
-            for (Star star : catalogue.stars()) {
-                EquatorialCoordinates starEquatorial = star.equatorialPos();
-                CartesianCoordinates starCart = projection.apply(equatorialToHorizontalConversion.apply(starEquatorial));
-                starsCart.add(starCart);
-                observedSky.put(star, starCart);
-            }
+        //Stars: only their projected positions are stored, without any object per star
+        if (catalogue == null) {
+            starCount = 0;
+            culledStarCount = 0;
+            starPositions = new double[0];
+        } else {
+            starCount = catalogue.isSortedByMagnitude()
+                    ? catalogue.starCountBrighterThan(limitingMagnitude)
+                    : horizontalSky.starCount();
+            starPositions = new double[2 * starCount];
+            //horizontal unit vectors out of the cone rejected by their dot product with the center, the other ones
+            //projected by a single matrix (no trigonometry per star), in chunks writing their own parts of the array
+            DoubleBuffer starUnitVectors = horizontalSky.starUnitVectors();
+            double[] positions = starPositions;
+            AtomicInteger culled = new AtomicInteger();
+            horizontalSky.partitioner().forEachChunk(starCount, (from, to) -> culled.addAndGet(
+                    projection.applyToUnitVectorsWithin(viewRadius, starUnitVectors, from, to, positions)));
+            culledStarCount = culled.get();
         }
     }
 
@@ -122,6 +180,43 @@ public final class ObservedSky {
         return catalogue.stars();
     }
 
+    /**
+     * Return the number of stars of the sky, which are the first stars of the catalogue
+     * (all of them, unless the sky was built with a limiting magnitude)
+     *
+     * @return : the number of stars of the sky
+     */
+    public int starCount() {
+        return starCount;
+    }
+
+    /**
+     * Return the number of stars of the sky out of its viewing cone, whose positions are NaN
+     *
+     * @return : the number of stars of the sky out of its viewing cone
+     */
+    public int culledStarCount() {
+        return culledStarCount;
+    }
+
+    /**
+     * Return the sky seen at the time and from the place of this sky, before its projection
+     *
+     * @return : the sky seen at the time and from the place of this sky, before its projection
+     */
+    public HorizontalSky horizontalSky() {
+        return horizontalSky;
+    }
+
+    /**
+     * Return the catalogue containing the stars and asterisms of the sky
+     *
+     * @return : the catalogue containing the stars and asterisms of the sky
+     */
+    public StarCatalogue catalogue() {
+        return catalogue;
+    }
+
     /**
      * Return the sun position in cartesian coordinates
      *
@@ -146,26 +241,49 @@ public final class ObservedSky {
      * @return : a table containing the planet positions
      */
     public double[] planetPosition() {
-        double[] planetPositions = new double[14];
-        for (int i = 0; i < planetPositions.length; i = i + 2) {
-            planetPositions[i] = planetsCart.get(i / 2).x();
-            planetPositions[i + 1] = planetsCart.get(i / 2).y();
-        }
-        return planetPositions;
+        return planetPositions.clone();
     }
 
     /**
-     * Return a table containing the star positions (the x in the even indices and the y in the odd indices)
+     * Return a read-only view of the star positions (the x of the star of index i at index 2i and its y
+     * at index 2i + 1, NaN for the stars out of the viewing cone), without any copy
+     *
+     * @return : a read-only view of the star positions
+     */
+    public DoubleBuffer starPositions() {
+        return DoubleBuffer.wrap(starPositions, 0, 2 * starCount).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Return the x of the position of the star of the given index (NaN if it is out of the viewing cone)
+     *
+     * @param index : the index of the star
+     * @return : the x of the position of the star
+     * @throws IndexOutOfBoundsException : if the index is not the index of a star of the sky
+     */
+    public double starPositionX(int index) {
+        return starPositions[2 * Objects.checkIndex(index, starCount)];
+    }
+
+    /**
+     * Return the y of the position of the star of the given index (NaN if it is out of the viewing cone)
+     *
+     * @param index : the index of the star
+     * @return : the y of the position of the star
+     * @throws IndexOutOfBoundsException : if the index is not the index of a star of the sky
+     */
+    public double starPositionY(int index) {
+        return starPositions[2 * Objects.checkIndex(index, starCount) + 1];
+    }
+
+    /**
+     * Return a table containing the star positions (the x in the even indices and the y in the odd indices),
+     * copied at each call (see {@link #starPositions()})
      *
      * @return :a table containing the star positions
      */
     public double[] starsPosition() {
-        double[] starPositions = new double[starsCart.size() * 2];
-        for (int i = 0; i < starPositions.length; i = i + 2) {
-            starPositions[i] = starsCart.get(i / 2).x();
-            starPositions[i + 1] = starsCart.get(i / 2).y();
-        }
-        return starPositions;
+        return Arrays.copyOf(starPositions, 2 * starCount);
     }
 
     /**
@@ -176,21 +294,51 @@ public final class ObservedSky {
      * @param maxDistance   : the maximum distance
      * @return : null if there is not any object in the radius maxDistance around the mousePosition point,
      * and else the object closest to the mousPosition point
+     * (the stars being searched in a spatial index built at the first call, not one by one)
      */
     public Optional<CelestialObject> objectClosestTo(CartesianCoordinates mousePosition, double maxDistance) {
+        double mouseX = mousePosition.x(), mouseY = mousePosition.y();
         CelestialObject closestCO = null;
         double minRadiusFromMouse = maxDistance;
 
-        for (Map.Entry<CelestialObject, CartesianCoordinates> entry : observedSky.entrySet()) {
-            CelestialObject key = entry.getKey();
-            CartesianCoordinates value = entry.getValue();
-            double radiusFromMouse = Math.hypot(mousePosition.x() - value.x(), mousePosition.y() - value.y());
+        double radiusFromSun = Math.hypot(mouseX - sunCart.x(), mouseY - sunCart.y());
+        if (radiusFromSun <= minRadiusFromMouse) {
+            closestCO = sun;
+            minRadiusFromMouse = radiusFromSun;
+        }
+        double radiusFromMoon = Math.hypot(mouseX - moonCart.x(), mouseY - moonCart.y());
+        if (radiusFromMoon <= minRadiusFromMouse) {
+            closestCO = moon;
+            minRadiusFromMouse = radiusFromMoon;
+        }
+        for (int i = 0; i < planets.size(); ++i) {
+            double radiusFromMouse = Math.hypot(mouseX - planetPositions[2 * i], mouseY - planetPositions[2 * i + 1]);
             if (radiusFromMouse <= minRadiusFromMouse) {
-                closestCO = key;
+                closestCO = planets.get(i);
                 minRadiusFromMouse = radiusFromMouse;
             }
         }
+
+        int closestStarIndex = starIndex(Math.max(maxDistance, Double.MIN_NORMAL))
+                .indexOfClosest(mouseX, mouseY, minRadiusFromMouse);
+        if (closestStarIndex >= 0) {
+            closestCO = catalogue.stars().get(closestStarIndex);
+        }
         return Optional.ofNullable(closestCO);
     }
 
+    /**
+     * Return the spatial index of the star positions, built at the first call (and built again with larger cells
+     * if the maximal distance is larger than its cells), for the stars close to a point to be found without
+     * going through all the stars
+     *
+     * @param maxDistance : the maximal distance of the queries (strictly positive)
+     * @return : the spatial index of the star positions
+     */
+    private synchronized PlaneIndex starIndex(double maxDistance) {
+        if (starIndex == null || maxDistance > starIndex.cellSize()) {
+            starIndex = new PlaneIndex(starPositions, starCount, maxDistance);
+        }
+        return starIndex;
+    }
 }
@@ -0,0 +1,125 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+
+/**
+ * A spatial index of positions of the plane, answering in constant time (on average) which position is
+ * the closest to a point within a maximal distance not larger than the side of its cells
+ * <p>
+ * The positions are stored in square cells (hashed, for the positions far from the center of the projection
+ * not to enlarge a grid), built in linear time: the positions close to a point are in its cell or in one
+ * of the 8 cells around it
+ *
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+final class PlaneIndex {
+
+    private final double[] xy;
+    private final int count;
+    private final double cellSize;
+    private final IntToIntMap firstOfCell;
+    private final int[] nextOfCell;
+
+    /**
+     * Constructor of the index of the given positions (the positions whose x is NaN are not indexed)
+     *
+     * @param xy       : the positions (the x of the position of index i at index 2i and its y at index 2i + 1),
+     *                 not copied
+     * @param count    : the number of positions
+     * @param cellSize : the side of the cells
+     * @throws IllegalArgumentException : if the side of the cells is not strictly positive
+     */
+    PlaneIndex(double[] xy, int count, double cellSize) {
+        Preconditions.checkArgument(cellSize > 0);
+        this.xy = xy;
+        this.count = count;
+        this.cellSize = cellSize;
+        firstOfCell = new IntToIntMap(count);
+        nextOfCell = new int[count];
+
+        for (int i = 0; i < count; ++i) {
+            if (Double.isNaN(xy[2 * i])) {
+                continue;
+            }
+            //the position is chained right after the first position of its cell
+            int first = firstOfCell.putIfAbsent(cellKey(cell(xy[2 * i]), cell(xy[2 * i + 1])), i);
+            if (first == IntToIntMap.ABSENT) {
+                nextOfCell[i] = -1;
+            } else {
+                nextOfCell[i] = nextOfCell[first];
+                nextOfCell[first] = i;
+            }
+        }
+    }
+
+    /**
+     * Return the side of the cells
+     *
+     * @return : the side of the cells
+     */
+    double cellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Return the index of the position closest to the given point, if it is not farther than the maximal
+     * distance (the 9 cells around the point being visited if the distance is not larger than the side of
+     * the cells, and all the positions otherwise)
+     *
+     * @param x           : the x of the point
+     * @param y           : the y of the point
+     * @param maxDistance : the maximal distance
+     * @return : the index of the closest position, or -1 if there is none within the maximal distance
+     */
+    int indexOfClosest(double x, double y, double maxDistance) {
+        int closest = -1;
+        double minDistance = maxDistance;
+        if (maxDistance > cellSize) {
+            for (int i = 0; i < count; ++i) {
+                double distance = Math.hypot(x - xy[2 * i], y - xy[2 * i + 1]);
+                if (distance <= minDistance) {
+                    closest = i;
+                    minDistance = distance;
+                }
+            }
+            return closest;
+        }
+
+        long cx = cell(x), cy = cell(y);
+        for (long i = cx - 1; i <= cx + 1; ++i) {
+            for (long j = cy - 1; j <= cy + 1; ++j) {
+                //different cells can share a key, the distance is checked for every position of the chain
+                for (int p = firstOfCell.get(cellKey(i, j)); p >= 0; p = nextOfCell[p]) {
+                    double distance = Math.hypot(x - xy[2 * p], y - xy[2 * p + 1]);
+                    if (distance < minDistance || (distance == minDistance && p > closest)) {
+                        closest = p;
+                        minDistance = distance;
+                    }
+                }
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Return the cell coordinate of the given coordinate
+     *
+     * @param coordinate : the coordinate
+     * @return : the cell coordinate
+     */
+    private long cell(double coordinate) {
+        return (long) Math.floor(coordinate / cellSize);
+    }
+
+    /**
+     * Return the key of the cell of the given coordinates (two cells can have the same key)
+     *
+     * @param i : the first cell coordinate
+     * @param j : the second cell coordinate
+     * @return : the key of the cell
+     */
+    private static int cellKey(long i, long j) {
+        return Long.hashCode(i * 73_856_093L ^ j * 19_349_663L);
+    }
+}
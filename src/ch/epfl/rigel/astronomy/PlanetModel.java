@@ -86,21 +86,72 @@ public enum PlanetModel implements CelestialObjectModel<Planet> {
 
     @Override
     public Planet at(double daysSinceJ2010, EclipticToEquatorialConversion eclipticToEquatorialConversion) {
-
         //Earth
-        double earthMeanAnomaly = MEAN_ANGULAR_SPEED_EARTH_AROUND_SUN * (daysSinceJ2010 / EARTH.revolutionPeriod)
-                + EARTH.lonAtJ2010 - EARTH.lonAtPerigee;
-        double earthTrueAnomaly = earthMeanAnomaly + 2 * EARTH.orbitEcc * Math.sin(earthMeanAnomaly);
-        double earthRadius = (EARTH.semiMajorAxis * (1 - EARTH.orbitEcc * EARTH.orbitEcc))
-                / (1 + EARTH.orbitEcc * Math.cos(earthTrueAnomaly));
-        double earthLon = earthTrueAnomaly + EARTH.lonAtPerigee;
+        double earthTrueAnomaly = EARTH.trueAnomaly(daysSinceJ2010);
+        return at(daysSinceJ2010, eclipticToEquatorialConversion,
+                EARTH.heliocentricLon(earthTrueAnomaly), EARTH.radius(earthTrueAnomaly));
+    }
 
-        //Planet
+    /**
+     * Return the planet at the time of the given context, whose position of the Earth is not computed again
+     *
+     * @param context : the quantities shared by the models at a given time
+     * @return : the planet at the time of the context
+     */
+    @Override
+    public Planet at(EphemerisContext context) {
+        return at(context.daysSinceJ2010(), context.eclipticToEquatorialConversion(),
+                context.earthLon(), context.earthRadius());
+    }
+
+    /**
+     * Return the true anomaly of the planet for the number of days after J2010
+     *
+     * @param daysSinceJ2010 : the number of days after J2010 (can be negative)
+     * @return : the true anomaly of the planet (in radians)
+     */
+    double trueAnomaly(double daysSinceJ2010) {
         double meanAnomaly = MEAN_ANGULAR_SPEED_EARTH_AROUND_SUN * (daysSinceJ2010 / revolutionPeriod)
                 + lonAtJ2010 - lonAtPerigee;
-        double trueAnomaly = meanAnomaly + 2 * orbitEcc * Math.sin(meanAnomaly);
-        double radius = (semiMajorAxis * (1 - Math.pow(orbitEcc, 2))) / (1 + orbitEcc * Math.cos(trueAnomaly));
-        double heliocentricLon = trueAnomaly + lonAtPerigee;
+        return meanAnomaly + 2 * orbitEcc * Math.sin(meanAnomaly);
+    }
+
+    /**
+     * Return the heliocentric ecliptic longitude of the planet for the given true anomaly
+     *
+     * @param trueAnomaly : the true anomaly of the planet (in radians)
+     * @return : the heliocentric ecliptic longitude of the planet (in radians, not normalized)
+     */
+    double heliocentricLon(double trueAnomaly) {
+        return trueAnomaly + lonAtPerigee;
+    }
+
+    /**
+     * Return the distance between the planet and the sun for the given true anomaly
+     *
+     * @param trueAnomaly : the true anomaly of the planet (in radians)
+     * @return : the distance between the planet and the sun (in UA)
+     */
+    double radius(double trueAnomaly) {
+        return (semiMajorAxis * (1 - orbitEcc * orbitEcc)) / (1 + orbitEcc * Math.cos(trueAnomaly));
+    }
+
+    /**
+     * Return the planet for the number of days after J2010, given the heliocentric position of the Earth
+     *
+     * @param daysSinceJ2010                 : the number of days after J2010 (can be negative)
+     * @param eclipticToEquatorialConversion : a conversion from ecliptic to equatorial conversion
+     * @param earthLon                       : the heliocentric ecliptic longitude of the Earth
+     * @param earthRadius                    : the distance between the Earth and the sun
+     * @return : the planet for the number of days after J2010
+     */
+    private Planet at(double daysSinceJ2010, EclipticToEquatorialConversion eclipticToEquatorialConversion,
+                      double earthLon, double earthRadius) {
+        //Planet
+        double trueAnomaly = trueAnomaly(daysSinceJ2010);
+        double radius = radius(trueAnomaly);
+        double heliocentricLon = heliocentricLon(trueAnomaly);
+
         double var1 = Math.sin(heliocentricLon - lonOfAscendingNode);
         double latEclipticHeliocentric = Math.asin(var1 * Math.sin(inclinAtEcliptic));
         double projectionRadius = radius * Math.cos(latEclipticHeliocentric);
@@ -0,0 +1,134 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * A spatial index of positions on the celestial sphere, answering in constant time (on average) whether
+ * a position is closer than a maximal separation to a position already added
+ * <p>
+ * The positions are stored as unit vectors, in cubic cells whose side is the chord of the maximal separation:
+ * the positions close to a given one are in its cell or in one of the 26 cells around it
+ *
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+final class PositionIndex {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final double cellSize;
+    private final IntToIntMap firstOfCell;
+    private double[] x, y, z;
+    private int[] nextOfCell;
+    private int size;
+
+    /**
+     * Constructor of an empty index
+     *
+     * @param maxSeparation : the maximal angular separation (in radians) of two positions considered close
+     * @param expectedSize  : the number of positions for which the index does not need to grow
+     * @throws IllegalArgumentException : if the maximal separation is not in ]0, π]
+     */
+    PositionIndex(double maxSeparation, int expectedSize) {
+        Preconditions.checkArgument(0 < maxSeparation && maxSeparation <= Math.PI);
+        cellSize = 2 * Math.sin(maxSeparation / 2);
+        firstOfCell = new IntToIntMap(expectedSize);
+        int capacity = Math.max(expectedSize, MIN_CAPACITY);
+        x = new double[capacity];
+        y = new double[capacity];
+        z = new double[capacity];
+        nextOfCell = new int[capacity];
+        size = 0;
+    }
+
+    /**
+     * Return the number of positions of the index
+     *
+     * @return : the number of positions of the index
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Add the given position to the index, its index being the number of positions added before it
+     *
+     * @param ra  : the right ascension (in radians)
+     * @param dec : the declination (in radians)
+     */
+    void add(double ra, double dec) {
+        if (size == x.length) {
+            x = Arrays.copyOf(x, 2 * size);
+            y = Arrays.copyOf(y, 2 * size);
+            z = Arrays.copyOf(z, 2 * size);
+            nextOfCell = Arrays.copyOf(nextOfCell, 2 * size);
+        }
+        double cosDec = Math.cos(dec);
+        x[size] = cosDec * Math.cos(ra);
+        y[size] = cosDec * Math.sin(ra);
+        z[size] = Math.sin(dec);
+
+        //the position is chained right after the first position of its cell
+        int first = firstOfCell.putIfAbsent(cellKey(cell(x[size]), cell(y[size]), cell(z[size])), size);
+        if (first == IntToIntMap.ABSENT) {
+            nextOfCell[size] = -1;
+        } else {
+            nextOfCell[size] = nextOfCell[first];
+            nextOfCell[first] = size;
+        }
+        ++size;
+    }
+
+    /**
+     * Return the index of a position of the index closer to the given one than the maximal separation
+     *
+     * @param ra  : the right ascension (in radians)
+     * @param dec : the declination (in radians)
+     * @return : the index of the first position found closer than the maximal separation, or -1 if there is none
+     */
+    int indexOfPositionNear(double ra, double dec) {
+        double cosDec = Math.cos(dec);
+        double px = cosDec * Math.cos(ra), py = cosDec * Math.sin(ra), pz = Math.sin(dec);
+        long cx = cell(px), cy = cell(py), cz = cell(pz);
+        double maxChord2 = cellSize * cellSize;
+
+        for (long i = cx - 1; i <= cx + 1; ++i) {
+            for (long j = cy - 1; j <= cy + 1; ++j) {
+                for (long k = cz - 1; k <= cz + 1; ++k) {
+                    //different cells can share a key, the distance is checked for every position of the chain
+                    for (int p = firstOfCell.get(cellKey(i, j, k)); p >= 0; p = nextOfCell[p]) {
+                        double dx = x[p] - px, dy = y[p] - py, dz = z[p] - pz;
+                        if (dx * dx + dy * dy + dz * dz <= maxChord2) {
+                            return p;
+                        }
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return the cell coordinate of the given coordinate of a unit vector
+     *
+     * @param coordinate : the coordinate
+     * @return : the cell coordinate
+     */
+    private long cell(double coordinate) {
+        return (long) Math.floor(coordinate / cellSize);
+    }
+
+    /**
+     * Return the key of the cell of the given coordinates (two cells can have the same key)
+     *
+     * @param i : the first cell coordinate
+     * @param j : the second cell coordinate
+     * @param k : the third cell coordinate
+     * @return : the key of the cell
+     */
+    private static int cellKey(long i, long j, long k) {
+        return Long.hashCode(i * 73_856_093L ^ j * 19_349_663L ^ k * 83_492_791L);
+    }
+}
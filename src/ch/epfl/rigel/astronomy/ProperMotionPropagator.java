@@ -0,0 +1,189 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.math.Angle;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.time.ZonedDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A propagator of the positions of the stars of a table, whose positions are given at the epoch J2000,
+ * to other epochs according to their proper motions
+ * <p>
+ * The positions are propagated for all the stars at once, as unit vectors moving linearly (the radial velocity
+ * and the parallax being neglected), which remains valid near the poles. The epochs are rounded to buckets of
+ * {@link #BUCKET_YEARS} years and the unit vectors of the last propagated buckets are kept, for an animation
+ * not to propagate the positions again at every frame
+ * <p>
+ * The unit vectors and the velocities of the stars are stored like the columns of their table, off-heap (in direct
+ * buffers) if the table is off-heap
+ *
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+public final class ProperMotionPropagator {
+
+    static final double BUCKET_YEARS = 1;
+    static final int MAX_CACHED_BUCKETS = 8;
+
+    private final StarTable starTable;
+    private final int size;
+    private final boolean moving;
+    private final DoubleBuffer unitVectorsAtJ2000, velocities;
+    private final Map<Long, DoubleBuffer> cache = new LinkedHashMap<>(2 * MAX_CACHED_BUCKETS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, DoubleBuffer> eldest) {
+            return size() > MAX_CACHED_BUCKETS;
+        }
+    };
+
+    /**
+     * Constructor of the propagator of the stars of the given table
+     *
+     * @param starTable : the table containing the stars
+     */
+    ProperMotionPropagator(StarTable starTable) {
+        this.starTable = starTable;
+        size = starTable.size();
+        DoubleBuffer unitVectors = allocate(3 * size);
+        velocities = allocate(3 * size);
+        boolean moving = false;
+
+        for (int i = 0; i < size; ++i) {
+            double ra = starTable.ra(i), dec = starTable.dec(i);
+            double cosRa = Math.cos(ra), sinRa = Math.sin(ra);
+            double cosDec = Math.cos(dec), sinDec = Math.sin(dec);
+            double pmRa = starTable.properMotionRa(i), pmDec = starTable.properMotionDec(i);
+            //position on the unit sphere, and its velocity along the directions of increasing ra and dec
+            unitVectors.put(3 * i, cosDec * cosRa);
+            unitVectors.put(3 * i + 1, cosDec * sinRa);
+            unitVectors.put(3 * i + 2, sinDec);
+            velocities.put(3 * i, -pmRa * sinRa - pmDec * sinDec * cosRa);
+            velocities.put(3 * i + 1, pmRa * cosRa - pmDec * sinDec * sinRa);
+            velocities.put(3 * i + 2, pmDec * cosDec);
+            moving |= pmRa != 0 || pmDec != 0;
+        }
+        this.moving = moving;
+        unitVectorsAtJ2000 = unitVectors.asReadOnlyBuffer();
+    }
+
+    /**
+     * Return the number of stars of the propagator
+     *
+     * @return : the number of stars of the propagator
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the positions of the stars at the given time, rounded to its bucket of {@link #BUCKET_YEARS} years
+     * (the ra of the star of index i at index 2i and its dec at index 2i + 1, in radians), computed at each call
+     *
+     * @param when : the time
+     * @return : a read-only view of the positions of the stars at the given time
+     */
+    public DoubleBuffer positionsAt(ZonedDateTime when) {
+        long bucket = bucketOf(Epoch.J2000.julianCenturiesUntil(when) * 100);
+        double[] positions = new double[2 * size];
+        if (!moving || bucket == 0) {
+            for (int i = 0; i < size; ++i) {
+                positions[2 * i] = starTable.ra(i);
+                positions[2 * i + 1] = starTable.dec(i);
+            }
+            return DoubleBuffer.wrap(positions).asReadOnlyBuffer();
+        }
+        DoubleBuffer unitVectors = unitVectorsAtBucket(bucket);
+        for (int i = 0; i < size; ++i) {
+            double vx = unitVectors.get(3 * i), vy = unitVectors.get(3 * i + 1), vz = unitVectors.get(3 * i + 2);
+            positions[2 * i] = Angle.normalizePositive(Math.atan2(vy, vx));
+            positions[2 * i + 1] = Math.asin(vz);
+        }
+        return DoubleBuffer.wrap(positions).asReadOnlyBuffer();
+    }
+
+    /**
+     * Return the unit vectors of the stars at the given time, rounded to its bucket of {@link #BUCKET_YEARS} years,
+     * in the equatorial frame (x towards ra = 0, z towards the north celestial pole), the coordinates of the star
+     * of index i being at indices 3i, 3i + 1 and 3i + 2
+     *
+     * @param when : the time
+     * @return : a read-only view of the unit vectors of the stars at the given time
+     */
+    public DoubleBuffer unitVectorsAt(ZonedDateTime when) {
+        return unitVectorsAtBucket(bucketOf(Epoch.J2000.julianCenturiesUntil(when) * 100));
+    }
+
+    /**
+     * Return the number of buckets of which the unit vectors are currently kept
+     *
+     * @return : the number of buckets of which the unit vectors are currently kept
+     */
+    synchronized int cachedBucketCount() {
+        return cache.size();
+    }
+
+    /**
+     * Return the bucket containing the epoch at the given number of years since J2000
+     *
+     * @param yearsSinceJ2000 : the number of years since J2000
+     * @return : the bucket containing the epoch
+     */
+    static long bucketOf(double yearsSinceJ2000) {
+        return Math.round(yearsSinceJ2000 / BUCKET_YEARS);
+    }
+
+    /**
+     * Return the unit vectors of the stars at the epoch of the given bucket, propagated if they are not kept yet
+     *
+     * @param bucket : the bucket
+     * @return : a read-only view of the unit vectors of the stars at the epoch of the bucket
+     */
+    synchronized DoubleBuffer unitVectorsAtBucket(long bucket) {
+        if (!moving || bucket == 0) {
+            return unitVectorsAtJ2000.duplicate();
+        }
+        DoubleBuffer unitVectors = cache.get(bucket);
+        if (unitVectors == null) {
+            unitVectors = propagate(bucket * BUCKET_YEARS).asReadOnlyBuffer();
+            cache.put(bucket, unitVectors);
+        }
+        return unitVectors.duplicate();
+    }
+
+    /**
+     * Propagate the unit vectors of all the stars to the epoch at the given number of years since J2000
+     *
+     * @param years : the number of years since J2000
+     * @return : the unit vectors of the stars (x, y and z of each star, one after the other)
+     */
+    private DoubleBuffer propagate(double years) {
+        //single pass without any branch, for the JIT compiler to vectorise it
+        DoubleBuffer unitVectors = allocate(3 * size);
+        for (int i = 0; i < 3 * size; i += 3) {
+            double px = unitVectorsAtJ2000.get(i) + years * velocities.get(i);
+            double py = unitVectorsAtJ2000.get(i + 1) + years * velocities.get(i + 1);
+            double pz = unitVectorsAtJ2000.get(i + 2) + years * velocities.get(i + 2);
+            double inverseNorm = 1 / Math.sqrt(px * px + py * py + pz * pz);
+            unitVectors.put(i, px * inverseNorm);
+            unitVectors.put(i + 1, py * inverseNorm);
+            unitVectors.put(i + 2, pz * inverseNorm);
+        }
+        return unitVectors;
+    }
+
+    /**
+     * Allocate a buffer of the given number of doubles, off-heap if the table of the stars is off-heap
+     *
+     * @param count : the number of doubles
+     * @return : the allocated buffer
+     */
+    private DoubleBuffer allocate(int count) {
+        return starTable.isOffHeap()
+                ? ByteBuffer.allocateDirect(count * Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer()
+                : DoubleBuffer.allocate(count);
+    }
+}
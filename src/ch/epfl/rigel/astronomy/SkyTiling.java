@@ -0,0 +1,472 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A hierarchical tiling of the celestial sphere in tiles of equal areas (HEALPix, in the nested numbering), holding
+ * the stars of a catalogue by tile, for the stars in a cone or a polygon to be found without going through all
+ * the stars
+ * <p>
+ * At order k, the sphere is split in 12 * 4^k tiles, the 4 tiles of order k + 1 of indices 4t to 4t + 3 splitting
+ * the tile t of order k. The stars are stored in the order of their tiles at the order of the tiling, the stars of
+ * a tile of any lower order are thus at contiguous indices too
+ * <p>
+ * The tiles of the stars are the ones of their positions in the catalogue (at J2000), without their proper motions
+ * <p>
+ * The indices and the unit vectors of the stars are stored like the columns of their table, off-heap (in direct
+ * buffers) if the table is off-heap
+ *
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+public final class SkyTiling {
+
+    public static final int MAX_ORDER = 10;
+    private static final int BASE_TILE_COUNT = 12;
+    private static final int STARS_PER_TILE = 16;
+    //positions of a tile relative to a region
+    private static final int OUTSIDE = 0, INSIDE = 1, PARTIAL = 2;
+    //row and column of the base tiles (in units of a quarter of the equator)
+    private static final int[] BASE_ROWS = {2, 2, 2, 2, 3, 3, 3, 3, 4, 4, 4, 4};
+    private static final int[] BASE_COLUMNS = {1, 3, 5, 7, 0, 2, 4, 6, 1, 3, 5, 7};
+
+    private final int order;
+    private final int[] tileOffsets;
+    private final IntBuffer starIndices;
+    private final DoubleBuffer unitVectors;
+    private final double[] maxTileRadii;
+
+    /**
+     * Constructor of the tiling of the stars of the given table at the given order
+     *
+     * @param starTable : the table of the stars
+     * @param order     : the order of the tiling
+     */
+    private SkyTiling(StarTable starTable, int order) {
+        this.order = order;
+        int starCount = starTable.size();
+        int tileCount = tileCount(order);
+
+        //counting sort of the stars by tile (stable, the stars of a tile being in the order of the catalogue)
+        int[] tiles = new int[starCount];
+        tileOffsets = new int[tileCount + 1];
+        for (int i = 0; i < starCount; ++i) {
+            tiles[i] = tileOf(order, starTable.ra(i), starTable.dec(i));
+            ++tileOffsets[tiles[i] + 1];
+        }
+        for (int t = 0; t < tileCount; ++t) {
+            tileOffsets[t + 1] += tileOffsets[t];
+        }
+        int[] next = Arrays.copyOf(tileOffsets, tileCount);
+        starIndices = starTable.isOffHeap()
+                ? ByteBuffer.allocateDirect(starCount * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer()
+                : IntBuffer.allocate(starCount);
+        unitVectors = starTable.isOffHeap()
+                ? ByteBuffer.allocateDirect(3 * starCount * Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer()
+                : DoubleBuffer.allocate(3 * starCount);
+        for (int i = 0; i < starCount; ++i) {
+            int slot = next[tiles[i]]++;
+            starIndices.put(slot, i);
+            double ra = starTable.ra(i), dec = starTable.dec(i), cosDec = Math.cos(dec);
+            unitVectors.put(3 * slot, cosDec * Math.cos(ra));
+            unitVectors.put(3 * slot + 1, cosDec * Math.sin(ra));
+            unitVectors.put(3 * slot + 2, Math.sin(dec));
+        }
+
+        maxTileRadii = new double[order + 1];
+        for (int k = 0; k <= order; ++k) {
+            maxTileRadii[k] = maxTileRadius(k);
+        }
+    }
+
+    /**
+     * Return the tiling of the stars of the given table, at an order giving about 16 stars per tile
+     *
+     * @param starTable : the table of the stars
+     * @return : the tiling of the stars of the table
+     */
+    public static SkyTiling of(StarTable starTable) {
+        int order = 0;
+        while (order < MAX_ORDER && (long) tileCount(order) * STARS_PER_TILE < starTable.size()) {
+            ++order;
+        }
+        return of(starTable, order);
+    }
+
+    /**
+     * Return the tiling of the stars of the given table at the given order
+     *
+     * @param starTable : the table of the stars
+     * @param order     : the order of the tiling (between 0 and MAX_ORDER)
+     * @return : the tiling of the stars of the table
+     * @throws IllegalArgumentException : if the order is not between 0 and MAX_ORDER
+     */
+    public static SkyTiling of(StarTable starTable, int order) {
+        Preconditions.checkArgument(0 <= order && order <= MAX_ORDER);
+        return new SkyTiling(starTable, order);
+    }
+
+    /**
+     * Return the number of tiles of the given order
+     *
+     * @param order : the order
+     * @return : the number of tiles of the given order (12 * 4^order)
+     */
+    public static int tileCount(int order) {
+        return BASE_TILE_COUNT << (2 * order);
+    }
+
+    /**
+     * Return the index of the tile of the given order containing the given position
+     *
+     * @param order : the order (between 0 and MAX_ORDER)
+     * @param ra    : the right ascension (in radians)
+     * @param dec   : the declination (in radians)
+     * @return : the index of the tile, in the nested numbering
+     * @throws IllegalArgumentException : if the order is not between 0 and MAX_ORDER
+     */
+    public static int tileOf(int order, double ra, double dec) {
+        Preconditions.checkArgument(0 <= order && order <= MAX_ORDER);
+        int side = 1 << order;
+        double z = Math.sin(dec), absZ = Math.abs(z);
+        //longitude in quarters of the equator, in [0, 4[
+        double quarters = (ra * 2 / Math.PI) % 4;
+        if (quarters < 0) {
+            quarters += 4;
+        }
+
+        int face, ix, iy;
+        if (absZ <= 2d / 3) {
+            //equatorial zone
+            double t1 = side * (0.5 + quarters), t2 = side * z * 0.75;
+            int jp = (int) (t1 - t2), jm = (int) (t1 + t2);
+            int ifp = jp >> order, ifm = jm >> order;
+            face = (ifp == ifm) ? (ifp | 4) : ((ifp < ifm) ? ifp : (ifm + 8));
+            ix = jm & (side - 1);
+            iy = side - (jp & (side - 1)) - 1;
+        } else {
+            //polar caps
+            int quarter = Math.min(3, (int) quarters);
+            double inQuarter = quarters - quarter;
+            double scale = side * Math.sqrt(3 * (1 - absZ));
+            int jp = Math.min(side - 1, (int) (inQuarter * scale));
+            int jm = Math.min(side - 1, (int) ((1 - inQuarter) * scale));
+            if (z >= 0) {
+                face = quarter;
+                ix = side - jm - 1;
+                iy = side - jp - 1;
+            } else {
+                face = quarter + 8;
+                ix = jp;
+                iy = jm;
+            }
+        }
+        return (face << (2 * order)) | spread(ix) | (spread(iy) << 1);
+    }
+
+    /**
+     * Return the unit vector of the center of the given tile
+     *
+     * @param order : the order (between 0 and MAX_ORDER)
+     * @param tile  : the index of the tile
+     * @return : the unit vector (x, y and z) of the center of the tile
+     * @throws IllegalArgumentException : if the order is not between 0 and MAX_ORDER
+     * @throws IndexOutOfBoundsException : if the index is not the one of a tile of the order
+     */
+    public static double[] tileCenter(int order, int tile) {
+        Preconditions.checkArgument(0 <= order && order <= MAX_ORDER);
+        Objects.checkIndex(tile, tileCount(order));
+        int side = 1 << order;
+        int face = tile >> (2 * order);
+        int inFace = tile & ((1 << (2 * order)) - 1);
+        int ix = compress(inFace), iy = compress(inFace >> 1);
+
+        int ring = BASE_ROWS[face] * side - ix - iy - 1;
+        int ringSize, shift;
+        double z;
+        if (ring < side) {
+            ringSize = ring;
+            z = 1 - (double) ringSize * ringSize / (3d * side * side);
+            shift = 0;
+        } else if (ring > 3 * side) {
+            ringSize = 4 * side - ring;
+            z = (double) ringSize * ringSize / (3d * side * side) - 1;
+            shift = 0;
+        } else {
+            ringSize = side;
+            z = (2d * side - ring) * 2 / (3d * side);
+            shift = (ring - side) & 1;
+        }
+        int column = (BASE_COLUMNS[face] * ringSize + ix - iy + 1 + shift) / 2;
+        if (column > 4 * side) {
+            column -= 4 * side;
+        } else if (column < 1) {
+            column += 4 * side;
+        }
+        double phi = (column - (shift + 1) * 0.5) * (Math.PI / 2 / ringSize);
+        double sinTheta = Math.sqrt((1 - z) * (1 + z));
+        return new double[]{sinTheta * Math.cos(phi), sinTheta * Math.sin(phi), z};
+    }
+
+    /**
+     * Return the order of the tiling
+     *
+     * @return : the order of the tiling
+     */
+    public int order() {
+        return order;
+    }
+
+    /**
+     * Return the number of stars of the tiling
+     *
+     * @return : the number of stars of the tiling
+     */
+    public int starCount() {
+        return starIndices.capacity();
+    }
+
+    /**
+     * Return a read-only view of the indices (in the catalogue) of the stars, in the order of their tiles
+     *
+     * @return : a read-only view of the indices of the stars, in the order of their tiles
+     */
+    public IntBuffer starIndices() {
+        return starIndices.asReadOnlyBuffer();
+    }
+
+    /**
+     * Return the position in {@link #starIndices()} of the first star of the given tile
+     *
+     * @param order : the order of the tile (between 0 and the order of the tiling)
+     * @param tile  : the index of the tile
+     * @return : the position of the first star of the tile
+     * @throws IllegalArgumentException : if the order is not between 0 and the order of the tiling
+     * @throws IndexOutOfBoundsException : if the index is not the one of a tile of the order
+     */
+    public int tileStart(int order, int tile) {
+        Preconditions.checkArgument(0 <= order && order <= this.order);
+        Objects.checkIndex(tile, tileCount(order));
+        return tileOffsets[tile << (2 * (this.order - order))];
+    }
+
+    /**
+     * Return the position in {@link #starIndices()} after the last star of the given tile
+     *
+     * @param order : the order of the tile (between 0 and the order of the tiling)
+     * @param tile  : the index of the tile
+     * @return : the position after the last star of the tile
+     * @throws IllegalArgumentException : if the order is not between 0 and the order of the tiling
+     * @throws IndexOutOfBoundsException : if the index is not the one of a tile of the order
+     */
+    public int tileEnd(int order, int tile) {
+        Preconditions.checkArgument(0 <= order && order <= this.order);
+        Objects.checkIndex(tile, tileCount(order));
+        return tileOffsets[(tile + 1) << (2 * (this.order - order))];
+    }
+
+    /**
+     * Return the indices (in the catalogue, in increasing order) of the stars closer to the given center than
+     * the given angle
+     * <p>
+     * The tiles are visited from the order 0, a tile being skipped if it is out of the cone, taken as a whole if
+     * it is in the cone, and split otherwise (its stars being tested one by one at the order of the tiling)
+     *
+     * @param center : the center of the cone
+     * @param radius : the angle (in radians) between the center and the border of the cone
+     * @return : the indices of the stars in the cone
+     */
+    public int[] starsInCone(EquatorialCoordinates center, double radius) {
+        double[] c = unitVector(center.ra(), center.dec());
+        double minCosine = Math.cos(radius);
+        return query((k, tileCenter) -> {
+            double separation = Math.acos(Math.max(-1, Math.min(1, dot(c, tileCenter, 0))));
+            if (separation - maxTileRadii[k] > radius) {
+                return OUTSIDE;
+            }
+            return (separation + maxTileRadii[k] <= radius) ? INSIDE : PARTIAL;
+        }, (vectors, v) -> dot(c, vectors, v) >= minCosine);
+    }
+
+    /**
+     * Return the indices (in the catalogue, in increasing order) of the stars in the given convex polygon,
+     * whose sides are arcs of great circles
+     *
+     * @param vertices : the vertices of the polygon, counter-clockwise seen from outside of the sphere
+     *                 (the polygon being at the left of its sides)
+     * @return : the indices of the stars in the polygon
+     * @throws IllegalArgumentException : if the polygon has less than 3 vertices or two consecutive vertices which
+     *                                  are equal or opposite
+     */
+    public int[] starsInPolygon(List<EquatorialCoordinates> vertices) {
+        Preconditions.checkArgument(vertices.size() >= 3);
+        //normals of the planes of the sides, pointing inside the polygon
+        double[][] normals = new double[vertices.size()][];
+        for (int i = 0; i < vertices.size(); ++i) {
+            EquatorialCoordinates from = vertices.get(i), to = vertices.get((i + 1) % vertices.size());
+            double[] a = unitVector(from.ra(), from.dec()), b = unitVector(to.ra(), to.dec());
+            double[] n = {a[1] * b[2] - a[2] * b[1], a[2] * b[0] - a[0] * b[2], a[0] * b[1] - a[1] * b[0]};
+            double norm = Math.sqrt(dot(n, n, 0));
+            Preconditions.checkArgument(norm > 1e-12);
+            for (int j = 0; j < 3; ++j) {
+                n[j] /= norm;
+            }
+            normals[i] = n;
+        }
+
+        return query((k, tileCenter) -> {
+            //sine of the angle between the tile and the great circle of each side
+            double sinRadius = Math.sin(Math.min(maxTileRadii[k], Math.PI / 2));
+            boolean inside = true;
+            for (double[] n : normals) {
+                double sine = dot(n, tileCenter, 0);
+                if (sine < -sinRadius) {
+                    return OUTSIDE;
+                }
+                inside &= sine >= sinRadius;
+            }
+            return inside ? INSIDE : PARTIAL;
+        }, (vectors, v) -> {
+            for (double[] n : normals) {
+                if (dot(n, vectors, v) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * The position of a tile relative to a region (OUTSIDE, INSIDE or PARTIAL)
+     */
+    @FunctionalInterface
+    private interface TileTest {
+        int test(int order, double[] tileCenter);
+    }
+
+    /**
+     * The test of a star against a region, given the unit vectors and the index of its x
+     */
+    @FunctionalInterface
+    private interface StarTest {
+        boolean test(DoubleBuffer unitVectors, int index);
+    }
+
+    /**
+     * Return the indices (in increasing order) of the stars of the region tested by the given tests
+     *
+     * @param tileTest : the test of a tile
+     * @param starTest : the test of a star of a tile partially in the region, at the order of the tiling
+     * @return : the indices of the stars of the region
+     */
+    private int[] query(TileTest tileTest, StarTest starTest) {
+        int[] result = new int[16];
+        int size = 0;
+        //tiles to visit, as (order, tile) pairs
+        int[] stack = new int[2 * (BASE_TILE_COUNT + 3 * order + 3)];
+        int top = 0;
+        for (int tile = BASE_TILE_COUNT - 1; tile >= 0; --tile) {
+            stack[top++] = 0;
+            stack[top++] = tile;
+        }
+        while (top > 0) {
+            int tile = stack[--top], k = stack[--top];
+            int start = tileStart(k, tile), end = tileEnd(k, tile);
+            if (start == end) {
+                continue;
+            }
+            int position = tileTest.test(k, tileCenter(k, tile));
+            if (position == OUTSIDE) {
+                continue;
+            }
+            if (position == PARTIAL && k < order) {
+                for (int child = 4 * tile + 3; child >= 4 * tile; --child) {
+                    stack[top++] = k + 1;
+                    stack[top++] = child;
+                }
+                continue;
+            }
+            if (size + end - start > result.length) {
+                result = Arrays.copyOf(result, Math.max(2 * result.length, size + end - start));
+            }
+            for (int slot = start; slot < end; ++slot) {
+                if (position == INSIDE || starTest.test(unitVectors, 3 * slot)) {
+                    result[size++] = starIndices.get(slot);
+                }
+            }
+        }
+        int[] indices = Arrays.copyOf(result, size);
+        Arrays.sort(indices);
+        return indices;
+    }
+
+    /**
+     * Return an upper bound of the angle between the center of a tile of the given order and its farthest point
+     *
+     * @param order : the order
+     * @return : an upper bound of the radius of the tiles of the order (in radians)
+     */
+    private static double maxTileRadius(int order) {
+        int side = 1 << order;
+        double[] a = unitVectorOfZPhi(2d / 3, Math.PI / (4 * side));
+        double t = 1 - 1d / side;
+        double[] b = unitVectorOfZPhi(1 - t * t / 3, 0);
+        double angle = Math.acos(Math.max(-1, Math.min(1, dot(a, b, 0))));
+        //margin for the rounding errors of the tests
+        return angle * (1 + 1e-9) + 1e-12;
+    }
+
+    private static double[] unitVector(double ra, double dec) {
+        double cosDec = Math.cos(dec);
+        return new double[]{cosDec * Math.cos(ra), cosDec * Math.sin(ra), Math.sin(dec)};
+    }
+
+    private static double[] unitVectorOfZPhi(double z, double phi) {
+        double sinTheta = Math.sqrt((1 - z) * (1 + z));
+        return new double[]{sinTheta * Math.cos(phi), sinTheta * Math.sin(phi), z};
+    }
+
+    private static double dot(double[] a, double[] vectors, int index) {
+        return a[0] * vectors[index] + a[1] * vectors[index + 1] + a[2] * vectors[index + 2];
+    }
+
+    private static double dot(double[] a, DoubleBuffer vectors, int index) {
+        return a[0] * vectors.get(index) + a[1] * vectors.get(index + 1) + a[2] * vectors.get(index + 2);
+    }
+
+    /**
+     * Return the given bits separated by zeros (bit i at position 2i)
+     *
+     * @param bits : the bits (at most 16)
+     * @return : the bits separated by zeros
+     */
+    private static int spread(int bits) {
+        bits = (bits | (bits << 8)) & 0x00FF00FF;
+        bits = (bits | (bits << 4)) & 0x0F0F0F0F;
+        bits = (bits | (bits << 2)) & 0x33333333;
+        return (bits | (bits << 1)) & 0x55555555;
+    }
+
+    /**
+     * Return the bits at even positions of the given bits, contiguous (inverse of {@link #spread(int)})
+     *
+     * @param bits : the bits
+     * @return : the bits at even positions, contiguous
+     */
+    private static int compress(int bits) {
+        bits &= 0x55555555;
+        bits = (bits | (bits >>> 1)) & 0x33333333;
+        bits = (bits | (bits >>> 2)) & 0x0F0F0F0F;
+        bits = (bits | (bits >>> 4)) & 0x00FF00FF;
+        return (bits | (bits >>> 8)) & 0x0000FFFF;
+    }
+}
@@ -4,6 +4,8 @@ import ch.epfl.rigel.Preconditions;
 import ch.epfl.rigel.coordinates.EquatorialCoordinates;
 import ch.epfl.rigel.math.ClosedInterval;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 /**
  * a star
  *
@@ -13,11 +15,17 @@ import ch.epfl.rigel.math.ClosedInterval;
 
 public final class Star extends CelestialObject {
 
-    private static final ClosedInterval COLOR_INDEX_INTERVAL = ClosedInterval.of(-0.5, 5.5);
+    static final ClosedInterval COLOR_INDEX_INTERVAL = ClosedInterval.of(-0.5, 5.5);
 
     private final int hipparcosId;
     private final float colorIndex;
+    private final float properMotionRa, properMotionDec;
     private int colorTemperature;
+    private NameHeap nameHeap;
+    private int nameStart, nameEnd;
+    private String name;
+    private final Object source;
+    private final int sourceIndex;
 
     /**
      * Constructor of the Star
@@ -35,6 +43,127 @@ public final class Star extends CelestialObject {
         this.hipparcosId = hipparcosId;
         this.colorIndex = colorIndex;
         colorTemperature = (int) (4600 * (1 / (0.92 * colorIndex + 1.7) + 1 / (0.92 * colorIndex + 0.62)));
+        properMotionRa = properMotionDec = 0;
+        nameHeap = null;
+        nameStart = nameEnd = 0;
+        source = null;
+        sourceIndex = -1;
+    }
+
+    /**
+     * Constructor of a star whose name is stored in a name heap, the name being turned into a string
+     * only when it is read for the first time
+     *
+     * @param hipparcosId     : the Hipparcos number
+     * @param nameHeap        : the heap containing the name of the star
+     * @param nameStart       : the start of the name in the heap
+     * @param nameEnd         : the end (exclusive) of the name in the heap
+     * @param equatorialPos   : the equatorial position of the star
+     * @param magnitude       : the magnitude of the star
+     * @param colorIndex      : the color index
+     * @param properMotionRa  : the proper motion in right ascension (in radians per year, multiplied by the cosine
+     *                        of the declination)
+     * @param properMotionDec : the proper motion in declination (in radians per year)
+     * @throws : IllegalArgumentException if the Hipparcos number is negative, if the color index is not contained
+     *           in [-0.5, 5.5], if a proper motion is not finite or if the name is not in the heap
+     */
+    Star(int hipparcosId, NameHeap nameHeap, int nameStart, int nameEnd, EquatorialCoordinates equatorialPos,
+         float magnitude, float colorIndex, float properMotionRa, float properMotionDec) {
+        this(hipparcosId, nameHeap, nameStart, nameEnd, equatorialPos, magnitude, colorIndex, properMotionRa,
+                properMotionDec, null, -1);
+    }
+
+    /**
+     * Constructor of a star read from a star table (or a table under construction), whose name is stored in the
+     * name heap of the table, and which knows its index in the table
+     *
+     * @param hipparcosId     : the Hipparcos number
+     * @param nameHeap        : the heap containing the name of the star
+     * @param nameStart       : the start of the name in the heap
+     * @param nameEnd         : the end (exclusive) of the name in the heap
+     * @param equatorialPos   : the equatorial position of the star
+     * @param magnitude       : the magnitude of the star
+     * @param colorIndex      : the color index
+     * @param properMotionRa  : the proper motion in right ascension (in radians per year, multiplied by the cosine
+     *                        of the declination)
+     * @param properMotionDec : the proper motion in declination (in radians per year)
+     * @param source          : the table (or table builder) the star is read from, or null
+     * @param sourceIndex     : the index of the star in its table
+     * @throws : IllegalArgumentException if the Hipparcos number is negative, if the color index is not contained
+     *           in [-0.5, 5.5], if a proper motion is not finite or if the name is not in the heap
+     */
+    Star(int hipparcosId, NameHeap nameHeap, int nameStart, int nameEnd, EquatorialCoordinates equatorialPos,
+         float magnitude, float colorIndex, float properMotionRa, float properMotionDec, Object source,
+         int sourceIndex) {
+        super(equatorialPos, 0, magnitude);
+        Preconditions.checkArgument(!(hipparcosId < 0 || !(COLOR_INDEX_INTERVAL.contains(colorIndex))));
+        Preconditions.checkArgument(0 <= nameStart && nameStart <= nameEnd && nameEnd <= nameHeap.size());
+        Preconditions.checkArgument(Float.isFinite(properMotionRa) && Float.isFinite(properMotionDec));
+        this.hipparcosId = hipparcosId;
+        this.colorIndex = colorIndex;
+        colorTemperature = (int) (4600 * (1 / (0.92 * colorIndex + 1.7) + 1 / (0.92 * colorIndex + 0.62)));
+        this.properMotionRa = properMotionRa;
+        this.properMotionDec = properMotionDec;
+        this.nameHeap = nameHeap;
+        this.nameStart = nameStart;
+        this.nameEnd = nameEnd;
+        this.source = source;
+        this.sourceIndex = sourceIndex;
+    }
+
+    /**
+     * Return the name of the star (turned into a string at the first call if it is stored in a name heap)
+     *
+     * @return : the name of the star
+     */
+    @Override
+    public String name() {
+        if (nameHeap == null) {
+            return super.name();
+        }
+        //a string being immutable, two threads can at worst both create it
+        String name = this.name;
+        if (name == null) {
+            name = nameHeap.string(nameStart, nameEnd);
+            this.name = name;
+        }
+        return name;
+    }
+
+    /**
+     * Return the UTF-8 bytes of the name of the star, without turning it into a string if it is stored in a name heap
+     *
+     * @return : a new array containing the UTF-8 bytes of the name of the star
+     */
+    byte[] nameBytes() {
+        return (nameHeap == null) ? super.name().getBytes(UTF_8) : nameHeap.bytes(nameStart, nameEnd);
+    }
+
+    /**
+     * Store the name of the star in the given heap from now on, the heap containing the same bytes at the given range
+     * (for a built catalogue to keep the names of its stars once, in the heap of its table, and not the heap
+     * the stars were loaded in); to be called before the star is shared with other threads
+     *
+     * @param nameHeap  : the heap
+     * @param nameStart : the start of the name in the heap
+     * @param nameEnd   : the end (exclusive) of the name in the heap
+     */
+    void moveNameTo(NameHeap nameHeap, int nameStart, int nameEnd) {
+        if (this.nameHeap != null) {
+            this.nameHeap = nameHeap;
+            this.nameStart = nameStart;
+            this.nameEnd = nameEnd;
+        }
+    }
+
+    /**
+     * Return the index of the star in the given table (or table builder), if it was read from it
+     *
+     * @param source : the table or table builder
+     * @return : the index of the star in the given table, or -1 if it was not read from it
+     */
+    int indexIn(Object source) {
+        return (source != null && this.source == source) ? sourceIndex : -1;
     }
 
     /**
@@ -46,6 +175,34 @@ public final class Star extends CelestialObject {
         return hipparcosId;
     }
 
+    /**
+     * Return the color index of the star
+     *
+     * @return : the color index of the star
+     */
+    public float colorIndex() {
+        return colorIndex;
+    }
+
+    /**
+     * Return the proper motion in right ascension of the star, in radians per year, multiplied by the cosine
+     * of the declination (0 if it is unknown)
+     *
+     * @return : the proper motion in right ascension of the star
+     */
+    public float properMotionRa() {
+        return properMotionRa;
+    }
+
+    /**
+     * Return the proper motion in declination of the star, in radians per year (0 if it is unknown)
+     *
+     * @return : the proper motion in declination of the star
+     */
+    public float properMotionDec() {
+        return properMotionDec;
+    }
+
     /**
      * Return the color temperature of the star in Kelvin (rounded down)
      *
@@ -1,8 +1,14 @@
 package ch.epfl.rigel.astronomy;
 
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.function.ToIntFunction;
 
 /**
  * a star and asterism catalogue
@@ -13,29 +19,140 @@ import java.util.*;
 public final class StarCatalogue {
 
     private final List<Star> stars;
-    private final Map<Asterism, List<Integer>> asterismMap;
+    private final StarTable starTable;
+    private final int[] originalIndices;
+    private final Map<Star, Integer> starIndices;
+    private final Map<Star, Integer> asterismStarIndicesByStar;
+    private final IntToIntMap hipparcosIndices;
+    private final Map<Asterism, Integer> asterismPositions;
+    private final Set<Asterism> asterisms;
+    private final int[] asterismOffsets;
+    private final int[] asterismStarIndices;
+    private final boolean propagatesProperMotions;
+    private SkyTiling tiling;
+    private ProperMotionPropagator properMotionPropagator;
 
     /**
-     * The constructor of the catalogue
+     * The constructor of the catalogue (keeping the given stars, next to their table, and finding the stars of the
+     * asterisms by identity)
      *
      * @param stars     : a list of stars
      * @param asterisms : a list of asterisms
      * @throws : IllegalArgumentException if an asterism contains a star which is not in the star list
      */
     public StarCatalogue(List<Star> stars, List<Asterism> asterisms) {
-        asterismMap = new HashMap<>();
+        this(Collections.unmodifiableList(List.copyOf(stars)), null, true, null, null, asterisms, null);
+    }
+
+    /**
+     * Constructor of a catalogue whose stars are only stored in the given table (possibly off-heap),
+     * the stars of the list being created on access, and whose asterisms are made of stars read from the table
+     *
+     * @param starTable       : the table containing the stars
+     * @param originalIndices : the original index of each star if the stars are sorted by magnitude, otherwise null
+     * @param asterisms       : a list of asterisms, made of stars read from the table (see {@link StarTable#star(int)})
+     * @throws : IllegalArgumentException if an asterism contains a star which was not read from the table
+     */
+    StarCatalogue(StarTable starTable, int[] originalIndices, List<Asterism> asterisms) {
+        this(starTable.asList(), starTable, false, originalIndices, null, asterisms, null);
+    }
+
+    /**
+     * Constructor of the catalogue
+     *
+     * @param stars            : the (unmodifiable) star list
+     * @param starTable        : the table containing the stars, or null if it must be built from the list
+     * @param byIdentity       : true if the stars of the list are found by identity, false if the stars of the list
+     *                         are created on access from the table
+     * @param originalIndices  : the original index of each star if the stars are sorted by magnitude, otherwise null
+     * @param hipparcosIndices : the index of the first star of each Hipparcos number (not modified later), or null
+     *                         if it must be built from the table
+     * @param asterisms        : a list of asterisms
+     * @param indexInTable     : the index in the table of each star of the asterisms (negative for a star which is
+     *                         not in the table), or null if it is given by {@link #indexOf(Star)}
+     * @throws : IllegalArgumentException if an asterism contains a star which is not in the table
+     */
+    private StarCatalogue(List<Star> stars, StarTable starTable, boolean byIdentity, int[] originalIndices,
+                          IntToIntMap hipparcosIndices, List<Asterism> asterisms, ToIntFunction<Star> indexInTable) {
+        this.stars = stars;
+        this.starTable = (starTable == null) ? StarTable.onHeap(stars) : starTable;
+        this.originalIndices = originalIndices;
+        if (byIdentity) {
+            starIndices = new IdentityHashMap<>(stars.size());
+            for (int i = 0; i < stars.size(); ++i) {
+                starIndices.putIfAbsent(stars.get(i), i);
+            }
+        } else {
+            starIndices = null;
+        }
+
+        int starCount = this.starTable.size();
+        if (hipparcosIndices == null) {
+            //the stars without Hipparcos number (0) are not indexed
+            hipparcosIndices = new IntToIntMap(starCount);
+            for (int i = 0; i < starCount; ++i) {
+                int hipparcosId = this.starTable.hipparcosId(i);
+                if (hipparcosId != 0) {
+                    hipparcosIndices.putIfAbsent(hipparcosId, i);
+                }
+            }
+        }
+        this.hipparcosIndices = hipparcosIndices;
+
+        //asterisms in compressed sparse row layout: the indices of the stars of the asterism at position p
+        //are asterismStarIndices[asterismOffsets[p]] to asterismStarIndices[asterismOffsets[p + 1] - 1]
+        asterismPositions = new HashMap<>();
+        int asterismStarCount = 0;
+        for (Asterism asterism : asterisms) {
+            if (asterismPositions.putIfAbsent(asterism, asterismPositions.size()) == null) {
+                asterismStarCount += asterism.stars().size();
+            }
+        }
+        asterismOffsets = new int[asterismPositions.size() + 1];
+        asterismStarIndices = new int[asterismStarCount];
+        //the stars of the asterisms of a catalogue whose stars are created on access are kept, to be found by identity
+        asterismStarIndicesByStar = byIdentity ? null : new IdentityHashMap<>();
+        int offset = 0, nextPosition = 0;
         for (Asterism asterism : asterisms) {
-            List<Integer> index = new ArrayList<>();
-            List<Star> asterismList = asterism.stars();
-            for (Star starOfAsterism : asterismList) {
-                if (!stars.contains(starOfAsterism)) {
+            if (asterismPositions.get(asterism) < nextPosition) {
+                //asterism already given before
+                continue;
+            }
+            for (Star starOfAsterism : asterism.stars()) {
+                int starIndex = (indexInTable == null) ? indexOf(starOfAsterism)
+                        : indexInTable.applyAsInt(starOfAsterism);
+                if (starIndex < 0) {
                     throw new IllegalArgumentException();
                 }
-                index.add(stars.indexOf(starOfAsterism));
+                asterismStarIndices[offset++] = starIndex;
+                if (asterismStarIndicesByStar != null) {
+                    asterismStarIndicesByStar.putIfAbsent(starOfAsterism, starIndex);
+                }
             }
-            asterismMap.put(asterism, index);
+            asterismOffsets[++nextPosition] = offset;
         }
-        this.stars = Collections.unmodifiableList(List.copyOf(stars));
+        this.asterisms = Set.copyOf(asterismPositions.keySet());
+        propagatesProperMotions = false;
+    }
+
+    /**
+     * Constructor of a catalogue sharing the stars, the asterisms and the indices of the given one, whose stars are
+     * moved according to their proper motions when they are observed
+     *
+     * @param catalogue : the catalogue whose stars and asterisms are shared
+     */
+    private StarCatalogue(StarCatalogue catalogue) {
+        stars = catalogue.stars;
+        starTable = catalogue.starTable;
+        originalIndices = catalogue.originalIndices;
+        starIndices = catalogue.starIndices;
+        asterismStarIndicesByStar = catalogue.asterismStarIndicesByStar;
+        hipparcosIndices = catalogue.hipparcosIndices;
+        asterismPositions = catalogue.asterismPositions;
+        asterisms = catalogue.asterisms;
+        asterismOffsets = catalogue.asterismOffsets;
+        asterismStarIndices = catalogue.asterismStarIndices;
+        propagatesProperMotions = true;
     }
 
     /**
@@ -47,13 +164,104 @@ public final class StarCatalogue {
         return stars;
     }
 
+    /**
+     * Return the stars of the catalogue stored by columns (in the order of the star list)
+     *
+     * @return : the stars of the catalogue stored by columns
+     */
+    public StarTable starTable() {
+        return starTable;
+    }
+
+    /**
+     * Return the hierarchical tiling of the sky holding the stars of the catalogue by tile, built at the first call,
+     * for the stars in a cone or a polygon to be found without going through all the stars
+     *
+     * @return : the tiling of the stars of the catalogue
+     */
+    public synchronized SkyTiling tiling() {
+        if (tiling == null) {
+            tiling = SkyTiling.of(starTable);
+        }
+        return tiling;
+    }
+
+    /**
+     * Return the positions of the stars of the catalogue at the given time, according to their proper motions
+     * (see {@link ProperMotionPropagator#positionsAt(ZonedDateTime)}), the propagator being created at the first call
+     *
+     * @param when : the time
+     * @return : a read-only view of the positions of the stars (ra of the star of index i at index 2i, dec at index 2i + 1)
+     */
+    public DoubleBuffer starPositionsAt(ZonedDateTime when) {
+        return properMotionPropagator().positionsAt(when);
+    }
+
+    /**
+     * Return the unit vectors of the stars of the catalogue at the given time, according to their proper motions
+     * (see {@link ProperMotionPropagator#unitVectorsAt(ZonedDateTime)}), the propagator being created at the first call
+     *
+     * @param when : the time
+     * @return : a read-only view of the unit vectors of the stars (x, y and z of the star of index i at indices 3i,
+     * 3i + 1 and 3i + 2)
+     */
+    public DoubleBuffer starUnitVectorsAt(ZonedDateTime when) {
+        return properMotionPropagator().unitVectorsAt(when);
+    }
+
+    /**
+     * Return the unit vectors of the stars of the catalogue observed at the given time: moved according to their
+     * proper motions if the catalogue propagates them (see {@link #withProperMotions()}), otherwise at J2000
+     * like the positions of the stars of the list
+     *
+     * @param when : the observation time
+     * @return : a read-only view of the unit vectors of the stars (x, y and z of the star of index i at indices 3i,
+     * 3i + 1 and 3i + 2)
+     */
+    public DoubleBuffer observedStarUnitVectors(ZonedDateTime when) {
+        //the bucket 0 is the epoch J2000
+        return propagatesProperMotions ? starUnitVectorsAt(when) : properMotionPropagator().unitVectorsAtBucket(0);
+    }
+
+    /**
+     * Return true if the stars of the catalogue are moved according to their proper motions when they are observed
+     * (see {@link #withProperMotions()})
+     *
+     * @return : true if the stars of the catalogue are moved according to their proper motions when they are observed
+     */
+    public boolean propagatesProperMotions() {
+        return propagatesProperMotions;
+    }
+
+    /**
+     * Return a catalogue of the same stars and asterisms (sharing them, without any copy), whose stars are moved
+     * according to their proper motions since J2000 when they are observed (see {@link HorizontalSky})
+     *
+     * @return : a catalogue of the same stars and asterisms, whose stars are moved according to their proper motions
+     */
+    public StarCatalogue withProperMotions() {
+        return propagatesProperMotions ? this : new StarCatalogue(this);
+    }
+
+    /**
+     * Return the propagator of the stars of the catalogue, created at the first call
+     *
+     * @return : the propagator of the stars of the catalogue
+     */
+    private synchronized ProperMotionPropagator properMotionPropagator() {
+        if (properMotionPropagator == null) {
+            properMotionPropagator = new ProperMotionPropagator(starTable);
+        }
+        return properMotionPropagator;
+    }
+
     /**
      * Return the asterism set of the catalogue
      *
      * @return : the asterism set of the catalogue
      */
     public Set<Asterism> asterisms() {
-        return Set.copyOf(asterismMap.keySet());
+        return asterisms;
     }
 
     /**
@@ -64,10 +272,169 @@ public final class StarCatalogue {
      * @throws : IllegalArgumentException if the given asterism is not in the asterism list of the catalogue
      */
     public List<Integer> asterismIndices(Asterism asterism) {
-        if (asterismMap.get(asterism) == null) {
+        Integer position = asterismPositions.get(asterism);
+        if (position == null) {
             throw new IllegalArgumentException();
         }
-        return List.copyOf(asterismMap.get(asterism));
+        List<Integer> indices = new ArrayList<>();
+        for (int i = asterismOffsets[position]; i < asterismOffsets[position + 1]; ++i) {
+            indices.add(asterismStarIndices[i]);
+        }
+        return Collections.unmodifiableList(indices);
+    }
+
+    /**
+     * Return the number of asterisms of the catalogue
+     *
+     * @return : the number of asterisms of the catalogue
+     */
+    public int asterismCount() {
+        return asterismOffsets.length - 1;
+    }
+
+    /**
+     * Return a read-only view of the asterism offsets: the indices of the stars of the asterism number a
+     * are between the offsets a (inclusive) and a + 1 (exclusive) of {@link #asterismStarIndices()}
+     *
+     * @return : a read-only view of the asterism offsets (asterismCount() + 1 values)
+     */
+    public IntBuffer asterismOffsets() {
+        return IntBuffer.wrap(asterismOffsets).asReadOnlyBuffer();
+    }
+
+    /**
+     * Return a read-only view of the indices (in the star catalogue) of the stars of all the asterisms, one after the other
+     *
+     * @return : a read-only view of the indices of the stars of all the asterisms
+     */
+    public IntBuffer asterismStarIndices() {
+        return IntBuffer.wrap(asterismStarIndices).asReadOnlyBuffer();
+    }
+
+    /**
+     * Return the index of the given star in the star list of the catalogue (found by identity: for a catalogue whose
+     * stars are created on access, the star must have been read from the catalogue, or be a star of its asterisms)
+     *
+     * @param star : the star
+     * @return : the index of the star in the star list of the catalogue, or -1 if it is not in the catalogue
+     */
+    public int indexOf(Star star) {
+        if (starIndices != null) {
+            return starIndices.getOrDefault(star, -1);
+        }
+        int index = star.indexIn(starTable);
+        return (index >= 0 || asterismStarIndicesByStar == null) ? index
+                : asterismStarIndicesByStar.getOrDefault(star, -1);
+    }
+
+    /**
+     * Return the (first) star of the catalogue having the given Hipparcos number
+     *
+     * @param hipparcosId : the Hipparcos number
+     * @return : the star having the given Hipparcos number, or nothing if there is none in the catalogue
+     * (nor for 0, the number of the stars without Hipparcos number)
+     */
+    public Optional<Star> starByHipparcos(int hipparcosId) {
+        int index = hipparcosIndices.get(hipparcosId);
+        return (index == IntToIntMap.ABSENT) ? Optional.empty() : Optional.of(stars.get(index));
+    }
+
+    /**
+     * Return true if the stars of the catalogue are sorted by increasing magnitude (see {@link Builder#sortedByMagnitude()})
+     *
+     * @return : true if the stars of the catalogue are sorted by increasing magnitude
+     */
+    public boolean isSortedByMagnitude() {
+        return originalIndices != null;
+    }
+
+    /**
+     * Return the index the star of the given index had when it was added to the builder of the catalogue
+     * (the same index if the stars are not sorted by magnitude)
+     *
+     * @param index : the index of the star in the catalogue
+     * @return : the index the star had when it was added to the builder of the catalogue
+     * @throws IndexOutOfBoundsException : if the index is not the index of a star of the catalogue
+     */
+    public int originalIndexOf(int index) {
+        Objects.checkIndex(index, stars.size());
+        return (originalIndices == null) ? index : originalIndices[index];
+    }
+
+    /**
+     * Return the number of stars of the catalogue having a magnitude lower or equal to the given one,
+     * which are the first stars of the catalogue as it is sorted by magnitude (computed by binary search)
+     *
+     * @param maxMagnitude : the limiting magnitude
+     * @return : the number of stars of the catalogue having a magnitude lower or equal to the given one
+     * @throws IllegalStateException : if the stars of the catalogue are not sorted by magnitude
+     */
+    public int starCountBrighterThan(double maxMagnitude) {
+        if (!isSortedByMagnitude()) {
+            throw new IllegalStateException("the stars of the catalogue are not sorted by magnitude");
+        }
+        return starTable.starCountBrighterThan(maxMagnitude);
+    }
+
+    /**
+     * Return the (unmodifiable) list of the stars of the catalogue having a magnitude lower or equal to the given one,
+     * a prefix view of the star list
+     *
+     * @param maxMagnitude : the limiting magnitude
+     * @return : the list of the stars of the catalogue having a magnitude lower or equal to the given one
+     * @throws IllegalStateException : if the stars of the catalogue are not sorted by magnitude
+     */
+    public List<Star> starsBrighterThan(double maxMagnitude) {
+        return stars.subList(0, starCountBrighterThan(maxMagnitude));
+    }
+
+    /**
+     * Return a new catalogue made of the stars of this catalogue having a magnitude lower or equal to the given one
+     * (in the same order), and of the asterisms of this catalogue made only of such stars
+     *
+     * @param maxMagnitude : the maximal magnitude of the stars
+     * @return : a new catalogue made of the stars of this catalogue which are at least as bright as the given magnitude
+     */
+    public StarCatalogue brighterThan(double maxMagnitude) {
+        //position of the star of each index in the new catalogue, or -1 if it is too faint
+        int[] newIndices = new int[starTable.size()];
+        List<Star> brightStars = new ArrayList<>();
+        StarTable.Builder brightTable = new StarTable.Builder(starTable.isOffHeap(), 0);
+        for (int i = 0; i < newIndices.length; ++i) {
+            if (starTable.magnitude(i) <= maxMagnitude) {
+                newIndices[i] = brightTable.size();
+                //the stars given to the constructor are kept, the other ones are copied row by row
+                if (starIndices != null) {
+                    brightStars.add(stars.get(i));
+                }
+                brightTable.add(starTable, i);
+            } else {
+                newIndices[i] = -1;
+            }
+        }
+        StarTable brightStarTable = brightTable.build();
+
+        List<Asterism> brightAsterisms = new ArrayList<>();
+        for (int p = 0; p < asterismCount(); ++p) {
+            List<Star> starsOfAsterism = new ArrayList<>();
+            for (int i = asterismOffsets[p]; i < asterismOffsets[p + 1] && starsOfAsterism != null; ++i) {
+                int newIndex = newIndices[asterismStarIndices[i]];
+                if (newIndex < 0) {
+                    starsOfAsterism = null;
+                } else {
+                    starsOfAsterism.add((starIndices != null) ? brightStars.get(newIndex)
+                            : brightStarTable.star(newIndex));
+                }
+            }
+            if (starsOfAsterism != null) {
+                brightAsterisms.add(new Asterism(starsOfAsterism));
+            }
+        }
+        StarCatalogue brightCatalogue = (starIndices != null)
+                ? new StarCatalogue(Collections.unmodifiableList(brightStars), brightStarTable, true, null, null,
+                brightAsterisms, null)
+                : new StarCatalogue(brightStarTable, null, brightAsterisms);
+        return propagatesProperMotions ? brightCatalogue.withProperMotions() : brightCatalogue;
     }
 
     /**
@@ -77,6 +444,13 @@ public final class StarCatalogue {
 
         private List<Star> stars;
         private List<Asterism> asterisms;
+        private StarTable.Builder offHeapStars;
+        private Map<Star, Integer> indicesBeforeOffHeap;
+        private boolean sortedByMagnitude;
+        private IntToIntMap hipparcosIndices;
+        private boolean mergedByHipparcos;
+        private PositionIndex positionIndex;
+        private int duplicateCount;
 
         /**
          * the default constructor (initialise the builder for it to be empty)
@@ -84,28 +458,159 @@ public final class StarCatalogue {
         public Builder() {
             stars = new ArrayList<>();
             asterisms = new ArrayList<>();
+            hipparcosIndices = new IntToIntMap(0);
         }
 
         /**
-         * Return a unmodifiable view of the star list of the builder under construction
+         * Return a unmodifiable view of the star list of the builder under construction, which sees the stars added
+         * later (the stars stored off-heap being created on access)
          *
          * @return : a unmodifiable view of the star list of the builder under construction
          */
         public List<Star> stars() {
-            return List.copyOf(stars);
+            return (offHeapStars == null) ? Collections.unmodifiableList(stars) : offHeapStars.asList();
+        }
+
+        /**
+         * Return the first star added to the builder having the given Hipparcos number
+         *
+         * @param hipparcosId : the Hipparcos number
+         * @return : the first star having the given Hipparcos number, or nothing if none was added
+         * (nor for 0, the number of the stars without Hipparcos number)
+         */
+        public Optional<Star> starByHipparcos(int hipparcosId) {
+            int index = hipparcosIndices.get(hipparcosId);
+            if (index == IntToIntMap.ABSENT) {
+                return Optional.empty();
+            }
+            return Optional.of((offHeapStars == null) ? stars.get(index) : offHeapStars.star(index));
+        }
+
+        /**
+         * Store the stars of the catalogue under construction off-heap (in direct buffers), for catalogues
+         * too large to be kept on the Java heap (the stars of the built catalogue being created on access from
+         * its table)
+         * <p>
+         * The stars of the asterisms must be stars read from the builder ({@link #stars()},
+         * {@link #starByHipparcos(int)}) or stars added before this call, the stars added afterwards being copied
+         * in the columns of the builder without being kept
+         * <p>
+         * The proper motion propagator and the tiling of the built catalogue are off-heap too, but its indices
+         * (about 16 bytes per star) and the skies computed from it are on the heap: 24 bytes per star for a
+         * {@link HorizontalSky} (see {@link HorizontalSkyCache} for the number of them kept) and 16 bytes per star
+         * brighter than the limiting magnitude for an {@link ObservedSky}, about 60 bytes per star in all once a sky
+         * is drawn (see OffHeapCatalogueBenchmark, in bench/)
+         *
+         * @return : the builder
+         */
+        public Builder offHeap() {
+            if (offHeapStars == null) {
+                offHeapStars = new StarTable.Builder(true, stars.size());
+                indicesBeforeOffHeap = new IdentityHashMap<>(stars.size());
+                for (Star star : stars) {
+                    indicesBeforeOffHeap.putIfAbsent(star, offHeapStars.size());
+                    offHeapStars.add(star);
+                }
+                stars = null;
+            }
+            return this;
         }
 
         /**
-         * Add the given star to the builder under construction
+         * Sort the stars of the catalogue under construction by increasing magnitude when it is built (stars of equal
+         * magnitude staying in the order in which they were added), for the stars brighter than a limiting
+         * magnitude to be a prefix of the star list
+         *
+         * @return : the builder
+         */
+        public Builder sortedByMagnitude() {
+            sortedByMagnitude = true;
+            return this;
+        }
+
+        /**
+         * Merge the stars added from now on (for example by loading several catalogues) with the stars already added:
+         * a star having the Hipparcos number of a star already added is ignored, unless the number is 0 (unknown)
+         *
+         * @return : the builder
+         */
+        public Builder mergedByHipparcos() {
+            mergedByHipparcos = true;
+            return this;
+        }
+
+        /**
+         * Merge the stars added from now on (for example by loading several catalogues) with the stars already added:
+         * a star closer than the given angular separation to a star already added is ignored
+         * (the stars already added being put in a spatial index, for each addition to take a constant time)
+         *
+         * @param maxSeparation : the maximal angular separation (in radians) of two stars considered the same
+         * @return : the builder
+         * @throws IllegalArgumentException : if the maximal separation is not in ]0, π]
+         */
+        public Builder mergedByPosition(double maxSeparation) {
+            int starCount = starCount();
+            positionIndex = new PositionIndex(maxSeparation, starCount);
+            StarTable starTable = (offHeapStars == null) ? null : offHeapStars.build();
+            for (int i = 0; i < starCount; ++i) {
+                if (starTable == null) {
+                    EquatorialCoordinates position = stars.get(i).equatorialPos();
+                    positionIndex.add(position.ra(), position.dec());
+                } else {
+                    positionIndex.add(starTable.ra(i), starTable.dec(i));
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Return the number of stars ignored so far because they were merged with a star already added
+         *
+         * @return : the number of stars ignored so far
+         */
+        public int duplicateCount() {
+            return duplicateCount;
+        }
+
+        /**
+         * Add the given star to the builder under construction, unless it is merged with a star already added
+         * (see {@link #mergedByHipparcos()} and {@link #mergedByPosition(double)})
          *
          * @param star : the star
          * @return : the builder
          */
         public Builder addStar(Star star) {
-            stars.add(star);
+            EquatorialCoordinates position = star.equatorialPos();
+            if ((mergedByHipparcos && star.hipparcosId() != 0
+                    && hipparcosIndices.get(star.hipparcosId()) != IntToIntMap.ABSENT)
+                    || (positionIndex != null && positionIndex.indexOfPositionNear(position.ra(), position.dec()) >= 0)) {
+                ++duplicateCount;
+                return this;
+            }
+
+            if (star.hipparcosId() != 0) {
+                hipparcosIndices.putIfAbsent(star.hipparcosId(), starCount());
+            }
+            if (positionIndex != null) {
+                positionIndex.add(position.ra(), position.dec());
+            }
+            if (offHeapStars == null) {
+                stars.add(star);
+            } else {
+                offHeapStars.add(star);
+            }
             return this;
         }
 
+        /**
+         * Return the number of stars added to the builder
+         *
+         * @return : the number of stars added to the builder
+         */
+        private int starCount() {
+            return (offHeapStars == null) ? stars.size() : offHeapStars.size();
+        }
+
         /**
          * Return a unmodifiable view of the asterism list of the builder under construction
          *
@@ -143,9 +648,67 @@ public final class StarCatalogue {
          * Build and return the star catalogue corresponding to the builder
          *
          * @return : the star catalogue corresponding to the builder
+         * @throws : IllegalArgumentException if an asterism contains a star which was not added to the builder
          */
         public StarCatalogue build() {
-            return new StarCatalogue(stars, asterisms);
+            int starCount = starCount();
+            int[] originalIndices = null;
+            if (sortedByMagnitude) {
+                //stable sort of the indices by magnitude, through (sortable magnitude bits, index) pairs packed in longs
+                long[] magnitudesAndIndices = new long[starCount];
+                for (int i = 0; i < starCount; ++i) {
+                    int bits = Float.floatToIntBits((offHeapStars == null)
+                            ? (float) stars.get(i).magnitude()
+                            : offHeapStars.magnitude(i));
+                    //the order of the bits of negative floats is reversed, for the ints to be ordered like the floats
+                    bits ^= (bits >> 31) & Integer.MAX_VALUE;
+                    magnitudesAndIndices[i] = ((long) bits << Integer.SIZE) | i;
+                }
+                Arrays.sort(magnitudesAndIndices);
+                originalIndices = new int[starCount];
+                for (int i = 0; i < starCount; ++i) {
+                    originalIndices[i] = (int) magnitudesAndIndices[i];
+                }
+            }
+
+            if (offHeapStars == null) {
+                //the stars of the loaders are kept, their names being moved to the heap of the table of the catalogue
+                //(for them not to be stored twice)
+                List<Star> catalogueStars = new ArrayList<>(starCount);
+                for (int i = 0; i < starCount; ++i) {
+                    catalogueStars.add(stars.get((originalIndices == null) ? i : originalIndices[i]));
+                }
+                StarTable starTable = StarTable.onHeap(catalogueStars);
+                for (int i = 0; i < starCount; ++i) {
+                    starTable.moveNameOf(catalogueStars.get(i), i);
+                }
+                //the Hipparcos index of the builder is reused if the stars are in the same order
+                return new StarCatalogue(Collections.unmodifiableList(catalogueStars), starTable, true,
+                        originalIndices, (originalIndices == null) ? hipparcosIndices.copy() : null, asterisms, null);
+            }
+
+            //the stars of the asterisms are found by their index in the builder
+            ToIntFunction<Star> indexInBuilder = star -> {
+                int index = star.indexIn(offHeapStars);
+                return (index >= 0) ? index : indicesBeforeOffHeap.getOrDefault(star, -1);
+            };
+            StarTable starTable = offHeapStars.build();
+            if (originalIndices == null) {
+                return new StarCatalogue(starTable.asList(), starTable, false, null, hipparcosIndices.copy(), asterisms,
+                        indexInBuilder);
+            }
+            StarTable.Builder sortedStars = new StarTable.Builder(true, starCount);
+            int[] sortedIndices = new int[starCount];
+            for (int i = 0; i < starCount; ++i) {
+                sortedStars.add(starTable, originalIndices[i]);
+                sortedIndices[originalIndices[i]] = i;
+            }
+            StarTable sortedStarTable = sortedStars.build();
+            return new StarCatalogue(sortedStarTable.asList(), sortedStarTable, false, originalIndices, null,
+                    asterisms, star -> {
+                        int index = indexInBuilder.applyAsInt(star);
+                        return (index >= 0) ? sortedIndices[index] : -1;
+                    });
         }
 
     }
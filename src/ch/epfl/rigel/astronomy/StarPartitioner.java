@@ -0,0 +1,134 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A way of running a computation on all the stars of a sky: either sequentially, or in parallel on a fork/join pool,
+ * the range of the stars being split in chunks (each chunk writing its results in its part of preallocated arrays)
+ * <p>
+ * A parallel partitioner runs sequentially the computations on fewer stars than its threshold,
+ * for which the cost of the tasks exceeds the gain, and all the computations if its pool has a single thread
+ *
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+public final class StarPartitioner {
+
+    public static final int DEFAULT_THRESHOLD = 1 << 14;
+    public static final StarPartitioner SEQUENTIAL = new StarPartitioner(null, Integer.MAX_VALUE);
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    /**
+     * Constructor of a partitioner
+     *
+     * @param pool      : the pool running the chunks, or null if they must be run sequentially
+     * @param threshold : the maximal number of stars of a chunk
+     */
+    private StarPartitioner(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Return a partitioner running the chunks on the common fork/join pool, with the default threshold
+     *
+     * @return : a parallel partitioner
+     */
+    public static StarPartitioner parallel() {
+        return parallel(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Return a partitioner running the chunks on the given pool, the computations on fewer stars than
+     * the threshold being run sequentially
+     *
+     * @param pool      : the pool
+     * @param threshold : the maximal number of stars of a chunk (strictly positive)
+     * @return : a parallel partitioner
+     * @throws IllegalArgumentException : if the threshold is not strictly positive
+     */
+    public static StarPartitioner parallel(ForkJoinPool pool, int threshold) {
+        Preconditions.checkArgument(threshold > 0);
+        return new StarPartitioner(pool, threshold);
+    }
+
+    /**
+     * Return true if the partitioner can run the chunks in parallel
+     *
+     * @return : true if the partitioner can run the chunks in parallel
+     */
+    public boolean isParallel() {
+        return pool != null;
+    }
+
+    /**
+     * Return the maximal number of stars of a chunk
+     *
+     * @return : the maximal number of stars of a chunk
+     */
+    public int threshold() {
+        return threshold;
+    }
+
+    /**
+     * Run the given action on the stars of indices 0 (inclusive) to size (exclusive), split in chunks of
+     * at most {@link #threshold()} stars (in a single chunk if the pool has a single thread),
+     * and return once all the chunks are done
+     *
+     * @param size   : the number of stars
+     * @param action : the action, run on disjoint ranges of stars (possibly concurrently)
+     */
+    void forEachChunk(int size, RangeAction action) {
+        if (pool == null || pool.getParallelism() <= 1 || size <= threshold) {
+            action.apply(0, size);
+        } else {
+            pool.invoke(new ChunkTask(0, size, action));
+        }
+    }
+
+    /**
+     * An action on a range of stars
+     */
+    @FunctionalInterface
+    interface RangeAction {
+        /**
+         * Apply the action to the stars of indices from (inclusive) to to (exclusive)
+         *
+         * @param from : the index of the first star
+         * @param to   : the index after the last star
+         */
+        void apply(int from, int to);
+    }
+
+    /**
+     * A task running the action on a range of stars, split in halves as long as it is larger than the threshold
+     */
+    private final class ChunkTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from, to;
+        private final RangeAction action;
+
+        private ChunkTask(int from, int to, RangeAction action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                action.apply(from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ChunkTask(from, middle, action), new ChunkTask(middle, to, action));
+            }
+        }
+    }
+}
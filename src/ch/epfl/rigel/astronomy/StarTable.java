@@ -0,0 +1,650 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+
+import java.nio.*;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * The stars of a catalogue stored by columns (one primitive buffer per attribute),
+ * the star of index i of the table being the star of index i of the catalogue
+ * <p>
+ * The columns are either stored on the Java heap or off-heap (in direct buffers), the content is the same
+ *
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+public final class StarTable {
+
+    private final int size;
+    private final boolean offHeap;
+    private final DoubleBuffer ra, dec;
+    private final FloatBuffer magnitude, colorIndex, properMotionRa, properMotionDec;
+    private final IntBuffer colorTemperature, hipparcosId, nameOffsets;
+    private final ShortBuffer colorPaletteIndex;
+    private final ByteBuffer names;
+    private final NameHeap nameHeap;
+
+    /**
+     * Constructor of a table (the columns are shared, not copied)
+     *
+     * @param builder : the builder containing the columns
+     */
+    private StarTable(Builder builder) {
+        size = builder.size;
+        offHeap = builder.offHeap;
+        ra = builder.ra.duplicate();
+        dec = builder.dec.duplicate();
+        magnitude = builder.magnitude.duplicate();
+        colorIndex = builder.colorIndex.duplicate();
+        properMotionRa = builder.properMotionRa.duplicate();
+        properMotionDec = builder.properMotionDec.duplicate();
+        colorTemperature = builder.colorTemperature.duplicate();
+        colorPaletteIndex = builder.colorPaletteIndex.duplicate();
+        hipparcosId = builder.hipparcosId.duplicate();
+        nameOffsets = builder.nameOffsets.duplicate();
+        names = builder.names.duplicate();
+        nameHeap = NameHeap.of(names.duplicate().limit(nameOffsets.get(size)));
+    }
+
+    /**
+     * Constructor of a table whose columns are views (not copies) of the given buffer, starting at its position
+     * in the layout written by {@link #writeTo(ByteBuffer)}; the position of the buffer is moved after the columns
+     *
+     * @param buffer       : the buffer containing the columns
+     * @param size         : the number of stars of the table
+     * @param nameHeapSize : the number of bytes of the names of the stars
+     */
+    private StarTable(ByteBuffer buffer, int size, int nameHeapSize) {
+        this.size = size;
+        offHeap = buffer.isDirect();
+        ra = column(buffer, size * Double.BYTES).asDoubleBuffer();
+        dec = column(buffer, size * Double.BYTES).asDoubleBuffer();
+        magnitude = column(buffer, size * Float.BYTES).asFloatBuffer();
+        colorIndex = column(buffer, size * Float.BYTES).asFloatBuffer();
+        properMotionRa = column(buffer, size * Float.BYTES).asFloatBuffer();
+        properMotionDec = column(buffer, size * Float.BYTES).asFloatBuffer();
+        colorTemperature = column(buffer, size * Integer.BYTES).asIntBuffer();
+        hipparcosId = column(buffer, size * Integer.BYTES).asIntBuffer();
+        nameOffsets = column(buffer, (size + 1) * Integer.BYTES).asIntBuffer();
+        colorPaletteIndex = column(buffer, size * Short.BYTES).asShortBuffer();
+        names = column(buffer, nameHeapSize);
+        nameHeap = NameHeap.of(names);
+    }
+
+    /**
+     * Constructor of a table made of the first stars of the given table (the columns are shared, not copied)
+     *
+     * @param table : the table
+     * @param size  : the number of stars of the new table
+     */
+    private StarTable(StarTable table, int size) {
+        this.size = size;
+        offHeap = table.offHeap;
+        ra = table.ra;
+        dec = table.dec;
+        magnitude = table.magnitude;
+        colorIndex = table.colorIndex;
+        properMotionRa = table.properMotionRa;
+        properMotionDec = table.properMotionDec;
+        colorTemperature = table.colorTemperature;
+        colorPaletteIndex = table.colorPaletteIndex;
+        hipparcosId = table.hipparcosId;
+        nameOffsets = table.nameOffsets;
+        names = table.names;
+        nameHeap = table.nameHeap;
+    }
+
+    /**
+     * Return a table containing the given stars, stored on the heap
+     *
+     * @param stars : the stars
+     * @return : a table containing the given stars
+     */
+    static StarTable onHeap(List<Star> stars) {
+        Builder builder = new Builder(false, stars.size());
+        for (Star star : stars) {
+            builder.add(star);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Return a table whose columns are read (without copy) from the given buffer, starting at its position,
+     * in the layout written by {@link #writeTo(ByteBuffer)}; the position of the buffer is moved after the columns
+     *
+     * @param buffer       : the buffer containing the columns
+     * @param size         : the number of stars of the table
+     * @param nameHeapSize : the number of bytes of the names of the stars
+     * @return : a table whose columns are read from the given buffer
+     * @throws IllegalArgumentException : if the buffer does not contain {@link #columnBytes(int, int)} remaining bytes
+     */
+    static StarTable readFrom(ByteBuffer buffer, int size, int nameHeapSize) {
+        Preconditions.checkArgument(size >= 0 && nameHeapSize >= 0
+                && buffer.remaining() >= columnBytes(size, nameHeapSize));
+        return new StarTable(buffer, size, nameHeapSize);
+    }
+
+    /**
+     * Return the number of bytes of the columns of a table, as written by {@link #writeTo(ByteBuffer)}
+     *
+     * @param size         : the number of stars of the table
+     * @param nameHeapSize : the number of bytes of the names of the stars
+     * @return : the number of bytes of the columns of the table
+     */
+    static long columnBytes(int size, int nameHeapSize) {
+        return (long) size * (2 * Double.BYTES + 4 * Float.BYTES + 3 * Integer.BYTES + Short.BYTES)
+                + Integer.BYTES + nameHeapSize;
+    }
+
+    /**
+     * Return a view of the first stars of the table, from index 0 (inclusive) to size (exclusive), sharing
+     * the columns of the table
+     *
+     * @param size : the number of stars of the view
+     * @return : a view of the first stars of the table
+     * @throws IndexOutOfBoundsException : if the size is not in [0, {@link #size()}]
+     */
+    StarTable prefix(int size) {
+        Objects.checkFromToIndex(0, size, this.size);
+        return new StarTable(this, size);
+    }
+
+    /**
+     * Return the number of stars of the table having a magnitude lower or equal to the given one, if the stars
+     * are sorted by magnitude (computed by binary search)
+     *
+     * @param maxMagnitude : the limiting magnitude
+     * @return : the index of the first star fainter than the limiting magnitude, or the size of the table
+     */
+    int starCountBrighterThan(double maxMagnitude) {
+        int low = 0, high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (magnitude.get(middle) <= maxMagnitude) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Return the number of bytes of the names of the stars (UTF-8 encoded)
+     *
+     * @return : the number of bytes of the names of the stars
+     */
+    int nameHeapSize() {
+        return nameOffsets.get(size);
+    }
+
+    /**
+     * Write the columns of the table one after the other in the given buffer, from its position
+     * (ra, dec, magnitude, color index, proper motions in ra and dec, color temperature, Hipparcos number, name offsets, color palette index
+     * and names, in the byte order of the buffer)
+     *
+     * @param buffer : the buffer, having at least {@link #columnBytes(int, int)} remaining bytes
+     */
+    void writeTo(ByteBuffer buffer) {
+        for (int i = 0; i < size; ++i) {
+            buffer.putDouble(ra.get(i));
+        }
+        for (int i = 0; i < size; ++i) {
+            buffer.putDouble(dec.get(i));
+        }
+        for (int i = 0; i < size; ++i) {
+            buffer.putFloat(magnitude.get(i));
+        }
+        for (int i = 0; i < size; ++i) {
+            buffer.putFloat(colorIndex.get(i));
+        }
+        for (int i = 0; i < size; ++i) {
+            buffer.putFloat(properMotionRa.get(i));
+        }
+        for (int i = 0; i < size; ++i) {
+            buffer.putFloat(properMotionDec.get(i));
+        }
+        for (int i = 0; i < size; ++i) {
+            buffer.putInt(colorTemperature.get(i));
+        }
+        for (int i = 0; i < size; ++i) {
+            buffer.putInt(hipparcosId.get(i));
+        }
+        for (int i = 0; i <= size; ++i) {
+            buffer.putInt(nameOffsets.get(i));
+        }
+        for (int i = 0; i < size; ++i) {
+            buffer.putShort(colorPaletteIndex.get(i));
+        }
+        for (int i = 0; i < nameHeapSize(); ++i) {
+            buffer.put(names.get(i));
+        }
+    }
+
+    /**
+     * Return the number of stars of the table
+     *
+     * @return : the number of stars of the table
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return true if the columns of the table are stored off-heap
+     *
+     * @return : true if the columns of the table are stored off-heap
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * Return the right ascension (in radians) of the star of the given index
+     *
+     * @param index : the index of the star
+     * @return : the right ascension of the star
+     */
+    public double ra(int index) {
+        return ra.get(checkIndex(index));
+    }
+
+    /**
+     * Return the declination (in radians) of the star of the given index
+     *
+     * @param index : the index of the star
+     * @return : the declination of the star
+     */
+    public double dec(int index) {
+        return dec.get(checkIndex(index));
+    }
+
+    /**
+     * Return the magnitude of the star of the given index
+     *
+     * @param index : the index of the star
+     * @return : the magnitude of the star
+     */
+    public double magnitude(int index) {
+        return magnitude.get(checkIndex(index));
+    }
+
+    /**
+     * Return the color index of the star of the given index
+     *
+     * @param index : the index of the star
+     * @return : the color index of the star
+     */
+    public float colorIndex(int index) {
+        return colorIndex.get(checkIndex(index));
+    }
+
+    /**
+     * Return the proper motion in right ascension (in radians per year, multiplied by the cosine of the declination)
+     * of the star of the given index
+     *
+     * @param index : the index of the star
+     * @return : the proper motion in right ascension of the star
+     */
+    public float properMotionRa(int index) {
+        return properMotionRa.get(checkIndex(index));
+    }
+
+    /**
+     * Return the proper motion in declination (in radians per year) of the star of the given index
+     *
+     * @param index : the index of the star
+     * @return : the proper motion in declination of the star
+     */
+    public float properMotionDec(int index) {
+        return properMotionDec.get(checkIndex(index));
+    }
+
+    /**
+     * Return the color temperature (in Kelvin, rounded down) of the star of the given index
+     *
+     * @param index : the index of the star
+     * @return : the color temperature of the star
+     */
+    public int colorTemperature(int index) {
+        return colorTemperature.get(checkIndex(index));
+    }
+
+    /**
+     * Return the color palette index of the star of the given index: its color temperature rounded up
+     * to the hundred and divided by 100 (computed once, for the color of the star to be a simple array access)
+     *
+     * @param index : the index of the star
+     * @return : the color palette index of the star
+     */
+    public int colorPaletteIndex(int index) {
+        return colorPaletteIndex.get(checkIndex(index));
+    }
+
+    /**
+     * Return the Hipparcos number of the star of the given index
+     *
+     * @param index : the index of the star
+     * @return : the Hipparcos number of the star
+     */
+    public int hipparcosId(int index) {
+        return hipparcosId.get(checkIndex(index));
+    }
+
+    /**
+     * Return the name of the star of the given index
+     *
+     * @param index : the index of the star
+     * @return : the name of the star
+     */
+    public String name(int index) {
+        return nameHeap.string(nameOffsets.get(checkIndex(index)), nameOffsets.get(index + 1));
+    }
+
+    /**
+     * Return true if every star of the table is valid, as {@link #star(int)} would check it when creating it
+     * (Hipparcos number, color index, proper motions and range of the name), checked without creating the stars
+     *
+     * @return : true if every star of the table is valid
+     */
+    boolean hasValidStars() {
+        if (nameOffsets.get(0) != 0 || nameOffsets.get(size) > nameHeap.size()) {
+            return false;
+        }
+        for (int i = 0; i < size; ++i) {
+            if (hipparcosId.get(i) < 0
+                    || !Star.COLOR_INDEX_INTERVAL.contains(colorIndex.get(i))
+                    || !Float.isFinite(properMotionRa.get(i)) || !Float.isFinite(properMotionDec.get(i))
+                    || nameOffsets.get(i) > nameOffsets.get(i + 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return a new star having the attributes of the star of the given index (its name being read from the table
+     * only if it is used), which knows its index in the table
+     *
+     * @param index : the index of the star
+     * @return : a new star having the attributes of the star of the given index
+     */
+    public Star star(int index) {
+        return new Star(hipparcosId(index), nameHeap, nameOffsets.get(index), nameOffsets.get(index + 1),
+                EquatorialCoordinates.of(ra(index), dec(index)), (float) magnitude(index), colorIndex(index),
+                properMotionRa(index), properMotionDec(index), this, index);
+    }
+
+    /**
+     * Store the name of the given star, which is the star of the given index of the table, in the name heap
+     * of the table from now on (see {@link Star#moveNameTo(NameHeap, int, int)})
+     *
+     * @param star  : the star
+     * @param index : the index of the star in the table
+     */
+    void moveNameOf(Star star, int index) {
+        star.moveNameTo(nameHeap, nameOffsets.get(checkIndex(index)), nameOffsets.get(index + 1));
+    }
+
+    /**
+     * Return an unmodifiable list view of the table, whose stars are created on access by {@link #star(int)}
+     * (two accesses to the same index return different, but equivalent, stars)
+     *
+     * @return : an unmodifiable list view of the table
+     */
+    public List<Star> asList() {
+        return new StarList();
+    }
+
+    /**
+     * Check that the index is the index of a star of the table
+     *
+     * @param index : the index
+     * @return : the index
+     * @throws IndexOutOfBoundsException : if the index is not in [0, size[
+     */
+    private int checkIndex(int index) {
+        return Objects.checkIndex(index, size);
+    }
+
+    /**
+     * Return a view of the given number of bytes of the buffer, from its position, and move its position after them
+     *
+     * @param buffer : the buffer
+     * @param bytes  : the number of bytes of the view
+     * @return : a view of the given number of bytes of the buffer (having the byte order of the buffer)
+     */
+    private static ByteBuffer column(ByteBuffer buffer, int bytes) {
+        ByteBuffer column = buffer.slice().limit(bytes).slice().order(buffer.order());
+        buffer.position(buffer.position() + bytes);
+        return column;
+    }
+
+    /**
+     * A list view of the table
+     */
+    private final class StarList extends AbstractList<Star> implements RandomAccess {
+        @Override
+        public Star get(int index) {
+            return star(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * A builder of star table, growing as stars are added
+     */
+    static final class Builder {
+
+        private static final int MIN_CAPACITY = 16;
+
+        private final boolean offHeap;
+        private int size;
+        private DoubleBuffer ra, dec;
+        private FloatBuffer magnitude, colorIndex, properMotionRa, properMotionDec;
+        private IntBuffer colorTemperature, hipparcosId, nameOffsets;
+        private ShortBuffer colorPaletteIndex;
+        private ByteBuffer names;
+        private NameHeap nameHeap;
+
+        /**
+         * Constructor of an empty builder
+         *
+         * @param offHeap  : true if the columns must be stored off-heap
+         * @param capacity : the number of stars for which memory is reserved
+         */
+        Builder(boolean offHeap, int capacity) {
+            this.offHeap = offHeap;
+            size = 0;
+            int starCapacity = Math.max(capacity, MIN_CAPACITY);
+            ra = allocate(starCapacity * Double.BYTES).asDoubleBuffer();
+            dec = allocate(starCapacity * Double.BYTES).asDoubleBuffer();
+            magnitude = allocate(starCapacity * Float.BYTES).asFloatBuffer();
+            colorIndex = allocate(starCapacity * Float.BYTES).asFloatBuffer();
+            properMotionRa = allocate(starCapacity * Float.BYTES).asFloatBuffer();
+            properMotionDec = allocate(starCapacity * Float.BYTES).asFloatBuffer();
+            colorTemperature = allocate(starCapacity * Integer.BYTES).asIntBuffer();
+            colorPaletteIndex = allocate(starCapacity * Short.BYTES).asShortBuffer();
+            hipparcosId = allocate(starCapacity * Integer.BYTES).asIntBuffer();
+            nameOffsets = allocate((starCapacity + 1) * Integer.BYTES).asIntBuffer();
+            names = allocate(starCapacity * 8);
+            nameHeap = NameHeap.of(names);
+            nameOffsets.put(0, 0);
+        }
+
+        /**
+         * Return the number of stars added to the builder
+         *
+         * @return : the number of stars added to the builder
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Return the magnitude of the star of the given index
+         *
+         * @param index : the index of the star
+         * @return : the magnitude of the star
+         * @throws IndexOutOfBoundsException : if the index is not the index of a star added to the builder
+         */
+        float magnitude(int index) {
+            return magnitude.get(Objects.checkIndex(index, size));
+        }
+
+        /**
+         * Add the attributes of the given star at the end of the table under construction
+         *
+         * @param star : the star
+         * @return : the builder
+         */
+        Builder add(Star star) {
+            byte[] name = star.nameBytes();
+            int nameStart = ensureCapacity(name.length);
+            ra.put(size, star.equatorialPos().ra());
+            dec.put(size, star.equatorialPos().dec());
+            magnitude.put(size, (float) star.magnitude());
+            colorIndex.put(size, star.colorIndex());
+            properMotionRa.put(size, star.properMotionRa());
+            properMotionDec.put(size, star.properMotionDec());
+            colorTemperature.put(size, star.colorTemperature());
+            colorPaletteIndex.put(size, (short) ((star.colorTemperature() + 99) / 100));
+            hipparcosId.put(size, star.hipparcosId());
+            names.position(nameStart);
+            names.put(name);
+            nameOffsets.put(size + 1, nameStart + name.length);
+            ++size;
+            return this;
+        }
+
+        /**
+         * Add the attributes of the star of the given index of the given table at the end of the table under
+         * construction, copied column by column (without creating the star)
+         *
+         * @param table : the table
+         * @param index : the index of the star in the table
+         * @return : the builder
+         * @throws IndexOutOfBoundsException : if the index is not the index of a star of the table
+         */
+        Builder add(StarTable table, int index) {
+            int tableNameStart = table.nameOffsets.get(table.checkIndex(index));
+            int nameLength = table.nameOffsets.get(index + 1) - tableNameStart;
+            int nameStart = ensureCapacity(nameLength);
+            ra.put(size, table.ra.get(index));
+            dec.put(size, table.dec.get(index));
+            magnitude.put(size, table.magnitude.get(index));
+            colorIndex.put(size, table.colorIndex.get(index));
+            properMotionRa.put(size, table.properMotionRa.get(index));
+            properMotionDec.put(size, table.properMotionDec.get(index));
+            colorTemperature.put(size, table.colorTemperature.get(index));
+            colorPaletteIndex.put(size, table.colorPaletteIndex.get(index));
+            hipparcosId.put(size, table.hipparcosId.get(index));
+            for (int i = 0; i < nameLength; ++i) {
+                names.put(nameStart + i, table.names.get(tableNameStart + i));
+            }
+            nameOffsets.put(size + 1, nameStart + nameLength);
+            ++size;
+            return this;
+        }
+
+        /**
+         * Grow the columns, if needed, for them to be able to contain one more star whose name has the given length,
+         * and return the start of its name
+         *
+         * @param nameLength : the number of bytes of the name of the star
+         * @return : the start of the name of the star
+         */
+        private int ensureCapacity(int nameLength) {
+            if (size == ra.capacity()) {
+                int capacity = 2 * size;
+                ra = allocate(capacity * Double.BYTES).asDoubleBuffer().put(ra.clear());
+                dec = allocate(capacity * Double.BYTES).asDoubleBuffer().put(dec.clear());
+                magnitude = allocate(capacity * Float.BYTES).asFloatBuffer().put(magnitude.clear());
+                colorIndex = allocate(capacity * Float.BYTES).asFloatBuffer().put(colorIndex.clear());
+                properMotionRa = allocate(capacity * Float.BYTES).asFloatBuffer().put(properMotionRa.clear());
+                properMotionDec = allocate(capacity * Float.BYTES).asFloatBuffer().put(properMotionDec.clear());
+                colorTemperature = allocate(capacity * Integer.BYTES).asIntBuffer().put(colorTemperature.clear());
+                colorPaletteIndex = allocate(capacity * Short.BYTES).asShortBuffer().put(colorPaletteIndex.clear());
+                hipparcosId = allocate(capacity * Integer.BYTES).asIntBuffer().put(hipparcosId.clear());
+                nameOffsets = allocate((capacity + 1) * Integer.BYTES).asIntBuffer().put(nameOffsets.clear());
+            }
+            int nameStart = nameOffsets.get(size);
+            if (nameStart + nameLength > names.capacity()) {
+                names = allocate(Math.max(2 * names.capacity(), nameStart + nameLength))
+                        .put(names.clear().limit(nameStart));
+                //the stars already read keep the previous heap, whose names do not change
+                nameHeap = NameHeap.of(names);
+            }
+            return nameStart;
+        }
+
+        /**
+         * Return a new star having the attributes of the star of the given index, read from the columns
+         * under construction (its name being read only if it is used)
+         *
+         * @param index : the index of the star
+         * @return : a new star having the attributes of the star of the given index
+         * @throws IndexOutOfBoundsException : if the index is not the index of a star added to the builder
+         */
+        Star star(int index) {
+            Objects.checkIndex(index, size);
+            return new Star(hipparcosId.get(index), nameHeap, nameOffsets.get(index), nameOffsets.get(index + 1),
+                    EquatorialCoordinates.of(ra.get(index), dec.get(index)), magnitude.get(index),
+                    colorIndex.get(index), properMotionRa.get(index), properMotionDec.get(index), this, index);
+        }
+
+        /**
+         * Return an unmodifiable list view of the stars added to the builder, which sees the later additions
+         * (its stars being created on access by {@link #star(int)})
+         *
+         * @return : an unmodifiable list view of the stars added to the builder
+         */
+        List<Star> asList() {
+            return new AddedStarList();
+        }
+
+        /**
+         * Return a table containing the stars added so far (later additions do not modify it)
+         *
+         * @return : a table containing the stars added so far
+         */
+        StarTable build() {
+            return new StarTable(this);
+        }
+
+        /**
+         * Allocate a buffer of the given number of bytes, on the heap or off-heap
+         *
+         * @param bytes : the number of bytes
+         * @return : the allocated buffer
+         */
+        private ByteBuffer allocate(int bytes) {
+            return (offHeap ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes))
+                    .order(ByteOrder.nativeOrder());
+        }
+
+        /**
+         * A list view of the stars added to the builder
+         */
+        private final class AddedStarList extends AbstractList<Star> implements RandomAccess {
+            @Override
+            public Star get(int index) {
+                return star(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        }
+    }
+}
@@ -37,4 +37,15 @@ public enum SunModel implements CelestialObjectModel<Sun> {
 
         return new Sun(eclipticCoordinates, equatorialCoordinates, (float) sunAngularSize, (float) meanAnomaly);
     }
+
+    /**
+     * Return the sun of the given context, computed once by the context
+     *
+     * @param context : the quantities shared by the models at a given time
+     * @return : the sun at the time of the context
+     */
+    @Override
+    public Sun at(EphemerisContext context) {
+        return context.sun();
+    }
 }
@@ -23,7 +23,7 @@ public final class EclipticToEquatorialConversion implements Function<EclipticCo
             Angle.ofArcsec(-46.815),
             Angle.ofDMS(23, 26, 21.45));
 
-    private final double cosObliquity, sinObliquity;
+    private final double obliquity, cosObliquity, sinObliquity;
 
     /**
      * Constructor of an ecliptic to equatorial converter for a specific time and zone
@@ -32,11 +32,20 @@ public final class EclipticToEquatorialConversion implements Function<EclipticCo
      */
     public EclipticToEquatorialConversion(ZonedDateTime when) {
         double T = Epoch.J2000.julianCenturiesUntil(when);
-        double obliquity = poly.at(T);
+        obliquity = poly.at(T);
         cosObliquity = cos(obliquity);
         sinObliquity = sin(obliquity);
     }
 
+    /**
+     * Return the obliquity of the ecliptic at the time of the conversion
+     *
+     * @return : the obliquity of the ecliptic (in radians)
+     */
+    public double obliquity() {
+        return obliquity;
+    }
+
     @Override
     public EquatorialCoordinates apply(EclipticCoordinates eclipticCoordinates) {
         double lon = eclipticCoordinates.lon();
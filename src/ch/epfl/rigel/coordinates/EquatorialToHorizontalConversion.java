@@ -33,9 +33,18 @@ public final class EquatorialToHorizontalConversion implements Function<Equatori
 
     @Override
     public HorizontalCoordinates apply(EquatorialCoordinates equatorialCoordinates) {
-        double ra = equatorialCoordinates.ra();
+        return apply(equatorialCoordinates.ra(), equatorialCoordinates.dec());
+    }
+
+    /**
+     * Return the horizontal coordinates of the point of given right ascension and declination
+     *
+     * @param ra  : the right ascension (in radians)
+     * @param dec : the declination (in radians)
+     * @return : the horizontal coordinates of the point
+     */
+    public HorizontalCoordinates apply(double ra, double dec) {
         double H = sl - ra;
-        double dec = equatorialCoordinates.dec();
         double sinDec = sin(dec);
         double cosDec = cos(dec);
         double sinHigh = sinDec * sinLat + cosDec * cosLat * cos(H);
@@ -44,6 +53,21 @@ public final class EquatorialToHorizontalConversion implements Function<Equatori
         return HorizontalCoordinates.of(az, asin(sinHigh));
     }
 
+    /**
+     * Return the rotation matrix (row-major) of the unit vectors of the equatorial frame (x towards ra = 0,
+     * z towards the north celestial pole) to the horizontal frame (x towards the east, y towards the north,
+     * z towards the zenith): a unit vector is converted by a matrix product, without any trigonometric function
+     *
+     * @return : a new array containing the 9 values of the rotation matrix, row after row
+     */
+    public double[] rotationMatrix() {
+        double sinSl = sin(sl), cosSl = cos(sl);
+        return new double[]{
+                -sinSl, cosSl, 0,
+                -sinLat * cosSl, -sinLat * sinSl, cosLat,
+                cosLat * cosSl, cosLat * sinSl, sinLat};
+    }
+
     @Override
     public int hashCode() {
         throw new UnsupportedOperationException();
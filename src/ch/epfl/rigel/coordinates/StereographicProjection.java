@@ -2,6 +2,7 @@ package ch.epfl.rigel.coordinates;
 
 import ch.epfl.rigel.math.Angle;
 
+import java.nio.DoubleBuffer;
 import java.util.Locale;
 import java.util.function.Function;
 
@@ -13,6 +14,8 @@ import java.util.function.Function;
  */
 public final class StereographicProjection implements Function<HorizontalCoordinates, CartesianCoordinates> {
 
+    private static final double[] IDENTITY = {1, 0, 0, 0, 1, 0, 0, 0, 1};
+
     private final double altCenter, sinAltCenter, cosAltCenter, azCenter;
 
     /**
@@ -107,6 +110,151 @@ public final class StereographicProjection implements Function<HorizontalCoordin
         return CartesianCoordinates.of(x, y);
     }
 
+    /**
+     * Return the cartesian coordinates of the projections of the given unit vectors of the horizontal frame
+     * (x towards the east, y towards the north, z towards the zenith), without any trigonometric function
+     *
+     * @param unitVectors : the unit vectors (x, y and z of each vector, one after the other), from the position
+     *                    of the buffer
+     * @param count       : the number of unit vectors
+     * @return : the coordinates of the projections (the x in the even indices and the y in the odd indices)
+     */
+    public double[] applyToUnitVectors(DoubleBuffer unitVectors, int count) {
+        return applyToUnitVectors(IDENTITY, unitVectors, count);
+    }
+
+    /**
+     * Write in the given array the cartesian coordinates of the projections of the unit vectors of the horizontal
+     * frame of indices from (inclusive) to to (exclusive)
+     * (see {@link #applyToUnitVectors(double[], DoubleBuffer, int, int, double[])})
+     *
+     * @param unitVectors : the unit vectors (x, y and z of each vector, one after the other), from the position
+     *                    of the buffer
+     * @param from        : the index of the first unit vector projected
+     * @param to          : the index after the last unit vector projected
+     * @param xy          : the array receiving the coordinates of the projections (the x of the vector of index i
+     *                    at index 2i and its y at index 2i + 1)
+     */
+    public void applyToUnitVectors(DoubleBuffer unitVectors, int from, int to, double[] xy) {
+        applyToUnitVectors(IDENTITY, unitVectors, from, to, xy);
+    }
+
+    /**
+     * Return the cartesian coordinates of the projections of the given unit vectors, expressed in a frame
+     * rotated to the horizontal frame (x towards the east, y towards the north, z towards the zenith) by the given
+     * matrix (see {@link EquatorialToHorizontalConversion#rotationMatrix()})
+     * <p>
+     * The rotation and the projection are combined in a single matrix, each vector being projected by
+     * a matrix product and a division, without any trigonometric function
+     *
+     * @param rotation    : the rotation matrix to the horizontal frame (row-major, 9 values)
+     * @param unitVectors : the unit vectors (x, y and z of each vector, one after the other), from the position
+     *                    of the buffer
+     * @param count       : the number of unit vectors
+     * @return : the coordinates of the projections (the x in the even indices and the y in the odd indices)
+     */
+    public double[] applyToUnitVectors(double[] rotation, DoubleBuffer unitVectors, int count) {
+        double[] xy = new double[2 * count];
+        applyToUnitVectors(rotation, unitVectors, 0, count, xy);
+        return xy;
+    }
+
+    /**
+     * Write in the given array the cartesian coordinates of the projections of the unit vectors of indices from
+     * (inclusive) to to (exclusive), expressed in a frame rotated to the horizontal frame by the given matrix
+     * (see {@link #applyToUnitVectors(double[], DoubleBuffer, int)})
+     * <p>
+     * Only the indices 2 * from to 2 * to (exclusive) of the array are written and the buffer is only read
+     * at absolute indices, disjoint ranges can thus be projected concurrently into the same array
+     *
+     * @param rotation    : the rotation matrix to the horizontal frame (row-major, 9 values)
+     * @param unitVectors : the unit vectors (x, y and z of each vector, one after the other), from the position
+     *                    of the buffer
+     * @param from        : the index of the first unit vector projected
+     * @param to          : the index after the last unit vector projected
+     * @param xy          : the array receiving the coordinates of the projections (the x of the vector of index i
+     *                    at index 2i and its y at index 2i + 1)
+     */
+    public void applyToUnitVectors(double[] rotation, DoubleBuffer unitVectors, int from, int to, double[] xy) {
+        applyToUnitVectorsWithin(Math.PI, rotation, unitVectors, from, to, xy);
+    }
+
+    /**
+     * Write in the given array the cartesian coordinates of the projections of the unit vectors of the horizontal
+     * frame of indices from (inclusive) to to (exclusive) closer to the center of the projection than the given
+     * angle, and NaN for the other ones (see {@link #applyToUnitVectorsWithin(double, double[], DoubleBuffer, int,
+     * int, double[])})
+     *
+     * @param radius      : the angle (in radians) from the center of the projection beyond which the vectors
+     *                    are not projected
+     * @param unitVectors : the unit vectors (x, y and z of each vector, one after the other), from the position
+     *                    of the buffer
+     * @param from        : the index of the first unit vector projected
+     * @param to          : the index after the last unit vector projected
+     * @param xy          : the array receiving the coordinates of the projections (the x of the vector of index i
+     *                    at index 2i and its y at index 2i + 1)
+     * @return : the number of vectors which were not projected
+     */
+    public int applyToUnitVectorsWithin(double radius, DoubleBuffer unitVectors, int from, int to, double[] xy) {
+        return applyToUnitVectorsWithin(radius, IDENTITY, unitVectors, from, to, xy);
+    }
+
+    /**
+     * Write in the given array the cartesian coordinates of the projections of the unit vectors of indices from
+     * (inclusive) to to (exclusive) closer to the center of the projection than the given angle, and NaN for
+     * the other ones, the vectors being expressed in a frame rotated to the horizontal frame by the given matrix
+     * <p>
+     * The cosine of the angle between a vector and the center is the dot product computed for the denominator of
+     * the projection, the vectors out of the cone are thus rejected before the rest of the projection
+     *
+     * @param radius      : the angle (in radians) from the center of the projection beyond which the vectors
+     *                    are not projected (π or more for all the vectors to be projected)
+     * @param rotation    : the rotation matrix to the horizontal frame (row-major, 9 values)
+     * @param unitVectors : the unit vectors (x, y and z of each vector, one after the other), from the position
+     *                    of the buffer
+     * @param from        : the index of the first unit vector projected
+     * @param to          : the index after the last unit vector projected
+     * @param xy          : the array receiving the coordinates of the projections (the x of the vector of index i
+     *                    at index 2i and its y at index 2i + 1)
+     * @return : the number of vectors which were not projected
+     */
+    public int applyToUnitVectorsWithin(double radius, double[] rotation, DoubleBuffer unitVectors, int from, int to,
+                                        double[] xy) {
+        //x, y and denominator of the projection of a horizontal unit vector (east, north, zenith), as dot products
+        double sinAzCenter = Math.sin(azCenter), cosAzCenter = Math.cos(azCenter);
+        double[] projection = {
+                cosAzCenter, -sinAzCenter, 0,
+                -sinAltCenter * sinAzCenter, -sinAltCenter * cosAzCenter, cosAltCenter,
+                cosAltCenter * sinAzCenter, cosAltCenter * cosAzCenter, sinAltCenter};
+        double[] m = new double[9];
+        for (int row = 0; row < 3; ++row) {
+            for (int column = 0; column < 3; ++column) {
+                for (int k = 0; k < 3; ++k) {
+                    m[3 * row + column] += projection[3 * row + k] * rotation[3 * k + column];
+                }
+            }
+        }
+
+        double minCosine = (radius >= Math.PI) ? Double.NEGATIVE_INFINITY : Math.cos(radius);
+        int rejected = 0;
+        int start = unitVectors.position();
+        for (int i = from; i < to; ++i) {
+            int v = start + 3 * i;
+            double vx = unitVectors.get(v), vy = unitVectors.get(v + 1), vz = unitVectors.get(v + 2);
+            double cosine = m[6] * vx + m[7] * vy + m[8] * vz;
+            if (cosine < minCosine) {
+                xy[2 * i] = Double.NaN;
+                xy[2 * i + 1] = Double.NaN;
+                ++rejected;
+            } else {
+                double d = 1 / (1 + cosine);
+                xy[2 * i] = d * (m[0] * vx + m[1] * vy + m[2] * vz);
+                xy[2 * i + 1] = d * (m[3] * vx + m[4] * vy + m[5] * vz);
+            }
+        }
+        return rejected;
+    }
+
     @Override
     public String toString() {
         return String.format(
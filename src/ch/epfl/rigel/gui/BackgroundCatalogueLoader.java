@@ -0,0 +1,62 @@
+package ch.epfl.rigel.gui;
+
+import ch.epfl.rigel.astronomy.StarCatalogue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * A loader of a catalogue on a background thread, giving the catalogue or the failure of its loading to consumers
+ * (which must themselves publish it to the JavaFX thread)
+ *
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+final class BackgroundCatalogueLoader {
+
+    /**
+     * A source of a catalogue, whose loading may fail
+     */
+    @FunctionalInterface
+    interface Source {
+        /**
+         * Load and return the catalogue
+         *
+         * @return : the catalogue
+         * @throws IOException : in case of input/output error
+         */
+        StarCatalogue load() throws IOException;
+    }
+
+    private BackgroundCatalogueLoader() {
+    }
+
+    /**
+     * Start and return a daemon thread loading the catalogue of the source, then giving it to the consumer
+     * of the loaded catalogue, or the error to the consumer of the failures if the loading failed
+     *
+     * @param source    : the source of the catalogue
+     * @param onLoaded  : the consumer of the loaded catalogue
+     * @param onFailure : the consumer of the error if the loading failed
+     * @return : the thread loading the catalogue
+     */
+    static Thread start(Source source, Consumer<StarCatalogue> onLoaded, Consumer<IOException> onFailure) {
+        Thread loader = new Thread(() -> {
+            StarCatalogue catalogue;
+            try {
+                catalogue = source.load();
+            } catch (IOException e) {
+                onFailure.accept(e);
+                return;
+            } catch (UncheckedIOException e) {
+                onFailure.accept(e.getCause());
+                return;
+            }
+            onLoaded.accept(catalogue);
+        }, "catalogue loader");
+        loader.setDaemon(true);
+        loader.start();
+        return loader;
+    }
+}
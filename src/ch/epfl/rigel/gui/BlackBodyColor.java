@@ -20,6 +20,8 @@ import static java.nio.charset.StandardCharsets.US_ASCII;
 public final class BlackBodyColor {
     public static Map<Integer, Color> MAP = createMap();
     private static final Interval CLOSED_INTERVAL_1000_TO_40000 = ClosedInterval.of(1_000, 40_000);
+    private static final Color[] PALETTE = createPalette(1);
+    private static final Color[] FADED_PALETTE = createPalette(0.25);
 
     /**
      * The private constructor of the black body color
@@ -36,8 +38,46 @@ public final class BlackBodyColor {
      */
     public static Color colorForTemperature(double temperatureKelvin) throws IllegalArgumentException {
         if (!CLOSED_INTERVAL_1000_TO_40000.contains(temperatureKelvin)) throw new IllegalArgumentException();
-        int roundedTemperatureKelvin = ((((int) temperatureKelvin + 99) / 100) * 100);
-        return MAP.get(roundedTemperatureKelvin);
+        return PALETTE[((int) temperatureKelvin + 99) / 100];
+    }
+
+    /**
+     * Return the color of the palette index, the palette index of a temperature (in kelvin) being
+     * the temperature rounded up to the hundred and divided by 100 (see StarTable#colorPaletteIndex)
+     *
+     * @param paletteIndex : the palette index (in [10,400])
+     * @return : the color of the palette index (the same instance for every call)
+     * @throws ArrayIndexOutOfBoundsException : if the palette index is greater than 400
+     */
+    public static Color colorForPaletteIndex(int paletteIndex) {
+        return PALETTE[paletteIndex];
+    }
+
+    /**
+     * Return the color of the palette index with an opacity of 25%
+     *
+     * @param paletteIndex : the palette index (in [10,400])
+     * @return : the faded color of the palette index (the same instance for every call)
+     * @throws ArrayIndexOutOfBoundsException : if the palette index is greater than 400
+     */
+    public static Color fadedColorForPaletteIndex(int paletteIndex) {
+        return FADED_PALETTE[paletteIndex];
+    }
+
+    /**
+     * Return the colors of the map indexed by palette index, with the given opacity
+     * (the indices below 10 have no color)
+     *
+     * @param opacity : the opacity of the colors
+     * @return : the colors of the map indexed by palette index
+     */
+    private static Color[] createPalette(double opacity) {
+        Color[] palette = new Color[(int) CLOSED_INTERVAL_1000_TO_40000.high() / 100 + 1];
+        for (Map.Entry<Integer, Color> entry : MAP.entrySet()) {
+            Color color = entry.getValue();
+            palette[entry.getKey() / 100] = Color.color(color.getRed(), color.getGreen(), color.getBlue(), opacity);
+        }
+        return palette;
     }
 
     /**
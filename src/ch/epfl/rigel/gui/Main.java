@@ -1,15 +1,15 @@
 package ch.epfl.rigel.gui;
 
-import ch.epfl.rigel.astronomy.AsterismLoader;
+import ch.epfl.rigel.astronomy.BinaryCatalogueLoader;
+import ch.epfl.rigel.astronomy.CatalogueSnapshot;
 import ch.epfl.rigel.astronomy.HygDatabaseLoader;
 import ch.epfl.rigel.astronomy.ObservedSky;
 import ch.epfl.rigel.astronomy.StarCatalogue;
-import ch.epfl.rigel.coordinates.CartesianCoordinates;
 import ch.epfl.rigel.coordinates.GeographicCoordinates;
 import ch.epfl.rigel.coordinates.HorizontalCoordinates;
-import ch.epfl.rigel.coordinates.StereographicProjection;
 import ch.epfl.rigel.math.ClosedInterval;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
@@ -40,7 +40,9 @@ import javax.imageio.ImageIO;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Path;
 import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
@@ -49,6 +51,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.function.Consumer;
 import java.util.function.UnaryOperator;
 
 /**
@@ -68,11 +71,12 @@ public class Main extends Application {
     private static final double MIN_HEIGHT = 600;
     private static final double MIN_WIDTH = 800;
     private static final double RIGEL_IMAGE_SIZE = 18;
-    private static final int RIGEL_INDEX_X = 2038;
-    private static final int RIGEL_INDEX_Y = 2039;
+    private static final int RIGEL_HIPPARCOS_ID = 24436;
     private static final String MUSIC_ON = "musicIsON";
     private static final String MUSIC_OFF = "musicIsOFF";
     private static final String CAMERA_SOUND = "cameraSound";
+    private static final double BRIGHT_STARS_MAX_MAGNITUDE = 4;
+    private static final Path SNAPSHOT_FILE = Path.of(System.getProperty("user.home"), ".rigel", "catalogue.snapshot");
 
     private boolean musicIsOn = true;
 
@@ -88,51 +92,114 @@ public class Main extends Application {
      */
     @Override
     public void start(Stage stage) throws IOException {
-        try (InputStream starsStream = resourceStream("/hygdata_v3.csv")) {
-            try (InputStream asterismStream = resourceStream("/asterisms.txt")) {
-                //catalogue
-                StarCatalogue catalogue = new StarCatalogue.Builder()
-                        .loadFrom(starsStream, HygDatabaseLoader.INSTANCE)
-                        .loadFrom(asterismStream, AsterismLoader.INSTANCE)
-                        .build();
-
-                // zone date time bean initialization
-                //ZonedDateTime when = ZonedDateTime.parse("2020-02-17T20:15:00+01:00");
-                ZonedDateTime when = ZonedDateTime.now();
-
-                DateTimeBean dateTimeBean = new DateTimeBean();
-                dateTimeBean.setZonedDateTime(when);
-
-                //observer location bean initialization
-                ObserverLocationBean observerLocationBean = new ObserverLocationBean();
-                observerLocationBean.setCoordinates(GeographicCoordinates.ofDeg(6.57, 46.52));
-
-                // viewing parameters bean initialization
-                ViewingParametersBean viewingParametersBean = new ViewingParametersBean();
-                viewingParametersBean.setCenter(HorizontalCoordinates.ofDeg(180.000000000001, 42));
-                viewingParametersBean.setFieldOfViewDeg(70);
-
-                //sky canvas manager
-                SkyCanvasManager canvasManager = new SkyCanvasManager(
-                        catalogue,
-                        dateTimeBean,
-                        observerLocationBean,
-                        viewingParametersBean);
-
-                //setting the stage with the roots, the intermediate knots and the basic knots
-                BorderPane pane = new BorderPane();
-                pane.setTop(controlPanel(canvasManager, stage));
-                pane.setCenter(skyView(canvasManager));
-                pane.setBottom(informationLine(canvasManager));
-                stage.setMinHeight(MIN_HEIGHT);
-                stage.setMinWidth(MIN_WIDTH);
-                stage.setScene(new Scene(pane));
-                stage.setTitle("Rigel =)");
-                stage.show();
-
-                canvasManager.canvas().requestFocus();
+        // zone date time bean initialization
+        //ZonedDateTime when = ZonedDateTime.parse("2020-02-17T20:15:00+01:00");
+        ZonedDateTime when = ZonedDateTime.now();
+
+        DateTimeBean dateTimeBean = new DateTimeBean();
+        dateTimeBean.setZonedDateTime(when);
+
+        //observer location bean initialization
+        ObserverLocationBean observerLocationBean = new ObserverLocationBean();
+        observerLocationBean.setCoordinates(GeographicCoordinates.ofDeg(6.57, 46.52));
+
+        // viewing parameters bean initialization
+        ViewingParametersBean viewingParametersBean = new ViewingParametersBean();
+        viewingParametersBean.setCenter(HorizontalCoordinates.ofDeg(180.000000000001, 42));
+        viewingParametersBean.setFieldOfViewDeg(70);
+
+        //sky canvas manager (with an empty catalogue, the stars being loaded once the stage is shown)
+        SkyCanvasManager canvasManager = new SkyCanvasManager(
+                new StarCatalogue(List.of(), List.of()),
+                dateTimeBean,
+                observerLocationBean,
+                viewingParametersBean);
+
+        //setting the stage with the roots, the intermediate knots and the basic knots
+        BorderPane pane = new BorderPane();
+        pane.setTop(controlPanel(canvasManager, stage));
+        pane.setCenter(skyView(canvasManager));
+        pane.setBottom(informationLine(canvasManager));
+        stage.setMinHeight(MIN_HEIGHT);
+        stage.setMinWidth(MIN_WIDTH);
+        stage.setScene(new Scene(pane));
+        stage.setTitle("Rigel =)");
+        stage.show();
+
+        canvasManager.canvas().requestFocus();
+        loadCatalogueInBackground(canvasManager, stage);
+    }
+
+    /**
+     * Load the catalogue on a background thread and publish it to the sky canvas manager in two stages:
+     * the bright stars first, as soon as they are read from the snapshot or built, then all the stars once the
+     * catalogue is built (a failure being reported to the user on the JavaFX thread), the stars of both being moved
+     * according to their proper motions at the observation time
+     *
+     * @param canvasManager : the sky canvas manager
+     * @param stage         : the stage of the application
+     */
+    private void loadCatalogueInBackground(SkyCanvasManager canvasManager, Stage stage) {
+        BackgroundCatalogueLoader.start(
+                () -> loadCatalogue(bright -> canvasManager.setCatalogue(bright.withProperMotions())).withProperMotions(),
+                canvasManager::setCatalogue,
+                e -> Platform.runLater(() -> reportLoadingFailure(stage, e)));
+    }
+
+    /**
+     * Report the failure of the loading of the catalogue in an error dialog, then exit the application, the sky
+     * having no stars to show
+     *
+     * @param stage : the stage of the application
+     * @param e     : the error of the loading
+     */
+    private void reportLoadingFailure(Stage stage, IOException e) {
+        System.err.println("the star catalogue could not be loaded: " + e);
+        Alert alert = new Alert(Alert.AlertType.ERROR,
+                "Le catalogue d'étoiles n'a pas pu être chargé :\n" + e.getMessage());
+        alert.initOwner(stage);
+        alert.setHeaderText(null);
+        alert.showAndWait();
+        Platform.exit();
+    }
+
+    /**
+     * Load and return the catalogue of stars and asterisms, its bright stars being given to the consumer before
+     * (before the other stars are read from the snapshot of a previous start, or before the snapshot is written)
+     *
+     * @param brightConsumer : the consumer of the catalogue of the bright stars
+     * @return : the catalogue of stars and asterisms
+     * @throws IOException : IOException in case of a stream error
+     */
+    private StarCatalogue loadCatalogue(Consumer<StarCatalogue> brightConsumer) throws IOException {
+        byte[] asterismsSource;
+        try (InputStream asterismStream = compressedOrRawResourceStream("/asterisms.txt")) {
+            asterismsSource = asterismStream.readAllBytes();
+        }
+
+        //read from the snapshot of a previous start, unless the sources have changed since
+        //sorted by magnitude, for the sky to only contain the stars visible at the current field of view
+        //the binary catalogue (produced by BinaryCatalogueWriter) is preferred to the csv one, memory-mapped
+        //when it is a file (and not an entry of a jar)
+        URL binaryStarsUrl = getClass().getResource("/hygdata_v3.bin");
+        if (binaryStarsUrl != null && "file".equals(binaryStarsUrl.getProtocol())) {
+            try {
+                return CatalogueSnapshot.loadOrBuild(SNAPSHOT_FILE, Path.of(binaryStarsUrl.toURI()), asterismsSource,
+                        true, BRIGHT_STARS_MAX_MAGNITUDE, brightConsumer);
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
             }
         }
+
+        StarCatalogue.Loader starsLoader = (binaryStarsUrl != null) ?
+                BinaryCatalogueLoader.INSTANCE : HygDatabaseLoader.PARALLEL;
+        byte[] starsSource;
+        try (InputStream starsStream = (binaryStarsUrl != null) ?
+                binaryStarsUrl.openStream() : compressedOrRawResourceStream("/hygdata_v3.csv")) {
+            starsSource = starsStream.readAllBytes();
+        }
+        return CatalogueSnapshot.loadOrBuild(SNAPSHOT_FILE, starsSource, starsLoader, asterismsSource, true,
+                BRIGHT_STARS_MAX_MAGNITUDE, brightConsumer);
     }
 
     /**
@@ -398,12 +465,16 @@ public class Main extends Application {
             rigelImageView.setFitWidth(RIGEL_IMAGE_SIZE);
             Button rigelButton = new Button("RIGEL", rigelImageView);
             rigelButton.setOnAction(e -> {
+                //Rigel is searched in the catalogue, which may still be loading
                 ObservedSky sky = canvasManager.getObservedSky();
-                CartesianCoordinates rigelCartesianCoordinates = CartesianCoordinates.of(
-                        sky.starsPosition()[RIGEL_INDEX_X],
-                        sky.starsPosition()[RIGEL_INDEX_Y]);
-                StereographicProjection projection = canvasManager.getProjection();
-                HorizontalCoordinates rigelHorizontalCoordinates = projection.inverseApply(rigelCartesianCoordinates);
+                int rigelIndex = sky.catalogue().starByHipparcos(RIGEL_HIPPARCOS_ID)
+                        .map(sky.catalogue()::indexOf)
+                        .orElse(-1);
+                if (rigelIndex < 0) {
+                    return;
+                }
+                //Rigel may be out of the viewing cone of the sky, its position is not projected
+                HorizontalCoordinates rigelHorizontalCoordinates = sky.horizontalSky().starPosition(rigelIndex);
                 double rigelAz = rigelHorizontalCoordinates.azDeg();
                 double rigelAlt = rigelHorizontalCoordinates.altDeg();
                 double rigelClippedAlt = CLOSED_INTERVAL_5_TO_90.clip(rigelAlt);
@@ -561,6 +632,18 @@ public class Main extends Application {
         return getClass().getResourceAsStream(nameOfResource);
     }
 
+    /**
+     * fetch the gzip-compressed version of the file named nameOfResource (named nameOfResource.gz) if it is
+     * available, otherwise the file itself (the loaders decompress the compressed files as they read them)
+     *
+     * @param nameOfResource : the name of the file
+     * @return : the compressed version of the file named nameOfResource if it is available, otherwise the file
+     */
+    private InputStream compressedOrRawResourceStream(String nameOfResource) {
+        InputStream compressedStream = resourceStream(nameOfResource + ".gz");
+        return (compressedStream != null) ? compressedStream : resourceStream(nameOfResource);
+    }
+
 
     public static Boolean getAsterismsAreOn() {
         return asterismsAreOn.get();
@@ -6,6 +6,7 @@ import ch.epfl.rigel.coordinates.HorizontalCoordinates;
 import ch.epfl.rigel.coordinates.StereographicProjection;
 import ch.epfl.rigel.math.Angle;
 import ch.epfl.rigel.math.ClosedInterval;
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
@@ -24,6 +25,7 @@ import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
 
+import java.time.Duration;
 import java.util.Optional;
 
 
@@ -39,6 +41,11 @@ public final class SkyCanvasManager {
     private static final ClosedInterval CLOSED_INTERVAL_30_TO_150 = ClosedInterval.of(30, 150);
     private static final double MAX_UNIT_DISTANCE_CELESTIAL_OBJECT = 10;
     private static final double POP_UP_IMAGE_SIZE = 300;
+    //margin of the viewing cone, for the asterism lines leaving the canvas not to be cut at its corners
+    private static final double VIEW_RADIUS_MARGIN = Angle.ofDeg(20);
+    //about 50 MB of star vectors, and no time tolerance for the sky to be drawn at the exact time
+    private static final long SKY_CACHE_STAR_COUNT = 2_000_000;
+    private static final Duration SKY_CACHE_TIME_TOLERANCE = Duration.ZERO;
 
     public ObservableDoubleValue mouseAzDeg, mouseAltDeg;
     public ObservableObjectValue<Optional<CelestialObject>> objectUnderMouse;
@@ -47,7 +54,11 @@ public final class SkyCanvasManager {
     private DateTimeBean dateTimeBean;
     private ObserverLocationBean observerLocationBean;
     private ViewingParametersBean viewingParametersBean;
+    private ObjectProperty<StarCatalogue> catalogue;
     private ObservableObjectValue<StereographicProjection> projection;
+    private final HorizontalSkyCache horizontalSkyCache =
+            new HorizontalSkyCache(SKY_CACHE_STAR_COUNT, SKY_CACHE_TIME_TOLERANCE, StarPartitioner.parallel());
+    private ObservableObjectValue<HorizontalSky> horizontalSky;
     private ObservableObjectValue<ObservedSky> observedSky;
 
     private Canvas canvas;
@@ -68,6 +79,9 @@ public final class SkyCanvasManager {
         this.dateTimeBean = dateTimeBean;
         this.observerLocationBean = observerLocationBean;
         this.viewingParametersBean = viewingParametersBean;
+        this.catalogue = new SimpleObjectProperty<>(catalogue);
+        //the skies of a replaced catalogue are never seen again
+        this.catalogue.addListener((o, oldCatalogue, newCatalogue) -> horizontalSkyCache.invalidate(oldCatalogue));
 
         canvas = new Canvas();
         painter = new SkyCanvasPainter(canvas);
@@ -83,10 +97,36 @@ public final class SkyCanvasManager {
             return Transform.affine(dilatationFactor, 0, 0, -dilatationFactor, canvas.getWidth() / 2d, canvas.getHeight() / 2d);
         }, canvas.widthProperty(), canvas.heightProperty(), projection, viewingParametersBean.fieldOfViewDegProperty());
 
-        //observed sky's link
-        observedSky = Bindings.createObjectBinding(() ->
-                        new ObservedSky(dateTimeBean.getZonedDateTime(), observerLocationBean.getCoordinates(), projection.get(), catalogue),
-                dateTimeBean.dateProperty(), dateTimeBean.timeProperty(), dateTimeBean.zoneProperty(), observerLocationBean.coordinatesProperty(), projection);
+        //limiting magnitude's link (the stars too faint to be seen at the current zoom are not in the sky)
+        ObservableDoubleValue limitingMagnitude = Bindings.createDoubleBinding(() ->
+                painter.limitingMagnitude(projection.get(), planeToCanvas.get()), projection, planeToCanvas);
+
+        //horizontal sky's link (ephemerides and horizontal positions, only computed again when the time, the place
+        //or the catalogue change, and taken from the cache for the times and places seen recently), the stars
+        //of the large catalogues being computed in parallel
+        horizontalSky = Bindings.createObjectBinding(() ->
+                        horizontalSkyCache.get(dateTimeBean.getZonedDateTime(), observerLocationBean.getCoordinates(),
+                                this.catalogue.get()),
+                dateTimeBean.dateProperty(), dateTimeBean.timeProperty(), dateTimeBean.zoneProperty(), observerLocationBean.coordinatesProperty(), this.catalogue);
+
+        //viewing cone's link (angle between the center and the corners of the canvas, plus a margin): half of
+        //the field of view spans half of the width of the canvas, the projection of an angle a from the center
+        //being at a distance tan(a / 2)
+        ObservableDoubleValue viewRadius = Bindings.createDoubleBinding(() -> {
+            if (canvas.getWidth() <= 0) {
+                //canvas not laid out yet: nothing is culled
+                return Math.PI;
+            }
+            double halfWidth = Math.tan(Angle.ofDeg(viewingParametersBean.getFieldOfViewDeg()) / 4);
+            double halfDiagonal = halfWidth * Math.hypot(canvas.getWidth(), canvas.getHeight()) / canvas.getWidth();
+            return 2 * Math.atan(halfDiagonal) + VIEW_RADIUS_MARGIN;
+        }, canvas.widthProperty(), canvas.heightProperty(), viewingParametersBean.fieldOfViewDegProperty());
+
+        //observed sky's link (a change of the view only projects the horizontal sky again, the stars out of the
+        //view being culled)
+        observedSky = Bindings.createObjectBinding(() -> new ObservedSky(horizontalSky.get(), projection.get(),
+                        limitingMagnitude.get(), viewRadius.get()),
+                horizontalSky, projection, limitingMagnitude, viewRadius);
 
         //change in the sky listeners
         observedSky.addListener(o -> drawSky(painter, observedSky.get(), planeToCanvas.get(), projection.get()));
@@ -278,6 +318,49 @@ public final class SkyCanvasManager {
         return mousePosition.get();
     }
 
+    /**
+     * Return the catalogue of stars and asterisms
+     *
+     * @return : the catalogue of stars and asterisms
+     */
+    public StarCatalogue getCatalogue() {
+        return catalogue.get();
+    }
+
+    /**
+     * Return the cache of the skies seen at given times from given places
+     *
+     * @return : the cache of the skies seen at given times from given places
+     */
+    public HorizontalSkyCache getHorizontalSkyCache() {
+        return horizontalSkyCache;
+    }
+
+    /**
+     * Return the catalogue property
+     *
+     * @return : the catalogue property
+     */
+    public ObjectProperty<StarCatalogue> catalogueProperty() {
+        return catalogue;
+    }
+
+    /**
+     * Setter of the catalogue of stars and asterisms, the sky being computed and drawn again with it
+     * <p>
+     * Can be called from any thread (for catalogues loaded in the background): the catalogue is then
+     * published on the JavaFX application thread
+     *
+     * @param catalogue : the new catalogue
+     */
+    public void setCatalogue(StarCatalogue catalogue) {
+        if (Platform.isFxApplicationThread()) {
+            this.catalogue.set(catalogue);
+        } else {
+            Platform.runLater(() -> this.catalogue.set(catalogue));
+        }
+    }
+
     /**
      * Return the stereographic projection
      *
@@ -287,6 +370,15 @@ public final class SkyCanvasManager {
         return projection.get();
     }
 
+    /**
+     * Return the horizontal sky (the sky before its projection)
+     *
+     * @return : the horizontal sky
+     */
+    public HorizontalSky getHorizontalSky() {
+        return horizontalSky.get();
+    }
+
     /**
      * Return the observed sky
      *
@@ -341,6 +433,15 @@ public final class SkyCanvasManager {
         return projection;
     }
 
+    /**
+     * Return the horizontal sky property
+     *
+     * @return : the horizontal sky property
+     */
+    public ObservableObjectValue<HorizontalSky> horizontalSkyProperty() {
+        return horizontalSky;
+    }
+
     /**
      * Return the observed sky property
      *
@@ -11,9 +11,8 @@ import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 import javafx.scene.transform.Transform;
 
-import java.util.ArrayList;
+import java.nio.IntBuffer;
 import java.util.List;
-import java.util.Set;
 
 
 /**
@@ -26,6 +25,14 @@ public final class SkyCanvasPainter {
 
     private static final ClosedInterval MAGNITUDE_CLIP_INTERVAL = ClosedInterval.of(-2, 5);
     private static final double THETA = Angle.ofDeg(0.5d);
+    //size factor of the diameter of a planet or a star of (clipped) magnitude m: (99 - 17 m) / 140
+    private static final double SIZE_FACTOR_OFFSET = 99;
+    private static final double SIZE_FACTOR_SLOPE = 17;
+    private static final double SIZE_FACTOR_DIVISOR = 140;
+    private static final double HALO_FACTOR = 1.5;
+    //diameter (in pixels) of a halo whose antialiased disc covers 1/255 of a pixel (π d² / 4 = 1 / 255): a smaller
+    //halo, and the star inside it, change no 8-bit color channel of the canvas by a whole level
+    private static final double MAX_INVISIBLE_HALO_DIAMETER = Math.sqrt(4 / (255 * Math.PI));
     private static final Color FADED_YELLOW_COLOR = Color.YELLOW.deriveColor(0, 1, 1, 0.25);
     private static final Color ULTRA_FADED_YELLOW_COLOR = Color.YELLOW.deriveColor(0, 1, 1, 0.10);
     private static final Color FADED_GRAY_COLOR = Color.LIGHTGRAY.deriveColor(0, 1, 1, 0.25);
@@ -67,22 +74,32 @@ public final class SkyCanvasPainter {
      * @param colorAsterism  : the color of the asterisms
      */
     public void drawStars(ObservedSky observedSky, StereographicProjection projection, Transform transformation, Color colorAsterism) {
-        List<Star> stars = observedSky.stars();
-        double[] starPositions = observedSky.starsPosition();
-        Set<Asterism> asterisms = observedSky.asterisms();
-        StarCatalogue starCatalogue = new StarCatalogue(stars, new ArrayList<>(asterisms));
+        //the positions are read one by one, for their array to be reused by the next sky
+        int starCount = observedSky.starCount();
 
         if (Main.asterismsAreOn.get()) {
             //draw the asterisms
+            StarCatalogue catalogue = observedSky.catalogue();
+            IntBuffer asterismOffsets = catalogue.asterismOffsets();
+            IntBuffer asterismStarIndices = catalogue.asterismStarIndices();
+            Bounds bounds = canvas.getBoundsInLocal();
             ctx.setStroke(colorAsterism);
             ctx.setLineWidth(1);
-            for (Asterism asterism : asterisms) {
+            for (int asterism = 0; asterism < catalogue.asterismCount(); ++asterism) {
                 Point2D previousStar = null;
                 ctx.beginPath();
-                List<Integer> indices = starCatalogue.asterismIndices(asterism);
-                for (Integer index : indices) {
-                    Point2D currentStar = transformation.transform(starPositions[index * 2], starPositions[index * 2 + 1]);
-                    Bounds bounds = canvas.getBoundsInLocal();
+                for (int i = asterismOffsets.get(asterism); i < asterismOffsets.get(asterism + 1); ++i) {
+                    int index = asterismStarIndices.get(i);
+                    if (index >= starCount || Double.isNaN(observedSky.starPositionX(index))) {
+                        //star fainter than the limiting magnitude of the sky or out of its viewing cone:
+                        //the line is interrupted
+                        ctx.stroke();
+                        ctx.closePath();
+                        ctx.beginPath();
+                        previousStar = null;
+                        continue;
+                    }
+                    Point2D currentStar = transformation.transform(observedSky.starPositionX(index), observedSky.starPositionY(index));
                     if (bounds.contains(previousStar) || bounds.contains(currentStar)) {
                         ctx.lineTo(currentStar.getX(), currentStar.getY());
                     } else {
@@ -98,17 +115,39 @@ public final class SkyCanvasPainter {
         }
 
         //draw the stars
-        int i = 0;
-        for (Star star : stars) {
-            double diameter = diameterOfPlanetsAndStars(star.magnitude(), projection);
-            Color color = BlackBodyColor.colorForTemperature(star.colorTemperature());
-            Color fadedColor = color.deriveColor(0, 1, 1, 0.25);
-            drawCircle(fadedColor, starPositions[i], starPositions[i + 1], diameter * 1.5, transformation, null);
-            drawCircle(color, starPositions[i], starPositions[i + 1], diameter, transformation, null);
-            i += 2;
+        StarTable starTable = observedSky.catalogue().starTable();
+        for (int i = 0; i < starCount; ++i) {
+            double x = observedSky.starPositionX(i), y = observedSky.starPositionY(i);
+            if (Double.isNaN(x)) {
+                //star out of the viewing cone of the sky
+                continue;
+            }
+            double diameter = diameterOfPlanetsAndStars(starTable.magnitude(i), projection);
+            int paletteIndex = starTable.colorPaletteIndex(i);
+            drawCircle(BlackBodyColor.fadedColorForPaletteIndex(paletteIndex), x, y, diameter * HALO_FACTOR, transformation, null);
+            drawCircle(BlackBodyColor.colorForPaletteIndex(paletteIndex), x, y, diameter, transformation, null);
         }
     }
 
+    /**
+     * Return the magnitude of the faintest stars which change the drawn canvas, the halo of a fainter star being
+     * smaller than MAX_INVISIBLE_HALO_DIAMETER pixels (stars fainter than the clipping magnitude being drawn like
+     * stars of the clipping magnitude, all the stars are drawn as soon as the stars of the clipping magnitude are
+     * visible)
+     *
+     * @param projection     : the stereographic projection
+     * @param transformation : the affine transformation from stereographic projection to canvas system
+     * @return : the magnitude of the faintest stars which are worth drawing, or infinity if all are
+     */
+    public double limitingMagnitude(StereographicProjection projection, Transform transformation) {
+        Point2D unitDiameter = transformation.deltaTransform(0, projection.applyToAngle(THETA));
+        double unitDiameterPixels = Math.hypot(unitDiameter.getX(), unitDiameter.getY());
+        //diameterOfPlanetsAndStars inverted: the size factor of the faintest visible star, then its magnitude
+        double sizeFactor = MAX_INVISIBLE_HALO_DIAMETER / (HALO_FACTOR * unitDiameterPixels);
+        double magnitude = (SIZE_FACTOR_OFFSET - SIZE_FACTOR_DIVISOR * sizeFactor) / SIZE_FACTOR_SLOPE;
+        return (magnitude >= MAGNITUDE_CLIP_INTERVAL.high()) ? Double.POSITIVE_INFINITY : magnitude;
+    }
+
     /**
      * Draws the planets' representation of a given observed sky
      *
@@ -122,7 +161,7 @@ public final class SkyCanvasPainter {
         int i = 0;
         for (Planet planet : planets) {
             double diameter = diameterOfPlanetsAndStars(planet.magnitude(), projection);
-            drawCircle(FADED_GRAY_COLOR, planetPositions[i], planetPositions[i + 1], diameter * 1.5, transformation, planet.info());
+            drawCircle(FADED_GRAY_COLOR, planetPositions[i], planetPositions[i + 1], diameter * HALO_FACTOR, transformation, planet.info());
             drawCircle(Color.LIGHTGRAY, planetPositions[i], planetPositions[i + 1], diameter, transformation, null);
             i += 2;
         }
@@ -229,7 +268,7 @@ public final class SkyCanvasPainter {
      */
     private double diameterOfPlanetsAndStars(double magnitude, StereographicProjection projection) {
         double clippedMagnitude = MAGNITUDE_CLIP_INTERVAL.clip(magnitude);
-        double sizeFactor = (99 - 17 * clippedMagnitude) / 140d;
+        double sizeFactor = (SIZE_FACTOR_OFFSET - SIZE_FACTOR_SLOPE * clippedMagnitude) / SIZE_FACTOR_DIVISOR;
         return sizeFactor * projection.applyToAngle(THETA);
     }
 
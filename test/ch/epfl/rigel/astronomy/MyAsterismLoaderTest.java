@@ -2,12 +2,15 @@ package ch.epfl.rigel.astronomy;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -116,6 +119,34 @@ public class MyAsterismLoaderTest {
     }
 
 
+    @Test
+    public void compressedAsterismsAreDecompressedAsTheyAreRead() throws IOException {
+        byte[] asterisms;
+        try (InputStream asterismInput = getClass().getResourceAsStream(ASTERISMS_TXT)) {
+            asterisms = asterismInput.readAllBytes();
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(asterisms);
+        }
+
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        try (InputStream starInput = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            builder.loadFrom(starInput, HygDatabaseLoader.INSTANCE);
+        }
+        builder.loadFrom(new ByteArrayInputStream(asterisms), AsterismLoader.INSTANCE);
+        int asterismCount = builder.asterisms().size();
+        builder.loadFrom(new ByteArrayInputStream(compressed.toByteArray()), AsterismLoader.INSTANCE);
+        List<Asterism> loaded = builder.asterisms();
+        assertEquals(2 * asterismCount, loaded.size());
+        for (int i = 0; i < asterismCount; ++i) {
+            assertEquals(loaded.get(i).stars(), loaded.get(asterismCount + i).stars());
+        }
+
+        assertThrows(IOException.class, () -> new StarCatalogue.Builder()
+                .loadFrom(new ByteArrayInputStream("1,,2".getBytes()), AsterismLoader.INSTANCE));
+    }
+
     @Test
     public void testLoaders() throws IOException {
         try (InputStream asterismInput = getClass().getResourceAsStream(ASTERISMS_TXT)) {
@@ -0,0 +1,119 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+public class MyBinaryCatalogueLoaderTest {
+
+    private static final String HYG_CATALOGUE_NAME = "/hygdata_v3.csv";
+
+    private static void assertSameStars(List<Star> expected, List<Star> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            Star expectedStar = expected.get(i);
+            Star actualStar = actual.get(i);
+            assertEquals(expectedStar.hipparcosId(), actualStar.hipparcosId());
+            assertEquals(expectedStar.name(), actualStar.name());
+            assertEquals(expectedStar.equatorialPos().ra(), actualStar.equatorialPos().ra());
+            assertEquals(expectedStar.equatorialPos().dec(), actualStar.equatorialPos().dec());
+            assertEquals(expectedStar.magnitude(), actualStar.magnitude());
+            assertEquals(expectedStar.colorTemperature(), actualStar.colorTemperature());
+            assertEquals(expectedStar.properMotionRa(), actualStar.properMotionRa());
+            assertEquals(expectedStar.properMotionDec(), actualStar.properMotionDec());
+        }
+    }
+
+    @Test
+    public void writtenStarsAreLoadedBack() throws IOException {
+        List<Star> stars = List.of(
+                new Star(24436, "Rigel", EquatorialCoordinates.of(1.3724303693276385, -0.143145630755865), 0.18f, -0.03f),
+                new Star(0, "? Aqr", EquatorialCoordinates.of(6.064662769813043, -0.3919549465551), 5.9f, 0));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        BinaryCatalogueWriter.write(stars, outputStream);
+
+        StarCatalogue catalogue = new StarCatalogue.Builder()
+                .loadFrom(new ByteArrayInputStream(outputStream.toByteArray()), BinaryCatalogueLoader.INSTANCE)
+                .build();
+        assertSameStars(stars, catalogue.stars());
+    }
+
+    @Test
+    public void mappedFileGivesTheSameCatalogueAsTheCsv() throws IOException {
+        List<Star> csvStars;
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            csvStars = new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE).build().stars();
+        }
+
+        Path binaryFile = Files.createTempFile("hygdata_v3", ".bin");
+        try {
+            try (OutputStream outputStream = Files.newOutputStream(binaryFile)) {
+                BinaryCatalogueWriter.write(csvStars, outputStream);
+            }
+            StarCatalogue.Builder builder = new StarCatalogue.Builder();
+            BinaryCatalogueLoader.INSTANCE.load(binaryFile, builder);
+            assertSameStars(csvStars, builder.build().stars());
+
+            try (InputStream binaryStream = new FileInputStream(binaryFile.toFile())) {
+                assertSameStars(csvStars, new StarCatalogue.Builder()
+                        .loadFrom(binaryStream, BinaryCatalogueLoader.INSTANCE).build().stars());
+            }
+        } finally {
+            Files.delete(binaryFile);
+        }
+    }
+
+    @Test
+    public void shippedBinaryCatalogueIsTheCsvOne() throws IOException {
+        List<Star> csvStars;
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            csvStars = new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE).build().stars();
+        }
+        try (InputStream binaryStream = getClass().getResourceAsStream("/hygdata_v3.bin")) {
+            assertSameStars(csvStars, new StarCatalogue.Builder()
+                    .loadFrom(binaryStream, BinaryCatalogueLoader.INSTANCE).build().stars());
+        }
+    }
+
+    @Test
+    public void shippedBinaryCatalogueIsWrittenFromTheCsvOne() throws IOException {
+        //the binary catalogue is rebuilt from the csv one as BinaryCatalogueWriter.main does, byte for byte
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            builder.loadFrom(hygStream, HygDatabaseLoader.INSTANCE);
+        }
+        ByteArrayOutputStream rebuilt = new ByteArrayOutputStream();
+        BinaryCatalogueWriter.write(builder.stars(), rebuilt);
+        try (InputStream binaryStream = getClass().getResourceAsStream("/hygdata_v3.bin")) {
+            assertArrayEquals(rebuilt.toByteArray(), binaryStream.readAllBytes(),
+                    "hygdata_v3.bin is out of date: run BinaryCatalogueWriter on hygdata_v3.csv");
+        }
+    }
+
+    @Test
+    public void invalidStreamThrows() throws IOException {
+        assertThrows(IOException.class, () -> BinaryCatalogueLoader.INSTANCE.load(
+                new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16}),
+                new StarCatalogue.Builder()));
+        assertThrows(IOException.class, () -> BinaryCatalogueLoader.INSTANCE.load(
+                new ByteArrayInputStream(new byte[0]), new StarCatalogue.Builder()));
+
+        Path emptyFile = Files.createTempFile("hygdata_v3", ".bin");
+        try {
+            assertThrows(IOException.class,
+                    () -> BinaryCatalogueLoader.INSTANCE.load(emptyFile, new StarCatalogue.Builder()));
+        } finally {
+            Files.delete(emptyFile);
+        }
+    }
+}
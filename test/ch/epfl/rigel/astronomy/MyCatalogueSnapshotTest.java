@@ -0,0 +1,241 @@
+package ch.epfl.rigel.astronomy;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+public class MyCatalogueSnapshotTest {
+
+    private static byte[] resource(String name) throws IOException {
+        try (InputStream stream = MyCatalogueSnapshotTest.class.getResourceAsStream(name)) {
+            return stream.readAllBytes();
+        }
+    }
+
+    private static void assertSameCatalogue(StarCatalogue expected, StarCatalogue actual) {
+        assertEquals(expected.stars().size(), actual.stars().size());
+        for (int i = 0; i < expected.stars().size(); ++i) {
+            Star expectedStar = expected.stars().get(i);
+            Star actualStar = actual.stars().get(i);
+            assertEquals(expectedStar.hipparcosId(), actualStar.hipparcosId());
+            assertEquals(expectedStar.name(), actualStar.name());
+            assertEquals(expectedStar.equatorialPos().ra(), actualStar.equatorialPos().ra());
+            assertEquals(expectedStar.equatorialPos().dec(), actualStar.equatorialPos().dec());
+            assertEquals(expectedStar.magnitude(), actualStar.magnitude());
+            assertEquals(expectedStar.colorTemperature(), actual.starTable().colorTemperature(i));
+            assertEquals(expected.starTable().colorPaletteIndex(i), actual.starTable().colorPaletteIndex(i));
+        }
+        assertEquals(expected.asterismOffsets(), actual.asterismOffsets());
+        assertEquals(expected.asterismStarIndices(), actual.asterismStarIndices());
+        for (Asterism asterism : actual.asterisms()) {
+            for (Star star : asterism.stars()) {
+                assertTrue(actual.indexOf(star) >= 0);
+            }
+        }
+    }
+
+    @Test
+    public void snapshotContainsTheCatalogue() throws IOException {
+        byte[] stars = resource("/hygdata_v3.csv");
+        byte[] asterisms = resource("/asterisms.txt");
+        long checksum = CatalogueSnapshot.checksum(stars, asterisms);
+        StarCatalogue catalogue = new StarCatalogue.Builder()
+                .loadFrom(new ByteArrayInputStream(stars), HygDatabaseLoader.INSTANCE)
+                .loadFrom(new ByteArrayInputStream(asterisms), AsterismLoader.INSTANCE)
+                .build();
+
+        ByteBuffer snapshot = CatalogueSnapshot.write(catalogue, checksum).flip();
+        assertSameCatalogue(catalogue, CatalogueSnapshot.read(snapshot.duplicate(), checksum, false).orElseThrow());
+        assertTrue(CatalogueSnapshot.read(snapshot.duplicate(), checksum + 1, false).isEmpty());
+        assertTrue(CatalogueSnapshot.read(snapshot.duplicate().limit(snapshot.limit() - 1), checksum, false).isEmpty());
+        assertTrue(CatalogueSnapshot.read(snapshot.duplicate(), checksum, true).isEmpty());
+
+        StarCatalogue sortedCatalogue = new StarCatalogue.Builder()
+                .sortedByMagnitude()
+                .loadFrom(new ByteArrayInputStream(stars), HygDatabaseLoader.INSTANCE)
+                .loadFrom(new ByteArrayInputStream(asterisms), AsterismLoader.INSTANCE)
+                .build();
+        StarCatalogue readCatalogue = CatalogueSnapshot.read(
+                CatalogueSnapshot.write(sortedCatalogue, checksum).flip(), checksum, true).orElseThrow();
+        assertSameCatalogue(sortedCatalogue, readCatalogue);
+        assertTrue(readCatalogue.isSortedByMagnitude());
+        for (int i = 0; i < readCatalogue.stars().size(); ++i) {
+            assertEquals(sortedCatalogue.originalIndexOf(i), readCatalogue.originalIndexOf(i));
+        }
+
+        //invalid color index: the snapshot is rejected
+        int colorIndicesStart = CatalogueSnapshot.HEADER_BYTES
+                + sortedCatalogue.starTable().size() * (2 * Double.BYTES + Float.BYTES);
+        ByteBuffer invalidColorIndex = CatalogueSnapshot.write(sortedCatalogue, checksum).flip();
+        invalidColorIndex.putFloat(colorIndicesStart + 5 * Float.BYTES, 10f);
+        assertTrue(CatalogueSnapshot.read(invalidColorIndex, checksum, true).isEmpty());
+
+        //original indices which are not a permutation: the snapshot is rejected
+        StarTable starTable = sortedCatalogue.starTable();
+        int originalIndicesStart = CatalogueSnapshot.HEADER_BYTES
+                + (int) StarTable.columnBytes(starTable.size(), starTable.nameHeapSize());
+        ByteBuffer duplicatedIndex = CatalogueSnapshot.write(sortedCatalogue, checksum).flip();
+        duplicatedIndex.putInt(originalIndicesStart, duplicatedIndex.getInt(originalIndicesStart + Integer.BYTES));
+        assertTrue(CatalogueSnapshot.read(duplicatedIndex, checksum, true).isEmpty());
+        ByteBuffer outOfRangeIndex = CatalogueSnapshot.write(sortedCatalogue, checksum).flip();
+        outOfRangeIndex.putInt(originalIndicesStart, starTable.size());
+        assertTrue(CatalogueSnapshot.read(outOfRangeIndex, checksum, true).isEmpty());
+    }
+
+    @Test
+    public void unwritableSnapshotLeavesNoTemporaryFile() throws IOException {
+        byte[] stars = resource("/hygdata_v3.csv");
+        byte[] asterisms = resource("/asterisms.txt");
+        Path directory = Files.createTempDirectory("rigel");
+        //a non-empty directory cannot be replaced by the snapshot
+        Path snapshotFile = directory.resolve("catalogue.snapshot");
+        Path blockingFile = Files.createDirectory(snapshotFile).resolve("blocking");
+        Files.createFile(blockingFile);
+        try {
+            assertEquals(new StarCatalogue.Builder()
+                            .loadFrom(new ByteArrayInputStream(stars), HygDatabaseLoader.INSTANCE).build().stars().size(),
+                    CatalogueSnapshot.loadOrBuild(snapshotFile, stars, HygDatabaseLoader.INSTANCE, asterisms, false)
+                            .stars().size());
+            try (Stream<Path> files = Files.list(directory)) {
+                assertEquals(List.of(snapshotFile), files.collect(Collectors.toList()));
+            }
+        } finally {
+            Files.delete(blockingFile);
+            Files.delete(snapshotFile);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void staleSnapshotFileIsRebuilt() throws IOException {
+        byte[] stars = resource("/hygdata_v3.csv");
+        byte[] asterisms = resource("/asterisms.txt");
+        Path directory = Files.createTempDirectory("rigel");
+        Path snapshotFile = directory.resolve("catalogue.snapshot");
+        try {
+            StarCatalogue built = CatalogueSnapshot.loadOrBuild(snapshotFile, stars, HygDatabaseLoader.INSTANCE, asterisms, false);
+            assertTrue(Files.exists(snapshotFile));
+            byte[] snapshot = Files.readAllBytes(snapshotFile);
+            assertSameCatalogue(built,
+                    CatalogueSnapshot.loadOrBuild(snapshotFile, stars, HygDatabaseLoader.INSTANCE, asterisms, false));
+
+            //other sources: the snapshot is rewritten
+            byte[] otherAsterisms = Arrays.copyOf(asterisms, asterisms.length - 1);
+            CatalogueSnapshot.loadOrBuild(snapshotFile, stars, HygDatabaseLoader.INSTANCE, otherAsterisms, false);
+            assertFalse(Arrays.equals(snapshot, Files.readAllBytes(snapshotFile)));
+
+            //corrupted snapshot: it is rewritten
+            Files.write(snapshotFile, Arrays.copyOf(snapshot, 100));
+            assertSameCatalogue(built,
+                    CatalogueSnapshot.loadOrBuild(snapshotFile, stars, HygDatabaseLoader.INSTANCE, asterisms, false));
+            assertArrayEquals(snapshot, Files.readAllBytes(snapshotFile));
+        } finally {
+            Files.deleteIfExists(snapshotFile);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void snapshotOfABinaryCatalogueFileIsRead() throws IOException {
+        byte[] stars = resource("/hygdata_v3.csv");
+        byte[] asterisms = resource("/asterisms.txt");
+        Path directory = Files.createTempDirectory("rigel");
+        Path binaryFile = directory.resolve("hygdata_v3.bin");
+        Path snapshotFile = directory.resolve("catalogue.snapshot");
+        try {
+            StarCatalogue csvCatalogue = CatalogueSnapshot.loadOrBuild(snapshotFile, stars, HygDatabaseLoader.INSTANCE,
+                    asterisms, true);
+            try (OutputStream outputStream = Files.newOutputStream(binaryFile)) {
+                BinaryCatalogueWriter.write(new StarCatalogue.Builder()
+                        .loadFrom(new ByteArrayInputStream(stars), HygDatabaseLoader.INSTANCE).stars(), outputStream);
+            }
+
+            //other source: the snapshot is rewritten, then read
+            StarCatalogue built = CatalogueSnapshot.loadOrBuild(snapshotFile, binaryFile, asterisms, true);
+            assertSameCatalogue(csvCatalogue, built);
+            byte[] snapshot = Files.readAllBytes(snapshotFile);
+            assertSameCatalogue(built, CatalogueSnapshot.loadOrBuild(snapshotFile, binaryFile, asterisms, true));
+            assertArrayEquals(snapshot, Files.readAllBytes(snapshotFile));
+            assertEquals(CatalogueSnapshot.checksum(Files.readAllBytes(binaryFile), asterisms),
+                    CatalogueSnapshot.checksum(BinaryCatalogueLoader.map(binaryFile), ByteBuffer.wrap(asterisms)));
+        } finally {
+            Files.deleteIfExists(snapshotFile);
+            Files.deleteIfExists(binaryFile);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void brightStarsArePublishedBeforeTheOtherStarsAreRead() throws IOException {
+        byte[] stars = resource("/hygdata_v3.csv");
+        byte[] asterisms = resource("/asterisms.txt");
+        long checksum = CatalogueSnapshot.checksum(stars, asterisms);
+        StarCatalogue catalogue = new StarCatalogue.Builder()
+                .sortedByMagnitude()
+                .loadFrom(new ByteArrayInputStream(stars), HygDatabaseLoader.INSTANCE)
+                .loadFrom(new ByteArrayInputStream(asterisms), AsterismLoader.INSTANCE)
+                .build();
+        ByteBuffer snapshot = CatalogueSnapshot.write(catalogue, checksum).flip();
+
+        List<StarCatalogue> brightCatalogues = new ArrayList<>();
+        StarCatalogue readCatalogue = CatalogueSnapshot.read(snapshot.duplicate(), checksum, true, 4,
+                brightCatalogues::add).orElseThrow();
+        assertEquals(1, brightCatalogues.size());
+        StarCatalogue brightCatalogue = brightCatalogues.get(0);
+        StarCatalogue expectedBrightCatalogue = catalogue.brighterThan(4);
+        assertSameCatalogue(expectedBrightCatalogue, brightCatalogue);
+        assertTrue(brightCatalogue.isSortedByMagnitude());
+        assertEquals(catalogue.starCountBrighterThan(4), brightCatalogue.starCountBrighterThan(4));
+        assertEquals(brightCatalogue.stars().size(), brightCatalogue.starCountBrighterThan(99));
+        assertSameCatalogue(catalogue, readCatalogue);
+
+        //invalid faintest star: the bright stars were published before it was read, the snapshot is rejected
+        int colorIndicesStart = CatalogueSnapshot.HEADER_BYTES
+                + catalogue.starTable().size() * (2 * Double.BYTES + Float.BYTES);
+        snapshot.putFloat(colorIndicesStart + (catalogue.starTable().size() - 1) * Float.BYTES, 10f);
+        brightCatalogues.clear();
+        assertTrue(CatalogueSnapshot.read(snapshot.duplicate(), checksum, true, 4, brightCatalogues::add).isEmpty());
+        assertEquals(1, brightCatalogues.size());
+        assertSameCatalogue(expectedBrightCatalogue, brightCatalogues.get(0));
+
+        //catalogue built from its sources: the bright stars are published before the snapshot is written
+        Path directory = Files.createTempDirectory("rigel");
+        Path snapshotFile = directory.resolve("catalogue.snapshot");
+        try {
+            brightCatalogues.clear();
+            CatalogueSnapshot.loadOrBuild(snapshotFile, stars, HygDatabaseLoader.INSTANCE, asterisms, true, 4,
+                    builtBrightCatalogue -> {
+                        assertFalse(Files.exists(snapshotFile));
+                        brightCatalogues.add(builtBrightCatalogue);
+                    });
+            assertEquals(1, brightCatalogues.size());
+            assertSameCatalogue(expectedBrightCatalogue, brightCatalogues.get(0));
+            assertTrue(Files.exists(snapshotFile));
+            brightCatalogues.clear();
+            CatalogueSnapshot.loadOrBuild(snapshotFile, stars, HygDatabaseLoader.INSTANCE, asterisms, true, 4,
+                    brightCatalogues::add);
+            assertEquals(1, brightCatalogues.size());
+            assertSameCatalogue(expectedBrightCatalogue, brightCatalogues.get(0));
+        } finally {
+            Files.deleteIfExists(snapshotFile);
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package ch.epfl.rigel.astronomy;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.SplittableRandom;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+public class MyCsvScannerTest {
+
+    private static CsvScanner scannerOf(String text) {
+        return new CsvScanner(new ByteArrayInputStream(text.getBytes(US_ASCII)));
+    }
+
+    @Test
+    public void linesAndFieldsAreWalkedInOrder() throws IOException {
+        CsvScanner scanner = scannerOf("a,bb,,d\r\n\n1,2\n3");
+        assertTrue(scanner.nextLine());
+        assertEquals("a", scanner.stringValue());
+        assertTrue(scanner.nextField());
+        assertEquals("bb", scanner.stringValue());
+        assertTrue(scanner.nextField());
+        assertTrue(scanner.isBlank());
+        assertTrue(scanner.nextField());
+        assertEquals("d", scanner.stringValue());
+        assertFalse(scanner.nextField());
+
+        assertTrue(scanner.nextLine());
+        assertEquals(1, scanner.intValue(0));
+        scanner.column(1);
+        assertEquals(2, scanner.intValue(0));
+        scanner.column(5);
+        assertTrue(scanner.isBlank());
+        assertEquals(-1, scanner.intValue(-1));
+
+        assertTrue(scanner.nextLine());
+        assertEquals(3, scanner.intValue(0));
+        assertFalse(scanner.nextLine());
+    }
+
+    @Test
+    public void columnCannotGoBackwards() throws IOException {
+        CsvScanner scanner = scannerOf("1,2,3");
+        scanner.nextLine();
+        scanner.column(2);
+        assertThrows(IllegalArgumentException.class, () -> scanner.column(1));
+    }
+
+    @Test
+    public void appendToCopiesTheField() throws IOException {
+        CsvScanner scanner = scannerOf("Alp,Ori");
+        scanner.nextLine();
+        StringBuilder stringBuilder = new StringBuilder();
+        scanner.appendTo(stringBuilder).append(' ');
+        scanner.nextField();
+        assertEquals("Alp Ori", scanner.appendTo(stringBuilder).toString());
+    }
+
+    @Test
+    public void longMantissasAndLargeExponentsAreParsedLikeTheJdk() throws IOException {
+        SplittableRandom random = new SplittableRandom(2021);
+        StringBuilder text = new StringBuilder();
+        String[] values = new String[50_000];
+        for (int i = 0; i < values.length; ++i) {
+            if (i % 2 == 0) {
+                //17 to 19 digits, exponent out of the range of the exact powers of ten
+                int digitCount = random.nextInt(17, 20);
+                StringBuilder digits = new StringBuilder().append(random.nextInt(1, 10));
+                for (int d = 1; d < digitCount; ++d) {
+                    digits.append(random.nextInt(10));
+                }
+                int exponent = random.nextBoolean() ? random.nextInt(23, 290) : random.nextInt(-300, -23);
+                if (random.nextBoolean()) {
+                    digits.insert(random.nextInt(1, digitCount), '.');
+                }
+                values[i] = digits + "e" + exponent;
+            } else {
+                //19 digits around the halfway point between two consecutive doubles
+                double value = Math.pow(10, random.nextDouble(-280, 280));
+                BigDecimal halfway = new BigDecimal(value).add(new BigDecimal(Math.nextUp(value)))
+                        .divide(BigDecimal.valueOf(2));
+                BigDecimal rounded = halfway.round(new MathContext(19,
+                        random.nextBoolean() ? RoundingMode.DOWN : RoundingMode.UP));
+                values[i] = rounded.unscaledValue() + "e" + -rounded.scale();
+            }
+            text.append(values[i]).append('\n');
+        }
+
+        CsvScanner scanner = scannerOf(text.toString());
+        for (String value : values) {
+            assertTrue(scanner.nextLine());
+            assertEquals(Double.parseDouble(value), scanner.doubleValue(Double.NaN), value);
+        }
+        assertFalse(scanner.nextLine());
+    }
+
+    @Test
+    public void numbersAreParsedLikeTheJdk() throws IOException {
+        SplittableRandom random = new SplittableRandom(2020);
+        StringBuilder text = new StringBuilder();
+        String[] values = new String[20_000];
+        for (int i = 0; i < values.length; ++i) {
+            double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(-12, 12));
+            values[i] = (i % 3 == 0) ? String.format("%.17f", value) : Double.toString(value);
+            text.append(i).append(',').append(values[i]).append('\n');
+        }
+        text.append("-0.0,1e-3,0.000000009066015826,12345678901234567890,abc\n");
+
+        //the text is much larger than the buffer of the scanner, which must be refilled
+        CsvScanner scanner = scannerOf(text.toString());
+        for (int i = 0; i < values.length; ++i) {
+            assertTrue(scanner.nextLine());
+            assertEquals(i, scanner.intValue(-1));
+            scanner.nextField();
+            assertEquals(Double.parseDouble(values[i]), scanner.doubleValue(Double.NaN));
+        }
+        assertTrue(scanner.nextLine());
+        assertEquals(Double.doubleToLongBits(-0.0), Double.doubleToLongBits(scanner.doubleValue(1)));
+        scanner.nextField();
+        assertEquals(1e-3, scanner.doubleValue(1));
+        scanner.nextField();
+        assertEquals(0.000000009066015826, scanner.doubleValue(1));
+        scanner.nextField();
+        assertEquals(12345678901234567890d, scanner.doubleValue(1));
+        scanner.nextField();
+        assertThrows(NumberFormatException.class, () -> scanner.doubleValue(1));
+        assertThrows(NumberFormatException.class, () -> scanner.intValue(1));
+        assertFalse(scanner.nextLine());
+    }
+
+    @Test
+    public void rangeOfAnArrayCanBeScanned() throws IOException {
+        byte[] bytes = "x\n1,2\n3,4\ny".getBytes(US_ASCII);
+        CsvScanner scanner = new CsvScanner(bytes, 2, 10);
+        assertTrue(scanner.nextLine());
+        assertEquals(1, scanner.intValue(0));
+        assertTrue(scanner.nextLine());
+        scanner.column(1);
+        assertEquals(4, scanner.intValue(0));
+        assertFalse(scanner.nextLine());
+    }
+}
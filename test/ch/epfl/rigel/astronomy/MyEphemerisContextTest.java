@@ -0,0 +1,58 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EclipticToEquatorialConversion;
+import ch.epfl.rigel.math.Angle;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+public class MyEphemerisContextTest {
+
+    private static final String[] TIMES = {
+            "2003-09-01T00:00:00Z", "2010-01-01T00:00:00Z", "2020-02-17T20:15:00+01:00", "2091-07-14T12:00:00Z"};
+
+    @Test
+    void modelsGiveTheSameObjectsWithTheContext() {
+        for (String time : TIMES) {
+            ZonedDateTime when = ZonedDateTime.parse(time);
+            EphemerisContext context = new EphemerisContext(when);
+            double days = Epoch.J2010.daysUntil(when);
+            EclipticToEquatorialConversion conversion = new EclipticToEquatorialConversion(when);
+            assertEquals(days, context.daysSinceJ2010());
+
+            //the sun of the context is not computed again
+            assertSame(context.sun(), SunModel.SUN.at(context));
+            assertSameObject(SunModel.SUN.at(days, conversion), context.sun());
+            assertSameObject(MoonModel.MOON.at(days, conversion), MoonModel.MOON.at(context));
+            for (PlanetModel planet : PlanetModel.ALL) {
+                if (planet != PlanetModel.EARTH) {
+                    assertSameObject(planet.at(days, conversion), planet.at(context));
+                }
+            }
+        }
+    }
+
+    @Test
+    void contextHoldsTheSharedQuantities() {
+        EphemerisContext context = new EphemerisContext(ZonedDateTime.parse("2010-01-01T00:00:00Z"));
+        assertEquals(23.44, Angle.toDeg(context.obliquity()), 0.01);
+        //the Earth is at its perihelion at the beginning of January
+        assertEquals(0.983, context.earthRadius(), 0.001);
+        assertEquals(Angle.normalizePositive(context.sun().eclipticPos().lon() + Math.PI),
+                Angle.normalizePositive(context.earthLon()), 1e-3);
+    }
+
+    private static void assertSameObject(CelestialObject expected, CelestialObject actual) {
+        assertEquals(expected.equatorialPos().ra(), actual.equatorialPos().ra());
+        assertEquals(expected.equatorialPos().dec(), actual.equatorialPos().dec());
+        assertEquals(expected.angularSize(), actual.angularSize());
+        assertEquals(expected.magnitude(), actual.magnitude());
+        assertEquals(expected.info(), actual.info());
+    }
+}
@@ -0,0 +1,118 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+public class MyHorizontalSkyCacheTest {
+
+    private static final ZonedDateTime WHEN = ZonedDateTime.parse("2020-02-17T20:15:00+01:00");
+    private static final GeographicCoordinates WHERE = GeographicCoordinates.ofDeg(6.57, 46.52);
+
+    private static StarCatalogue catalogue(int starCount) {
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        for (int i = 0; i < starCount; ++i) {
+            builder.addStar(new Star(i, "star" + i, EquatorialCoordinates.of(0.1 * i, 0.01 * i), 1, 0));
+        }
+        return builder.build();
+    }
+
+    @Test
+    void timesRoundedToTheSameTimeShareTheirSky() {
+        StarCatalogue catalogue = catalogue(10);
+        HorizontalSkyCache cache = new HorizontalSkyCache(1000, Duration.ofMinutes(1), StarPartitioner.SEQUENTIAL);
+
+        HorizontalSky sky = cache.get(WHEN, WHERE, catalogue);
+        assertSame(sky, cache.get(WHEN.plusSeconds(29), WHERE, catalogue));
+        assertSame(sky, cache.get(WHEN.minusSeconds(30), WHERE, catalogue));
+        assertNotSame(sky, cache.get(WHEN.plusSeconds(31), WHERE, catalogue));
+        assertNotSame(sky, cache.get(WHEN, GeographicCoordinates.ofDeg(6.57, 46.53), catalogue));
+        assertNotSame(sky, cache.get(WHEN, WHERE, catalogue(10)));
+        assertEquals(2, cache.hitCount());
+        assertEquals(4, cache.missCount());
+        assertEquals(4, cache.size());
+
+        //the sky is computed at the exact time of the miss, not at the rounded one
+        HorizontalSky direct = new HorizontalSky(WHEN, WHERE, catalogue);
+        assertEquals(direct.sunPosition().az(), sky.sunPosition().az());
+        assertEquals(direct.starUnitVectors(), sky.starUnitVectors());
+        HorizontalSkyCache otherCache = new HorizontalSkyCache(1000, Duration.ofMinutes(1), StarPartitioner.SEQUENTIAL);
+        HorizontalSky offsetSky = otherCache.get(WHEN.plusSeconds(20), WHERE, catalogue);
+        HorizontalSky offsetDirect = new HorizontalSky(WHEN.plusSeconds(20), WHERE, catalogue);
+        assertEquals(offsetDirect.sunPosition().az(), offsetSky.sunPosition().az());
+        assertEquals(offsetDirect.starUnitVectors(), offsetSky.starUnitVectors());
+    }
+
+    @Test
+    void withoutToleranceOnlyTheSameTimesShareTheirSky() {
+        StarCatalogue catalogue = catalogue(10);
+        HorizontalSkyCache cache = new HorizontalSkyCache(1000, Duration.ZERO, StarPartitioner.SEQUENTIAL);
+
+        HorizontalSky sky = cache.get(WHEN, WHERE, catalogue);
+        assertSame(sky, cache.get(WHEN.withZoneSameInstant(ZoneOffset.UTC), WHERE, catalogue));
+        assertNotSame(sky, cache.get(WHEN.plusNanos(1), WHERE, catalogue));
+        assertEquals(1, cache.hitCount());
+        assertEquals(2, cache.missCount());
+    }
+
+    @Test
+    void leastRecentlyUsedSkiesAreEvictedBeyondTheCapacity() {
+        StarCatalogue catalogue = catalogue(10);
+        HorizontalSkyCache cache = new HorizontalSkyCache(30, Duration.ofSeconds(1), StarPartitioner.SEQUENTIAL);
+        HorizontalSky first = cache.get(WHEN, WHERE, catalogue);
+        cache.get(WHEN.plusHours(1), WHERE, catalogue);
+        cache.get(WHEN.plusHours(2), WHERE, catalogue);
+        //the first sky becomes the most recently used
+        assertSame(first, cache.get(WHEN, WHERE, catalogue));
+        cache.get(WHEN.plusHours(3), WHERE, catalogue);
+        assertEquals(3, cache.size());
+        assertSame(first, cache.get(WHEN, WHERE, catalogue));
+        cache.get(WHEN.plusHours(1), WHERE, catalogue);
+        assertEquals(5, cache.missCount());
+
+        //a sky larger than the capacity is still kept alone
+        HorizontalSky large = cache.get(WHEN, WHERE, catalogue(40));
+        assertEquals(1, cache.size());
+        assertSame(large, cache.get(WHEN, WHERE, large.catalogue()));
+    }
+
+    @Test
+    void skiesOfAnInvalidatedCatalogueAreRemoved() {
+        StarCatalogue catalogue = catalogue(10), other = catalogue(5);
+        HorizontalSkyCache cache = new HorizontalSkyCache(1000, Duration.ofSeconds(1), StarPartitioner.SEQUENTIAL);
+        HorizontalSky sky = cache.get(WHEN, WHERE, catalogue);
+        cache.get(WHEN.plusDays(1), WHERE, catalogue);
+        HorizontalSky otherSky = cache.get(WHEN, WHERE, other);
+        cache.get(WHEN, WHERE, null);
+
+        cache.invalidate(catalogue);
+        assertEquals(2, cache.size());
+        assertSame(otherSky, cache.get(WHEN, WHERE, other));
+        assertNotSame(sky, cache.get(WHEN, WHERE, catalogue));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.hitCount());
+    }
+
+    @Test
+    void constructorFailsOnInvalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new HorizontalSkyCache(-1, Duration.ofSeconds(1), StarPartitioner.SEQUENTIAL));
+        assertThrows(IllegalArgumentException.class,
+                () -> new HorizontalSkyCache(10, Duration.ofNanos(1000), StarPartitioner.SEQUENTIAL));
+        assertThrows(IllegalArgumentException.class,
+                () -> new HorizontalSkyCache(10, Duration.ofSeconds(-1), StarPartitioner.SEQUENTIAL));
+        assertThrows(NullPointerException.class, () -> new HorizontalSkyCache(10, Duration.ofSeconds(1), null));
+    }
+}
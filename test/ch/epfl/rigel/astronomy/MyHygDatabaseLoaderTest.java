@@ -3,10 +3,14 @@ package ch.epfl.rigel.astronomy;
 import ch.epfl.rigel.coordinates.EquatorialCoordinates;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -54,6 +58,58 @@ public class MyHygDatabaseLoaderTest {
         }
     }
 
+    @Test
+    public void parallelLoaderKeepsTheOrderOfTheFile() throws IOException {
+        byte[] catalogue;
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            catalogue = hygStream.readAllBytes();
+        }
+        //the catalogue is repeated to have more than one chunk
+        String text = new String(catalogue, StandardCharsets.US_ASCII);
+        String lines = text.substring(text.indexOf('\n') + 1);
+        byte[] largeCatalogue = (text + lines.repeat(7)).getBytes(StandardCharsets.US_ASCII);
+
+        List<Star> expected = new StarCatalogue.Builder()
+                .loadFrom(new ByteArrayInputStream(largeCatalogue), HygDatabaseLoader.INSTANCE).build().stars();
+        List<Star> actual = new StarCatalogue.Builder()
+                .loadFrom(new ByteArrayInputStream(largeCatalogue), HygDatabaseLoader.PARALLEL).build().stars();
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(expected.get(i).hipparcosId(), actual.get(i).hipparcosId());
+            assertEquals(expected.get(i).name(), actual.get(i).name());
+            assertEquals(expected.get(i).equatorialPos().ra(), actual.get(i).equatorialPos().ra());
+            assertEquals(expected.get(i).magnitude(), actual.get(i).magnitude());
+        }
+    }
+
+    @Test
+    public void compressedCatalogueIsDecompressedAsItIsRead() throws IOException {
+        byte[] catalogue;
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            catalogue = hygStream.readAllBytes();
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(catalogue);
+        }
+
+        List<Star> expected = new StarCatalogue.Builder()
+                .loadFrom(new ByteArrayInputStream(catalogue), HygDatabaseLoader.INSTANCE).build().stars();
+        for (HygDatabaseLoader loader : HygDatabaseLoader.values()) {
+            List<Star> actual = new StarCatalogue.Builder()
+                    .loadFrom(new ByteArrayInputStream(compressed.toByteArray()), loader).build().stars();
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); ++i) {
+                assertEquals(expected.get(i).hipparcosId(), actual.get(i).hipparcosId());
+                assertEquals(expected.get(i).name(), actual.get(i).name());
+                assertEquals(expected.get(i).equatorialPos().dec(), actual.get(i).equatorialPos().dec());
+            }
+        }
+        assertEquals(0, new StarCatalogue.Builder()
+                .loadFrom(new ByteArrayInputStream(new byte[0]), HygDatabaseLoader.INSTANCE).build().stars().size());
+    }
+
     //Tests de l'énoncé
     @Test
     void hygDatabaseIsCorrectlyInstalled() throws IOException {
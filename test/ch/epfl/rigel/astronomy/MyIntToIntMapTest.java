@@ -0,0 +1,45 @@
+package ch.epfl.rigel.astronomy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+public class MyIntToIntMapTest {
+
+    @Test
+    public void mapBehavesLikeAHashMapWithPutIfAbsent() {
+        SplittableRandom random = new SplittableRandom(2020);
+        Map<Integer, Integer> expected = new HashMap<>();
+        IntToIntMap map = new IntToIntMap(0);
+        for (int i = 0; i < 50_000; ++i) {
+            int key = (i % 2 == 0) ? random.nextInt(-1000, 1000) : random.nextInt();
+            Integer previous = expected.putIfAbsent(key, i);
+            assertEquals(previous == null ? IntToIntMap.ABSENT : previous, map.putIfAbsent(key, i));
+        }
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        assertEquals(IntToIntMap.ABSENT, map.get(Integer.MIN_VALUE + 1));
+    }
+
+    @Test
+    public void copyIsIndependent() {
+        IntToIntMap map = new IntToIntMap(4);
+        map.putIfAbsent(24436, 0);
+        IntToIntMap copy = map.copy();
+        map.putIfAbsent(27989, 1);
+        assertEquals(0, copy.get(24436));
+        assertEquals(IntToIntMap.ABSENT, copy.get(27989));
+        assertEquals(1, map.get(27989));
+        assertThrows(IllegalArgumentException.class, () -> map.putIfAbsent(1, -1));
+    }
+}
@@ -1,14 +1,22 @@
 package ch.epfl.rigel.astronomy;
 
 import ch.epfl.rigel.coordinates.*;
+import ch.epfl.rigel.math.Angle;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.DoubleBuffer;
 import java.time.*;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * @author Juliette Parchet (295888)
@@ -97,8 +105,9 @@ public class MyObservedSkyTest {
 
         int i = 0;
         for (Star star : sky.stars()) {
-            assertEquals(stereo.apply(convEquToHor.apply(star.equatorialPos())).x(),
-                    sky.starsPosition()[i]);
+            //the stars are projected by a matrix product, rounded differently from the trigonometric conversion
+            double expected = stereo.apply(convEquToHor.apply(star.equatorialPos())).x();
+            assertEquals(expected, sky.starsPosition()[i], 1e-12 * Math.max(1, Math.abs(expected)));
             i += 2;
         }
         assertEquals(catalogue.stars().size(), sky.stars().size());
@@ -107,7 +116,176 @@ public class MyObservedSkyTest {
         sky.starsPosition()[0] = Double.MAX_VALUE;
         assertEquals(memory, sky.starsPosition()[0]);
     }
-}
 
+    @Test
+    void starsOfACatalogueWithProperMotionsAreMovedToTheObservationTime() throws IOException {
+        constructorTest2();
+        StarCatalogue movingCatalogue = catalogue.withProperMotions();
+        assertFalse(catalogue.propagatesProperMotions());
+        assertTrue(movingCatalogue.propagatesProperMotions());
+        assertSame(catalogue.stars(), movingCatalogue.stars());
+        assertSame(movingCatalogue, movingCatalogue.withProperMotions());
+        ObservedSky movingSky = new ObservedSky(time, geoCoords, stereo, movingCatalogue);
+
+        //positions moved according to the proper motions of the stars since J2000
+        DoubleBuffer positions = catalogue.starPositionsAt(time);
+        int movedStarCount = 0;
+        for (int i = 0; i < 2 * movingSky.starCount(); i += 2) {
+            //the positions are also propagated as unit vectors, rounded differently from the angles
+            double expected = stereo.apply(convEquToHor.apply(positions.get(i), positions.get(i + 1))).x();
+            assertEquals(expected, movingSky.starsPosition()[i], 1e-10 * Math.max(1, Math.abs(expected)));
+            if (Math.abs(movingSky.starsPosition()[i] - sky.starsPosition()[i]) > 1e-9) {
+                ++movedStarCount;
+            }
+        }
+        assertTrue(movedStarCount > 0);
+    }
+
+    @Test
+    void limitingMagnitudeKeepsTheBrightStarsOfASortedCatalogue() throws IOException {
+        StarCatalogue sortedCatalogue;
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            sortedCatalogue = new StarCatalogue.Builder()
+                    .sortedByMagnitude()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .build();
+        }
+        ZonedDateTime when = ZonedDateTime.of(LocalDate.of(2020, Month.APRIL, 4), LocalTime.of(0, 0), ZoneOffset.UTC);
+        GeographicCoordinates where = GeographicCoordinates.ofDeg(6.57, 46.52);
+        StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 45));
+
+        ObservedSky fullSky = new ObservedSky(when, where, projection, sortedCatalogue);
+        ObservedSky brightSky = new ObservedSky(when, where, projection, sortedCatalogue, 3);
+        assertEquals(sortedCatalogue.stars().size(), fullSky.starCount());
+        assertEquals(sortedCatalogue.starCountBrighterThan(3), brightSky.starCount());
+        assertEquals(2 * brightSky.starCount(), brightSky.starsPosition().length);
+        for (int i = 0; i < brightSky.starsPosition().length; ++i) {
+            assertEquals(fullSky.starsPosition()[i], brightSky.starsPosition()[i]);
+        }
+    }
+
+    @Test
+    void horizontalSkyIsOnlyProjectedAgainWhenTheViewChanges() throws IOException {
+        constructorTest2();
+        HorizontalSky horizontalSky = new HorizontalSky(time, geoCoords, catalogue);
+        assertEquals(catalogue.stars().size(), horizontalSky.starCount());
+
+        StereographicProjection otherProjection = new StereographicProjection(HorizontalCoordinates.ofDeg(90, 30));
+        ObservedSky direct = new ObservedSky(time, geoCoords, otherProjection, catalogue);
+        ObservedSky reprojected = new ObservedSky(horizontalSky, otherProjection);
+        ObservedSky panned = new ObservedSky(horizontalSky, stereo);
+
+        assertSame(horizontalSky, reprojected.horizontalSky());
+        assertSame(reprojected.sun(), panned.sun());
+        assertSame(reprojected.planets().get(3), panned.planets().get(3));
+        assertEquals(direct.sunPosition().x(), reprojected.sunPosition().x());
+        assertEquals(direct.moonPosition().y(), reprojected.moonPosition().y());
+        assertArrayEquals(direct.planetPosition(), reprojected.planetPosition());
+        assertArrayEquals(direct.starsPosition(), reprojected.starsPosition());
+        assertArrayEquals(sky.starsPosition(), panned.starsPosition());
+    }
+
+    @Test
+    void parallelSkyIsTheSequentialSky() throws IOException {
+        constructorTest2();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            //a small threshold for the HYG catalogue to be split in many chunks
+            HorizontalSky parallel = new HorizontalSky(time, geoCoords, catalogue, StarPartitioner.parallel(pool, 100));
+            HorizontalSky sequential = new HorizontalSky(time, geoCoords, catalogue);
+            assertTrue(parallel.partitioner().isParallel());
+            assertFalse(sequential.partitioner().isParallel());
+
+            double[] parallelVectors = new double[3 * parallel.starCount()];
+            double[] sequentialVectors = new double[3 * sequential.starCount()];
+            parallel.starUnitVectors().get(parallelVectors);
+            sequential.starUnitVectors().get(sequentialVectors);
+            assertArrayEquals(sequentialVectors, parallelVectors);
+
+            ObservedSky parallelSky = new ObservedSky(parallel, stereo, 5);
+            ObservedSky sequentialSky = new ObservedSky(sequential, stereo, 5);
+            assertEquals(sequentialSky.starCount(), parallelSky.starCount());
+            assertArrayEquals(sequentialSky.starsPosition(), parallelSky.starsPosition());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void starPositionsAreAReadOnlyView() throws IOException {
+        constructorTest2();
+        HorizontalSky horizontalSky = new HorizontalSky(time, geoCoords, catalogue);
+        StereographicProjection otherProjection = new StereographicProjection(HorizontalCoordinates.ofDeg(90, 30));
+        ObservedSky previous = new ObservedSky(horizontalSky, stereo);
+        double[] previousPositions = previous.starsPosition();
+        assertEquals(previousPositions[7], previous.starPositionY(3));
+        double[] expected = new ObservedSky(horizontalSky, otherProjection).starsPosition();
+
+        DoubleBuffer positions = previous.starPositions();
+        assertTrue(positions.isReadOnly());
+        assertEquals(2 * previous.starCount(), positions.remaining());
+        assertEquals(previousPositions[7], positions.get(7));
+
+        //a newer sky does not change the positions of an older one, which stays usable
+        ObservedSky next = new ObservedSky(horizontalSky, otherProjection, Double.POSITIVE_INFINITY, Math.PI);
+        assertArrayEquals(expected, next.starsPosition());
+        for (int i = 0; i < next.starCount(); ++i) {
+            assertEquals(expected[2 * i], next.starPositionX(i));
+            assertEquals(expected[2 * i + 1], next.starPositionY(i));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> next.starPositionX(next.starCount()));
+        double[] viewed = new double[positions.remaining()];
+        positions.get(viewed);
+        assertArrayEquals(previousPositions, viewed);
+        assertArrayEquals(previousPositions, previous.starsPosition());
+        assertEquals(previousPositions[6], previous.starPositionX(3));
+        assertTrue(previous.objectClosestTo(CartesianCoordinates.of(previousPositions[6], previousPositions[7]), 1e-3)
+                .isPresent());
+    }
+
+    @Test
+    void starsOutOfTheViewingConeAreCulled() throws IOException {
+        constructorTest2();
+        HorizontalSky horizontalSky = new HorizontalSky(time, geoCoords, catalogue);
+        HorizontalCoordinates center = HorizontalCoordinates.ofDeg(20, 22);
+        double radius = Angle.ofDeg(40);
+        ObservedSky fullSky = new ObservedSky(horizontalSky, stereo);
+        ObservedSky culledSky = new ObservedSky(horizontalSky, stereo, Double.POSITIVE_INFINITY, radius);
+        assertEquals(0, fullSky.culledStarCount());
+        assertEquals(fullSky.starCount(), culledSky.starCount());
 
+        double[] full = fullSky.starsPosition();
+        double[] culled = culledSky.starsPosition();
+        int culledCount = 0;
+        for (int i = 0; i < culledSky.starCount(); ++i) {
+            double separation = angularDistance(center, horizontalSky.starPosition(i));
+            if (Double.isNaN(culled[2 * i])) {
+                ++culledCount;
+                assertTrue(separation > radius - 1e-9);
+                assertTrue(Double.isNaN(culled[2 * i + 1]));
+            } else {
+                assertTrue(separation < radius + 1e-9);
+                assertEquals(full[2 * i], culled[2 * i]);
+                assertEquals(full[2 * i + 1], culled[2 * i + 1]);
+            }
+        }
+        assertEquals(culledCount, culledSky.culledStarCount());
+        assertTrue(culledCount > culledSky.starCount() / 2);
 
+        //the culled stars cannot be picked
+        int culledStar = 0;
+        while (!Double.isNaN(culled[2 * culledStar])) {
+            ++culledStar;
+        }
+        CartesianCoordinates culledStarPosition = CartesianCoordinates.of(full[2 * culledStar], full[2 * culledStar + 1]);
+        assertEquals(Optional.of(catalogue.stars().get(culledStar)), fullSky.objectClosestTo(culledStarPosition, 1e-12));
+        assertEquals(Optional.empty(), culledSky.objectClosestTo(culledStarPosition, 1e-12));
+        assertThrows(IllegalArgumentException.class, () -> new ObservedSky(horizontalSky, stereo, 6, 0));
+    }
+
+    private static double angularDistance(HorizontalCoordinates a, HorizontalCoordinates b) {
+        double cosine = Math.sin(a.alt()) * Math.sin(b.alt())
+                + Math.cos(a.alt()) * Math.cos(b.alt()) * Math.cos(a.az() - b.az());
+        return Math.acos(Math.max(-1, Math.min(1, cosine)));
+    }
+}
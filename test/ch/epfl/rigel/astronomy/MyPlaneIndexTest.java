@@ -0,0 +1,58 @@
+package ch.epfl.rigel.astronomy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+public class MyPlaneIndexTest {
+
+    @Test
+    void indexFindsTheClosestPositionLikeALinearScan() {
+        SplittableRandom random = new SplittableRandom(2020);
+        int count = 20_000;
+        double[] xy = new double[2 * count];
+        for (int i = 0; i < xy.length; ++i) {
+            xy[i] = random.nextDouble(-2, 2);
+        }
+        //positions far from the others and culled positions
+        xy[0] = 1e9;
+        xy[2] = Double.NaN;
+        xy[3] = Double.NaN;
+
+        for (double maxDistance : new double[]{0.001, 0.01, 0.1}) {
+            PlaneIndex index = new PlaneIndex(xy, count, maxDistance);
+            for (int query = 0; query < 2_000; ++query) {
+                double x = random.nextDouble(-2.1, 2.1), y = random.nextDouble(-2.1, 2.1);
+                assertEquals(linearClosest(xy, count, x, y, maxDistance), index.indexOfClosest(x, y, maxDistance));
+            }
+            assertEquals(0, index.indexOfClosest(1e9, xy[1], maxDistance));
+            //a distance larger than the cells is answered by a linear scan
+            assertEquals(linearClosest(xy, count, 0.5, 0.5, 1), index.indexOfClosest(0.5, 0.5, 1));
+        }
+    }
+
+    @Test
+    void indexFailsOnInvalidCellSize() {
+        assertThrows(IllegalArgumentException.class, () -> new PlaneIndex(new double[2], 1, 0));
+    }
+
+    private static int linearClosest(double[] xy, int count, double x, double y, double maxDistance) {
+        int closest = -1;
+        double minDistance = maxDistance;
+        for (int i = 0; i < count; ++i) {
+            double distance = Math.hypot(x - xy[2 * i], y - xy[2 * i + 1]);
+            if (distance <= minDistance) {
+                closest = i;
+                minDistance = distance;
+            }
+        }
+        return closest;
+    }
+}
@@ -0,0 +1,105 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import ch.epfl.rigel.math.Angle;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.DoubleBuffer;
+import java.time.*;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MyProperMotionPropagatorTest {
+
+    private static final String HYG_CATALOGUE_NAME = "/hygdata_v3.csv";
+
+    private static Star movingStar(double ra, double dec, double properMotionRa, double properMotionDec) {
+        NameHeap heap = NameHeap.empty().append((byte) '?');
+        return new Star(1, heap, 0, 1, EquatorialCoordinates.of(ra, dec), 1f, 0.5f,
+                (float) properMotionRa, (float) properMotionDec);
+    }
+
+    private static ZonedDateTime yearsAfterJ2000(int years) {
+        return ZonedDateTime.of(LocalDate.of(2000 + years, Month.JANUARY, 1), LocalTime.NOON, ZoneOffset.UTC);
+    }
+
+    @Test
+    void positionsAtJ2000AreThePositionsOfTheTable() {
+        StarTable table = StarTable.onHeap(List.of(
+                movingStar(1, 0.5, Angle.ofArcsec(2), Angle.ofArcsec(-3)),
+                new Star(2, "fixed", EquatorialCoordinates.of(4, -0.2), 3f, 1f)));
+        DoubleBuffer positions = new ProperMotionPropagator(table).positionsAt(yearsAfterJ2000(0));
+        assertEquals(4, positions.remaining());
+        assertEquals(1, positions.get(0));
+        assertEquals(0.5, positions.get(1));
+        assertEquals(4, positions.get(2));
+        assertEquals(-0.2, positions.get(3));
+        assertTrue(positions.isReadOnly());
+    }
+
+    @Test
+    void positionsMoveAccordingToTheProperMotions() {
+        double dec = 0.5;
+        StarTable table = StarTable.onHeap(List.of(
+                movingStar(1, dec, 0, Angle.ofArcsec(10)),
+                movingStar(1, dec, Angle.ofArcsec(10), 0),
+                new Star(2, "fixed", EquatorialCoordinates.of(4, -0.2), 3f, 1f)));
+        DoubleBuffer positions = new ProperMotionPropagator(table).positionsAt(yearsAfterJ2000(100));
+
+        //linear motion in space: the angle travelled is the arc tangent of the proper motion times the time
+        assertEquals(1, positions.get(0), 1e-9);
+        assertEquals(dec + Math.atan(Angle.ofArcsec(1000)), positions.get(1), 1e-9);
+        //the proper motion in ra is multiplied by the cosine of the declination
+        assertEquals(1 + Angle.ofArcsec(1000) / Math.cos(dec), positions.get(2), 1e-7);
+        //along a great circle, not along the parallel of the star
+        assertEquals(dec, positions.get(3), 1e-5);
+        assertTrue(positions.get(3) < dec);
+        assertEquals(4, positions.get(4), 1e-12);
+        assertEquals(-0.2, positions.get(5), 1e-12);
+    }
+
+    @Test
+    void positionsCrossingAPoleStayValid() {
+        StarTable table = StarTable.onHeap(List.of(movingStar(1, Math.PI / 2 - 1e-4, 0, 1e-5)));
+        DoubleBuffer positions = new ProperMotionPropagator(table).positionsAt(yearsAfterJ2000(20));
+        assertEquals(1 + Math.PI, positions.get(0), 1e-9);
+        assertEquals(Math.PI / 2 - 1e-4, positions.get(1), 1e-9);
+    }
+
+    @Test
+    void positionsOfABucketArePropagatedOnce() {
+        StarTable table = StarTable.onHeap(List.of(movingStar(1, 0.5, Angle.ofArcsec(2), Angle.ofArcsec(-3))));
+        ProperMotionPropagator propagator = new ProperMotionPropagator(table);
+        ZonedDateTime when = yearsAfterJ2000(50);
+        DoubleBuffer positions = propagator.positionsAt(when);
+        assertEquals(positions, propagator.positionsAt(when.plusDays(100)));
+        assertEquals(1, propagator.cachedBucketCount());
+
+        for (int year = 1; year <= 2 * ProperMotionPropagator.MAX_CACHED_BUCKETS; ++year) {
+            propagator.positionsAt(yearsAfterJ2000(year));
+        }
+        assertEquals(ProperMotionPropagator.MAX_CACHED_BUCKETS, propagator.cachedBucketCount());
+    }
+
+    @Test
+    void catalogueStarsHaveProperMotions() throws IOException {
+        StarCatalogue catalogue;
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            catalogue = new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .build();
+        }
+        //Tau Phe: pmrarad and pmdecrad of the first line of the catalogue
+        Star first = catalogue.stars().get(0);
+        assertEquals(-0.00000008687861155555555, first.properMotionRa(), 1e-14);
+        assertEquals(-0.000000032724923, first.properMotionDec(), 1e-14);
+        assertEquals(first.properMotionRa(), catalogue.starTable().properMotionRa(0));
+
+        DoubleBuffer positions = catalogue.starPositionsAt(yearsAfterJ2000(1000));
+        assertEquals(2 * catalogue.stars().size(), positions.remaining());
+        assertNotEquals(first.equatorialPos().dec(), positions.get(1));
+    }
+}
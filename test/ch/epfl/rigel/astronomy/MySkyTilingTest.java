@@ -0,0 +1,167 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import ch.epfl.rigel.math.Angle;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+public class MySkyTilingTest {
+
+    private static final String HYG_CATALOGUE_NAME = "/hygdata_v3.csv";
+
+    @Test
+    void tileCentersAreInTheirTiles() {
+        for (int order = 0; order <= 4; ++order) {
+            for (int tile = 0; tile < SkyTiling.tileCount(order); ++tile) {
+                double[] center = SkyTiling.tileCenter(order, tile);
+                double ra = Math.atan2(center[1], center[0]), dec = Math.asin(center[2]);
+                assertEquals(tile, SkyTiling.tileOf(order, ra, dec));
+                if (order > 0) {
+                    assertEquals(tile >> 2, SkyTiling.tileOf(order - 1, ra, dec));
+                }
+            }
+        }
+    }
+
+    @Test
+    void tilesHaveEqualAreas() {
+        SplittableRandom random = new SplittableRandom(2020);
+        int order = 2, tileCount = SkyTiling.tileCount(order), pointCount = 480_000;
+        int[] counts = new int[tileCount];
+        for (int i = 0; i < pointCount; ++i) {
+            double ra = random.nextDouble(0, Angle.TAU), dec = Math.asin(random.nextDouble(-1, 1));
+            ++counts[SkyTiling.tileOf(order, ra, dec)];
+        }
+        for (int count : counts) {
+            //5 standard deviations of the number of points of a tile
+            assertEquals(pointCount / (double) tileCount, count, 0.1 * pointCount / tileCount);
+        }
+    }
+
+    @Test
+    void starsOfATileAreContiguousAtEveryOrder() throws IOException {
+        StarCatalogue catalogue = hygCatalogue();
+        SkyTiling tiling = catalogue.tiling();
+        assertSame(tiling, catalogue.tiling());
+        assertTrue(tiling.order() > 0);
+        IntBuffer starIndices = tiling.starIndices();
+        assertTrue(starIndices.isReadOnly());
+        boolean[] seen = new boolean[tiling.starCount()];
+        for (int i = 0; i < starIndices.limit(); ++i) {
+            assertFalse(seen[starIndices.get(i)]);
+            seen[starIndices.get(i)] = true;
+        }
+
+        for (int order = 0; order < tiling.order(); ++order) {
+            assertEquals(0, tiling.tileStart(order, 0));
+            assertEquals(tiling.starCount(), tiling.tileEnd(order, SkyTiling.tileCount(order) - 1));
+            for (int tile = 0; tile < SkyTiling.tileCount(order); ++tile) {
+                assertEquals(tiling.tileStart(order + 1, 4 * tile), tiling.tileStart(order, tile));
+                assertEquals(tiling.tileEnd(order + 1, 4 * tile + 3), tiling.tileEnd(order, tile));
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> tiling.tileStart(tiling.order() + 1, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> tiling.tileEnd(0, 12));
+    }
+
+    @Test
+    void coneQueriesFindTheStarsOfTheCone() throws IOException {
+        StarCatalogue catalogue = hygCatalogue();
+        StarTable stars = catalogue.starTable();
+        SplittableRandom random = new SplittableRandom(2020);
+        for (int query = 0; query < 30; ++query) {
+            EquatorialCoordinates center = EquatorialCoordinates.of(random.nextDouble(0, Angle.TAU),
+                    Math.asin(random.nextDouble(-1, 1)));
+            double radius = random.nextDouble(0.001, 1.5);
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < stars.size(); ++i) {
+                if (separation(center.ra(), center.dec(), stars.ra(i), stars.dec(i)) <= radius) {
+                    expected.add(i);
+                }
+            }
+            assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(),
+                    catalogue.tiling().starsInCone(center, radius));
+        }
+        assertEquals(stars.size(), catalogue.tiling().starsInCone(EquatorialCoordinates.of(0, 0), Math.PI).length);
+    }
+
+    @Test
+    void polygonQueriesFindTheStarsOfThePolygon() throws IOException {
+        StarCatalogue catalogue = hygCatalogue();
+        StarTable stars = catalogue.starTable();
+        //Orion, counter-clockwise seen from outside of the sphere (increasing right ascension at the top)
+        List<EquatorialCoordinates> orion = List.of(
+                EquatorialCoordinates.of(Angle.ofHr(4.8), Angle.ofDeg(-12)),
+                EquatorialCoordinates.of(Angle.ofHr(6.2), Angle.ofDeg(-12)),
+                EquatorialCoordinates.of(Angle.ofHr(6.2), Angle.ofDeg(22)),
+                EquatorialCoordinates.of(Angle.ofHr(4.8), Angle.ofDeg(22)));
+        int[] inOrion = catalogue.tiling().starsInPolygon(orion);
+        assertTrue(inOrion.length > 100);
+        int rigel = catalogue.indexOf(catalogue.starByHipparcos(24436).orElseThrow());
+        assertTrue(Arrays.binarySearch(inOrion, rigel) >= 0);
+
+        SplittableRandom random = new SplittableRandom(2020);
+        for (int query = 0; query < 20; ++query) {
+            //random triangles around a point
+            double ra = random.nextDouble(0, Angle.TAU), dec = Math.asin(random.nextDouble(-0.9, 0.9));
+            double size = random.nextDouble(0.01, 0.5);
+            List<EquatorialCoordinates> triangle = new ArrayList<>();
+            for (int k = 0; k < 3; ++k) {
+                double angle = k * Angle.TAU / 3;
+                triangle.add(EquatorialCoordinates.of(Angle.normalizePositive(ra + size * Math.cos(angle) / Math.cos(dec)),
+                        dec + size * Math.sin(angle)));
+            }
+            double[][] normals = new double[3][];
+            for (int k = 0; k < 3; ++k) {
+                normals[k] = cross(vector(triangle.get(k)), vector(triangle.get((k + 1) % 3)));
+            }
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < stars.size(); ++i) {
+                double[] v = vector(EquatorialCoordinates.of(stars.ra(i), stars.dec(i)));
+                boolean inside = true;
+                for (double[] n : normals) {
+                    inside &= n[0] * v[0] + n[1] * v[1] + n[2] * v[2] >= 0;
+                }
+                if (inside) {
+                    expected.add(i);
+                }
+            }
+            assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(),
+                    catalogue.tiling().starsInPolygon(triangle));
+        }
+        assertThrows(IllegalArgumentException.class, () -> catalogue.tiling().starsInPolygon(orion.subList(0, 2)));
+    }
+
+    private static StarCatalogue hygCatalogue() throws IOException {
+        try (InputStream hygStream = MySkyTilingTest.class.getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            return new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE).build();
+        }
+    }
+
+    private static double separation(double ra1, double dec1, double ra2, double dec2) {
+        double cosine = Math.sin(dec1) * Math.sin(dec2) + Math.cos(dec1) * Math.cos(dec2) * Math.cos(ra1 - ra2);
+        return Math.acos(Math.max(-1, Math.min(1, cosine)));
+    }
+
+    private static double[] vector(EquatorialCoordinates position) {
+        double cosDec = Math.cos(position.dec());
+        return new double[]{cosDec * Math.cos(position.ra()), cosDec * Math.sin(position.ra()), Math.sin(position.dec())};
+    }
+
+    private static double[] cross(double[] a, double[] b) {
+        return new double[]{a[1] * b[2] - a[2] * b[1], a[2] * b[0] - a[0] * b[2], a[0] * b[1] - a[1] * b[0]};
+    }
+}
@@ -1,10 +1,14 @@
 package ch.epfl.rigel.astronomy;
 
 import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import ch.epfl.rigel.math.Angle;
 import org.junit.jupiter.api.Test;
 
 import javax.swing.plaf.synth.SynthCheckBoxMenuItemUI;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.IntBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -66,6 +70,231 @@ public class MyStarCatalogueTest {
         );
     }
 
+    @Test
+    public void indexOfAndStarByHipparcosWork() {
+        Star sameHipparcosAsStar1 = new Star(10, "star4", EquatorialCoordinates.of(0.8, 0.3), 0.4f, 0.4f);
+        List<Star> stars = List.of(star1, star2, sameHipparcosAsStar1);
+        StarCatalogue starCatalogue = new StarCatalogue(stars, List.of(new Asterism(List.of(star2, star1))));
+
+        assertEquals(0, starCatalogue.indexOf(star1));
+        assertEquals(1, starCatalogue.indexOf(star2));
+        assertEquals(2, starCatalogue.indexOf(sameHipparcosAsStar1));
+        assertEquals(-1, starCatalogue.indexOf(star3));
+
+        assertSame(star1, starCatalogue.starByHipparcos(10).orElseThrow());
+        assertSame(star2, starCatalogue.starByHipparcos(20).orElseThrow());
+        assertTrue(starCatalogue.starByHipparcos(30).isEmpty());
+    }
+
+    @Test
+    public void starsWithoutHipparcosAreNotIndexed() {
+        Star unknown1 = new Star(0, "unknown1", EquatorialCoordinates.of(0.8, 0.3), 0.4f, 0.4f);
+        Star unknown2 = new Star(0, "unknown2", EquatorialCoordinates.of(0.9, 0.4), 0.5f, 0.5f);
+        StarCatalogue.Builder builder = new StarCatalogue.Builder().addStar(unknown1).addStar(star1).addStar(unknown2);
+        assertTrue(builder.starByHipparcos(0).isEmpty());
+        assertTrue(builder.build().starByHipparcos(0).isEmpty());
+        assertTrue(new StarCatalogue(List.of(unknown1, star1), List.of()).starByHipparcos(0).isEmpty());
+
+        //stars without Hipparcos number of the asterisms of an off-heap catalogue: found by their index
+        Asterism unknowns = new Asterism(List.of(unknown2, unknown1));
+        StarCatalogue offHeap = builder.addAsterism(unknowns).offHeap().build();
+        assertTrue(offHeap.starByHipparcos(0).isEmpty());
+        assertEquals(List.of(2, 0), offHeap.asterismIndices(unknowns));
+        assertEquals(0, offHeap.indexOf(unknown1));
+        assertEquals(2, offHeap.indexOf(unknown2));
+        assertEquals(2, offHeap.indexOf(offHeap.stars().get(2)));
+        assertEquals(-1, offHeap.indexOf(new Star(0, "unknown2", EquatorialCoordinates.of(0.9, 0.4), 0.5f, 0.5f)));
+    }
+
+    @Test
+    public void identicalStarsOfAsterismsAreToldApart() {
+        Star twin1 = new Star(70, "twin", EquatorialCoordinates.of(0.5, 0.5), 1f, 0.5f);
+        Star twin2 = new Star(70, "twin", EquatorialCoordinates.of(0.5, 0.5), 1f, 0.5f);
+        for (boolean offHeap : List.of(false, true)) {
+            Asterism asterism = new Asterism(List.of(twin2));
+            StarCatalogue.Builder builder = new StarCatalogue.Builder().addStar(twin1).addStar(twin2)
+                    .addAsterism(asterism);
+            StarCatalogue catalogue = (offHeap ? builder.offHeap() : builder).build();
+            assertEquals(List.of(1), catalogue.asterismIndices(asterism));
+            assertEquals(1, catalogue.indexOf(twin2));
+            if (!offHeap) {
+                assertSame(twin1, catalogue.stars().get(0));
+                assertSame(twin2, catalogue.stars().get(1));
+            }
+        }
+
+        //stars added to an off-heap builder are not kept: they cannot be stars of its asterisms
+        StarCatalogue.Builder offHeapBuilder = new StarCatalogue.Builder().offHeap().addStar(twin1);
+        offHeapBuilder.addAsterism(new Asterism(List.of(twin1)));
+        assertThrows(IllegalArgumentException.class, offHeapBuilder::build);
+        StarCatalogue.Builder readBuilder = new StarCatalogue.Builder().offHeap().addStar(twin1).addStar(twin2);
+        readBuilder.addAsterism(new Asterism(List.of(readBuilder.stars().get(1))));
+        assertEquals(1, readBuilder.build().asterismStarIndices().get(0));
+    }
+
+    @Test
+    public void asterismTopologyIsCompressed() {
+        Asterism asterism1 = new Asterism(List.of(star3, star1));
+        Asterism asterism2 = new Asterism(List.of(star2));
+        StarCatalogue starCatalogue = new StarCatalogue(List.of(star1, star2, star3),
+                List.of(asterism1, asterism2, asterism1));
+
+        assertEquals(2, starCatalogue.asterismCount());
+        assertEquals(2, starCatalogue.asterisms().size());
+        assertSame(starCatalogue.asterisms(), starCatalogue.asterisms());
+
+        IntBuffer offsets = starCatalogue.asterismOffsets();
+        IntBuffer starIndices = starCatalogue.asterismStarIndices();
+        assertEquals(3, offsets.remaining());
+        assertEquals(0, offsets.get(0));
+        assertEquals(2, offsets.get(1));
+        assertEquals(3, offsets.get(2));
+        assertEquals(3, starIndices.remaining());
+        assertEquals(2, starIndices.get(0));
+        assertEquals(0, starIndices.get(1));
+        assertEquals(1, starIndices.get(2));
+        assertTrue(offsets.isReadOnly());
+        assertThrows(ReadOnlyBufferException.class, () -> starIndices.put(0, 1));
+
+        assertEquals(List.of(2, 0), starCatalogue.asterismIndices(asterism1));
+        assertEquals(List.of(1), starCatalogue.asterismIndices(asterism2));
+    }
+
+    @Test
+    public void brighterThanKeepsTheBrightStarsAndTheirAsterisms() {
+        Asterism bright = new Asterism(List.of(star2, star1));
+        Asterism partlyFaint = new Asterism(List.of(star1, star3));
+        StarCatalogue starCatalogue = new StarCatalogue(List.of(star1, star2, star3), List.of(bright, partlyFaint));
+
+        StarCatalogue brightCatalogue = starCatalogue.brighterThan(0.25);
+        assertEquals(List.of(star1, star2), brightCatalogue.stars());
+        assertEquals(1, brightCatalogue.asterismCount());
+        assertEquals(List.of(star2, star1), brightCatalogue.asterisms().iterator().next().stars());
+        assertEquals(0, starCatalogue.brighterThan(-1).stars().size());
+        assertEquals(3, starCatalogue.brighterThan(0.35).stars().size());
+
+        //catalogue reading its stars from its table: the bright stars are copied row by row
+        for (boolean offHeap : List.of(false, true)) {
+            StarCatalogue.Builder builder = new StarCatalogue.Builder().addStar(star3).addStar(star1).addStar(star2)
+                    .addAsterism(bright).addAsterism(partlyFaint);
+            StarCatalogue builtCatalogue = (offHeap ? builder.offHeap() : builder).build().brighterThan(0.25);
+            assertEquals(offHeap, builtCatalogue.starTable().isOffHeap());
+            if (offHeap) {
+                assertEquals(List.of(star1.name(), star2.name()),
+                        List.of(builtCatalogue.stars().get(0).name(), builtCatalogue.stars().get(1).name()));
+            } else {
+                assertEquals(List.of(star1, star2), builtCatalogue.stars());
+            }
+            assertEquals(1, builtCatalogue.asterismCount());
+            assertEquals(List.of(1, 0), builtCatalogue.asterismIndices(builtCatalogue.asterisms().iterator().next()));
+        }
+    }
+
+    @Test
+    public void sortedCatalogueHasLimitingMagnitudePrefixes() {
+        Star faint = new Star(40, "star4", EquatorialCoordinates.of(0.8, 0.3), 4.5f, 0.4f);
+        Star bright = new Star(50, "star5", EquatorialCoordinates.of(0.9, 0.4), -1.5f, 0.5f);
+        Star asBrightAsStar2 = new Star(60, "star6", EquatorialCoordinates.of(1, 0.5), 0.2f, 0.6f);
+        Asterism asterism = new Asterism(List.of(star1, faint, bright));
+        StarCatalogue.Builder builder = new StarCatalogue.Builder().sortedByMagnitude().addAsterism(asterism);
+        for (Star star : List.of(star3, faint, star2, bright, star1, asBrightAsStar2)) {
+            builder.addStar(star);
+        }
+        StarCatalogue starCatalogue = builder.build();
+
+        assertTrue(starCatalogue.isSortedByMagnitude());
+        assertEquals(List.of(bright, star1, star2, asBrightAsStar2, star3, faint), starCatalogue.stars());
+        assertEquals(3, starCatalogue.originalIndexOf(0));
+        assertEquals(2, starCatalogue.originalIndexOf(2));
+        assertEquals(5, starCatalogue.originalIndexOf(3));
+        assertEquals(List.of(1, 5, 0), starCatalogue.asterismIndices(asterism));
+
+        assertEquals(0, starCatalogue.starCountBrighterThan(-2));
+        assertEquals(1, starCatalogue.starCountBrighterThan(-1.5));
+        assertEquals(4, starCatalogue.starCountBrighterThan(0.25));
+        assertEquals(6, starCatalogue.starCountBrighterThan(Double.POSITIVE_INFINITY));
+        assertEquals(List.of(bright, star1), starCatalogue.starsBrighterThan(0.15));
+
+        StarCatalogue unsortedCatalogue = new StarCatalogue(List.of(star1), List.of());
+        assertFalse(unsortedCatalogue.isSortedByMagnitude());
+        assertEquals(0, unsortedCatalogue.originalIndexOf(0));
+        assertThrows(IllegalStateException.class, () -> unsortedCatalogue.starCountBrighterThan(1));
+    }
+
+    @Test
+    public void builderFindsItsStarsByHipparcos() {
+        StarCatalogue.Builder builder = new StarCatalogue.Builder().addStar(star1).addStar(star2);
+        assertSame(star2, builder.starByHipparcos(20).orElseThrow());
+        assertTrue(builder.starByHipparcos(30).isEmpty());
+        StarCatalogue starCatalogue = builder.build();
+        builder.addStar(star3);
+        assertSame(star3, builder.starByHipparcos(30).orElseThrow());
+        assertTrue(starCatalogue.starByHipparcos(30).isEmpty());
+        assertThrows(UnsupportedOperationException.class, () -> builder.stars().add(star1));
+
+        //off-heap, the view of the builder also sees the stars added later
+        List<Star> offHeapStars = builder.offHeap().stars();
+        builder.addStar(new Star(40, "star4", EquatorialCoordinates.of(0.8, 0.3), 0.4f, 0.4f));
+        assertEquals(4, offHeapStars.size());
+        assertEquals("star4", offHeapStars.get(3).name());
+        assertEquals("star4", builder.starByHipparcos(40).orElseThrow().name());
+        assertEquals("star2", builder.starByHipparcos(20).orElseThrow().name());
+    }
+
+    @Test
+    public void mergedBuilderIgnoresDuplicateStars() {
+        Star sameHipparcos = new Star(10, "copy of star1", EquatorialCoordinates.of(2, 1), 5f, 1f);
+        Star unknownHipparcos = new Star(0, "?", EquatorialCoordinates.of(3, 1), 5f, 1f);
+        Star samePosition = new Star(40, "close to star2", EquatorialCoordinates.of(0.6 + 1e-7, 0.1), 5f, 1f);
+
+        StarCatalogue.Builder byHipparcos = new StarCatalogue.Builder().addStar(star1).addStar(unknownHipparcos)
+                .mergedByHipparcos()
+                .addStar(sameHipparcos).addStar(unknownHipparcos).addStar(samePosition);
+        assertEquals(List.of(star1, unknownHipparcos, unknownHipparcos, samePosition), byHipparcos.stars());
+        assertEquals(1, byHipparcos.duplicateCount());
+
+        StarCatalogue.Builder byPosition = new StarCatalogue.Builder().addStar(star1).addStar(star2)
+                .mergedByPosition(1e-6)
+                .addStar(samePosition).addStar(sameHipparcos).addStar(star3).addStar(star2);
+        assertEquals(List.of(star1, star2, sameHipparcos, star3), byPosition.build().stars());
+        assertEquals(2, byPosition.duplicateCount());
+        assertThrows(IllegalArgumentException.class, () -> new StarCatalogue.Builder().mergedByPosition(0));
+    }
+
+    @Test
+    public void mergedBuilderLoadsACatalogueTwiceOnce() throws IOException {
+        StarCatalogue.Builder once = new StarCatalogue.Builder().mergedByPosition(Angle.ofArcsec(1));
+        try (InputStream hygStream = getClass().getResourceAsStream("/hygdata_v3.csv")) {
+            once.loadFrom(hygStream, HygDatabaseLoader.INSTANCE);
+        }
+        //a few stars of the catalogue are closer than 1 arcsecond to another one
+        int mergedCount = once.stars().size();
+        int starCount = mergedCount + once.duplicateCount();
+        try (InputStream hygStream = getClass().getResourceAsStream("/hygdata_v3.csv")) {
+            once.loadFrom(hygStream, HygDatabaseLoader.INSTANCE);
+        }
+        assertEquals(mergedCount, once.stars().size());
+        assertEquals(2 * starCount - mergedCount, once.duplicateCount());
+
+        StarCatalogue.Builder twice = new StarCatalogue.Builder().offHeap().mergedByHipparcos();
+        for (int i = 0; i < 2; ++i) {
+            try (InputStream hygStream = getClass().getResourceAsStream("/hygdata_v3.csv")) {
+                twice.loadFrom(hygStream, HygDatabaseLoader.INSTANCE);
+            }
+        }
+        try (InputStream asterismStream = getClass().getResourceAsStream("/asterisms.txt")) {
+            twice.loadFrom(asterismStream, AsterismLoader.INSTANCE);
+        }
+        StarCatalogue catalogue = twice.build();
+        //the stars whose Hipparcos number is unknown are kept twice
+        int unknownCount = 0;
+        for (Star star : catalogue.stars()) {
+            unknownCount += (star.hipparcosId() == 0) ? 1 : 0;
+        }
+        assertEquals(starCount + unknownCount / 2, catalogue.stars().size());
+        assertEquals(starCount - unknownCount / 2, twice.duplicateCount());
+    }
+
     //Star Catalogue Builder
 
     @Test
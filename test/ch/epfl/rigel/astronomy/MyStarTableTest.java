@@ -0,0 +1,112 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+public class MyStarTableTest {
+
+    @Test
+    public void columnsContainTheStarsOfTheCatalogue() {
+        Star star1 = new Star(10, "star1", EquatorialCoordinates.of(0.5, 0), 0.1f, 0.1f);
+        Star star2 = new Star(20, "star2", EquatorialCoordinates.of(0.6, 0.1), -1.2f, 2.75f);
+        StarCatalogue catalogue = new StarCatalogue(List.of(star1, star2), List.of());
+        StarTable starTable = catalogue.starTable();
+
+        assertEquals(2, starTable.size());
+        for (int i = 0; i < starTable.size(); ++i) {
+            Star star = catalogue.stars().get(i);
+            assertEquals(star.equatorialPos().ra(), starTable.ra(i));
+            assertEquals(star.equatorialPos().dec(), starTable.dec(i));
+            assertEquals(star.magnitude(), starTable.magnitude(i));
+            assertEquals(star.colorTemperature(), starTable.colorTemperature(i));
+            assertEquals(star.hipparcosId(), starTable.hipparcosId(i));
+            assertEquals((star.colorTemperature() + 99) / 100, starTable.colorPaletteIndex(i));
+        }
+        assertEquals(2547, starTable.colorTemperature(1));
+        assertEquals(26, starTable.colorPaletteIndex(1));
+    }
+
+    @Test
+    public void builderGrowsAndKeepsTheStars() {
+        List<Star> stars = new ArrayList<>();
+        StarTable.Builder builder = new StarTable.Builder(true, 0);
+        List<Star> added = builder.asList();
+        Star firstAdded = null;
+        for (int i = 0; i < 1000; ++i) {
+            Star star = new Star(i, "star n°" + i, EquatorialCoordinates.of(i * 0.006, (i % 100 - 50) * 0.03),
+                    i * 0.01f - 1, (i % 40) * 0.1f - 0.4f);
+            stars.add(star);
+            builder.add(star);
+            if (i == 0) {
+                firstAdded = builder.star(0);
+            }
+        }
+        //the view of the builder sees the stars added after it, the stars read before the growth keep their names
+        assertEquals(1000, added.size());
+        assertEquals("star n°0", firstAdded.name());
+        for (int i = 0; i < stars.size(); ++i) {
+            assertEquals(stars.get(i).name(), added.get(i).name());
+            assertEquals(stars.get(i).equatorialPos().ra(), builder.star(i).equatorialPos().ra());
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> builder.star(1000));
+        StarTable starTable = builder.build();
+        //stars added after the build are not in the table
+        builder.add(stars.get(0));
+
+        assertTrue(starTable.isOffHeap());
+        assertEquals(1000, starTable.size());
+        for (int i = 0; i < stars.size(); ++i) {
+            Star star = starTable.asList().get(i);
+            assertEquals(stars.get(i).hipparcosId(), star.hipparcosId());
+            assertEquals(stars.get(i).name(), star.name());
+            assertEquals(stars.get(i).equatorialPos().ra(), star.equatorialPos().ra());
+            assertEquals(stars.get(i).equatorialPos().dec(), star.equatorialPos().dec());
+            assertEquals(stars.get(i).magnitude(), star.magnitude());
+            assertEquals(stars.get(i).colorTemperature(), star.colorTemperature());
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> starTable.star(1000));
+    }
+
+    @Test
+    public void offHeapCatalogueHasTheSameQueriesAsTheOnHeapOne() throws IOException {
+        StarCatalogue onHeap, offHeap;
+        try (InputStream hygStream = getClass().getResourceAsStream("/hygdata_v3.csv");
+             InputStream asterismStream = getClass().getResourceAsStream("/asterisms.txt")) {
+            onHeap = new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .loadFrom(asterismStream, AsterismLoader.INSTANCE)
+                    .build();
+        }
+        try (InputStream hygStream = getClass().getResourceAsStream("/hygdata_v3.csv");
+             InputStream asterismStream = getClass().getResourceAsStream("/asterisms.txt")) {
+            offHeap = new StarCatalogue.Builder()
+                    .offHeap()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .loadFrom(asterismStream, AsterismLoader.INSTANCE)
+                    .build();
+        }
+
+        assertFalse(onHeap.starTable().isOffHeap());
+        assertTrue(offHeap.starTable().isOffHeap());
+        assertEquals(onHeap.stars().size(), offHeap.stars().size());
+        assertEquals(onHeap.asterismCount(), offHeap.asterismCount());
+        assertEquals(onHeap.asterismOffsets(), offHeap.asterismOffsets());
+        assertEquals(onHeap.asterismStarIndices(), offHeap.asterismStarIndices());
+
+        Star rigel = offHeap.starByHipparcos(24436).orElseThrow();
+        assertEquals("Rigel", rigel.name());
+        assertEquals(onHeap.indexOf(onHeap.starByHipparcos(24436).orElseThrow()), offHeap.indexOf(rigel));
+        assertEquals(-1, offHeap.indexOf(new Star(24436, "Rigel", EquatorialCoordinates.of(0, 0), 0, 0)));
+    }
+}
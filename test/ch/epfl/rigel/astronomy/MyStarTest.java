@@ -5,6 +5,8 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class MyStarTest {
@@ -32,5 +34,28 @@ public class MyStarTest {
         Assertions.assertEquals(2547, star.colorTemperature());
     }
 
+    @Test
+    void nameOfHeapIsReadLazily() {
+        NameHeap heap = NameHeap.empty();
+        heap.append("Rigel".getBytes(), 0, 5).append((byte) ' ');
+        int start = heap.size();
+        heap.append("Bételgeuse".getBytes(java.nio.charset.StandardCharsets.UTF_8), 0, 11);
+        Star star = new Star(27989, heap, start, heap.size(), EquatorialCoordinates.of(0.5,0.5),0.5f, 1.5f, 0, 0);
+        assertEquals("Bételgeuse", star.name());
+        Assertions.assertSame(star.name(), star.name());
+        assertEquals("Bételgeuse", star.info());
+        assertThrows(IllegalArgumentException.class, () -> {
+            new Star(1, heap, start, heap.size() + 1, EquatorialCoordinates.of(0.5,0.5),0.5f, 1.5f, 0, 0);
+        });
+    }
+
+    @Test
+    void starsAreComparedByIdentity() {
+        Star star = new Star(27989, "Bételgeuse", EquatorialCoordinates.of(0.5,0.5),0.5f, 1.5f);
+        StarCatalogue catalogue = new StarCatalogue.Builder().addStar(star).build();
+        assertSame(star, catalogue.stars().get(0));
+        assertNotEquals(star, new Star(27989, "Bételgeuse", EquatorialCoordinates.of(0.5,0.5),0.5f, 1.5f));
+    }
+
 
 }
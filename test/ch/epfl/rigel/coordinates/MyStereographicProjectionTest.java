@@ -3,6 +3,10 @@ package ch.epfl.rigel.coordinates;
 import ch.epfl.rigel.math.Angle;
 import org.junit.jupiter.api.Test;
 
+import java.nio.DoubleBuffer;
+import java.time.*;
+import java.util.SplittableRandom;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -11,6 +15,36 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
  * @author Paola Matta (296390)
  */
 public class MyStereographicProjectionTest {
+    @Test
+    public void unitVectorsAreProjectedLikeEquatorialCoordinates() {
+        ZonedDateTime when = ZonedDateTime.of(LocalDate.of(2020, Month.MARCH, 20), LocalTime.of(21, 0), ZoneOffset.UTC);
+        GeographicCoordinates where = GeographicCoordinates.ofDeg(6.57, 46.52);
+        EquatorialToHorizontalConversion conversion = new EquatorialToHorizontalConversion(when, where);
+        StereographicProjection p = new StereographicProjection(HorizontalCoordinates.ofDeg(277, -23));
+
+        SplittableRandom random = new SplittableRandom(2020);
+        int count = 1000;
+        double[] ra = new double[count], dec = new double[count];
+        //the first vector is skipped, to check that the vectors are read from the position of the buffer
+        double[] unitVectors = new double[3 * count + 3];
+        for (int i = 0; i < count; ++i) {
+            ra[i] = random.nextDouble(0, Angle.TAU);
+            dec[i] = random.nextDouble(-Math.PI / 2, Math.PI / 2);
+            unitVectors[3 * i + 3] = Math.cos(dec[i]) * Math.cos(ra[i]);
+            unitVectors[3 * i + 4] = Math.cos(dec[i]) * Math.sin(ra[i]);
+            unitVectors[3 * i + 5] = Math.sin(dec[i]);
+        }
+        double[] xy = p.applyToUnitVectors(conversion.rotationMatrix(),
+                DoubleBuffer.wrap(unitVectors).position(3), count);
+
+        assertEquals(2 * count, xy.length);
+        for (int i = 0; i < count; ++i) {
+            CartesianCoordinates expected = p.apply(conversion.apply(ra[i], dec[i]));
+            assertEquals(expected.x(), xy[2 * i], 1e-9 * Math.max(1, Math.abs(expected.x())));
+            assertEquals(expected.y(), xy[2 * i + 1], 1e-9 * Math.max(1, Math.abs(expected.y())));
+        }
+    }
+
     @Test
     public void testCircleCenterForParallel() {
         double latCenter = 0.5;
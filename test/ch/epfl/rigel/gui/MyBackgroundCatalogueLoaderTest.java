@@ -0,0 +1,55 @@
+package ch.epfl.rigel.gui;
+
+import ch.epfl.rigel.astronomy.StarCatalogue;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Juliette Parchet (295888)
+ * @author Paola Matta (296390)
+ */
+public class MyBackgroundCatalogueLoaderTest {
+
+    @Test
+    void loadedCatalogueIsGivenToItsConsumer() throws InterruptedException {
+        StarCatalogue catalogue = new StarCatalogue(List.of(), List.of());
+        AtomicReference<StarCatalogue> loaded = new AtomicReference<>();
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        Thread loader = BackgroundCatalogueLoader.start(() -> catalogue, loaded::set, failure::set);
+        assertTrue(loader.isDaemon());
+        loader.join();
+        assertSame(catalogue, loaded.get());
+        assertNull(failure.get());
+    }
+
+    @Test
+    void failureOfTheLoadingIsGivenToItsConsumer() throws InterruptedException {
+        IOException error = new FileNotFoundException("hygdata_v3.csv");
+        AtomicReference<StarCatalogue> loaded = new AtomicReference<>();
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        BackgroundCatalogueLoader.start(() -> {
+            throw error;
+        }, loaded::set, failure::set).join();
+        assertSame(error, failure.get());
+        assertNull(loaded.get());
+    }
+
+    @Test
+    void uncheckedFailureOfTheLoadingIsGivenToItsConsumer() throws InterruptedException {
+        IOException error = new IOException("corrupted snapshot");
+        AtomicReference<StarCatalogue> loaded = new AtomicReference<>();
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        BackgroundCatalogueLoader.start(() -> {
+            throw new UncheckedIOException(error);
+        }, loaded::set, failure::set).join();
+        assertSame(error, failure.get());
+        assertNull(loaded.get());
+    }
+}
@@ -4,6 +4,7 @@ import javafx.scene.paint.Color;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
@@ -19,5 +20,15 @@ public class MyBlackBodyColorTest {
         assertThrows(IllegalArgumentException.class, () -> BlackBodyColor.colorForTemperature(40_000.00001d));
     }
 
-
+    @Test
+    public void paletteGivesTheColorOfTheRoundedTemperature() {
+        for (int temperature = 1_000; temperature <= 40_000; temperature += 37) {
+            int paletteIndex = (temperature + 99) / 100;
+            Color color = BlackBodyColor.colorForTemperature(temperature);
+            assertEquals(BlackBodyColor.MAP.get(paletteIndex * 100), color);
+            assertSame(color, BlackBodyColor.colorForPaletteIndex(paletteIndex));
+            assertEquals(color.getRed(), BlackBodyColor.fadedColorForPaletteIndex(paletteIndex).getRed());
+            assertEquals(0.25, BlackBodyColor.fadedColorForPaletteIndex(paletteIndex).getOpacity());
+        }
+    }
 }